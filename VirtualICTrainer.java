@@ -3,6 +3,8 @@
 // javac --module-path "C:\Program Files\Java\Javafx\lib" --add-modules javafx.controls,javafx.fxml VirtualICTrainer.java
 // Run:
 // java --module-path "C:\Program Files\Java\Javafx\lib" --add-modules javafx.controls,javafx.fxml VirtualICTrainer
+// Profile (Flight Recorder, board events included):
+// java -XX:StartFlightRecording:settings=jfr/virtualic.jfc,filename=session.jfr --module-path ... VirtualICTrainer
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -13,9 +15,13 @@ import javafx.scene.effect.DropShadow;
 import javafx.scene.input.*;
 import javafx.scene.layout.*;
 import javafx.scene.paint.*;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
 import javafx.scene.shape.Circle;
 import javafx.scene.shape.LineTo;
 import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.CubicCurveTo;
 import javafx.scene.shape.Path;
 import javafx.scene.shape.Rectangle;
 import javafx.scene.shape.StrokeLineCap;
@@ -27,8 +33,26 @@ import javafx.scene.text.*;
 import javafx.stage.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
+import sim.Bdd;
+import sim.ChipSpec;
+import sim.CircuitFile;
+import sim.ClockKernel;
+import sim.EquivalenceChecker;
+import sim.EventSimulator;
+import sim.Netlist;
+import sim.PartitionedSimulator;
+import sim.SimEvents;
+import sim.SimMetrics;
+import sim.SimThread;
+import sim.SymbolicTable;
+import sim.TimingSimulator;
+import sim.TruthTableEngine;
+import sim.VcdWriter;
+import sim.WaveRecorder;
+
 public class VirtualICTrainer extends Application {
 
     private Pane board;
@@ -41,6 +65,32 @@ public class VirtualICTrainer extends Application {
     private PowerNode vccNode = null;
 private PowerNode gndNode = null;
 
+    // compiled form of ics/wires, rebuilt lazily after any structural edit. The FX thread uses
+    // it for its structure only; values reach the pins through the snapshots sim publishes.
+    private Netlist netlist;
+    private boolean netlistDirty = true;
+    private final List<Pin> netPins = new ArrayList<>();
+    private boolean pinsStale = true;
+    private final SimThread sim = new SimThread("simulation");
+    private SimThread.Snapshot shownSnapshot;
+    // engine state, owned by the simulation thread: only touch it from commands posted to sim
+    private EventSimulator eventSim;
+    private PartitionedSimulator partitions;   // full passes and truth tables, split by sub-circuit
+    private int[] ledNets = new int[0];
+    private TimingSimulator timingSim;   // null until timing mode first needs it
+    // logic analyzer capture; null while the analyzer window is closed. Written by the
+    // simulation thread, read by the analyzer view to draw.
+    private volatile WaveRecorder recorder;
+    // timing mode: switch changes travel through the chips' delays
+    private volatile boolean timingMode;
+    private WaveView waveView;
+    // work counters, shown by the Metrics overlay
+    private final SimMetrics metrics = new SimMetrics();
+    private Label metricsOverlay;
+
+    // the last save or load and its timings are shown after the title
+    private static final String TITLE = "Virtual IC Trainer – Dark PCB Edition";
+
     
     private final Deque<ExternalLED> undoStack = new ArrayDeque<>();
 
@@ -56,6 +106,13 @@ private PowerNode gndNode = null;
         board = new Pane();
         board.setPrefSize(1400, 820);
         board.setStyle("-fx-background-color: linear-gradient(to bottom right,#1e272e,#2f3640);");
+        // pins enter and leave the spatial index with their groups
+        board.getChildren().addListener((javafx.collections.ListChangeListener<Node>) c->{
+            while(c.next()){
+                for(Node n:c.getRemoved()) unindexAnchor(n);
+                for(Node n:c.getAddedSubList()) indexAnchor(n);
+            }
+        });
 
 // =====================================
 // ✅ TOOLBAR LAYOUT (CLEAN + FUNCTIONAL)
@@ -75,43 +132,24 @@ powerToggle.setOnAction(e -> togglePower());
 Button clockBtn = new Button("Clock Pulse");
 clockBtn.setOnAction(e -> triggerClockPulse());
 
-// --- Logic Gates Menu ---
-MenuButton logicMenu = new MenuButton("Logic Gates");
-logicMenu.getItems().addAll(
-    createICMenuItem("7400 NAND"),
-    createICMenuItem("7402 NOR"),
-    createICMenuItem("7408 AND"),
-    createICMenuItem("7432 OR"),
-    createICMenuItem("7404 NOT"),
-    createICMenuItem("7486 XOR"),
-    createICMenuItem("7487 XNOR")
-);
+Button runClockBtn = new Button("Run Clock…");
+runClockBtn.setOnAction(e -> showClockRun());
 
-// --- 3-Input Gates Menu ---
-MenuButton logic3Menu = new MenuButton("3-Input Gates");
-logic3Menu.getItems().addAll(
-    createICMenuItem("AND3"),
-    createICMenuItem("OR3"),
-    createICMenuItem("NAND3"),
-    createICMenuItem("NOR3"),
-    createICMenuItem("XOR3"),
-    createICMenuItem("XNOR3")
-);
+ToggleButton timingBtn = new ToggleButton("Timing Mode");
+timingBtn.setOnAction(e -> setTimingMode(timingBtn.isSelected()));
 
-// --- Combinational Circuits Menu ---
-MenuButton comboMenu = new MenuButton("Combinational Circuits");
-comboMenu.getItems().addAll(
-    createICMenuItem("2x1 MUX"),
-    createICMenuItem("4x1 MUX"),
-    createICMenuItem("8x1 MUX"),
-    new SeparatorMenuItem(),
-    createICMenuItem("1x2 DEMUX"),
-    createICMenuItem("1x4 DEMUX"),
-    createICMenuItem("1x8 DEMUX"),
-    new SeparatorMenuItem(),
-    createICMenuItem("4x2 ENCODER"),
-    createICMenuItem("2x4 DECODER")
-);
+Button analyzerBtn = new Button("Logic Analyzer");
+analyzerBtn.setOnAction(e -> showAnalyzer(stage));
+
+ToggleButton metricsBtn = new ToggleButton("Metrics");
+metricsBtn.setOnAction(e -> setMetricsOverlay(metricsBtn.isSelected()));
+
+// --- IC menus, one per descriptor menu in library order ---
+Map<String, MenuButton> icMenus = new LinkedHashMap<>();
+for (ChipSpec spec : ChipSpec.all()) {
+    if (spec.menu == null) continue;
+    icMenus.computeIfAbsent(spec.menu, MenuButton::new).getItems().add(createICMenuItem(spec));
+}
 
 // --- Utility Buttons ---
 Button truthBtn = new Button("Truth Table");
@@ -129,21 +167,31 @@ saveBtn.setOnAction(e -> saveCircuit(stage));
 Button loadBtn = new Button("Load");
 loadBtn.setOnAction(e -> loadCircuit(stage));
 
+// Canvas view for large boards; the node view stays the default
+ToggleButton canvasBtn = new ToggleButton("Canvas View");
+canvasBtn.setOnAction(e -> setCanvasView(canvasBtn.isSelected()));
+
 // --- Add All to Toolbar ---
 toolbar.getItems().addAll(
     powerToggle,
     clockBtn,
-    new Separator(),
-    logicMenu,
-    logic3Menu,
-    comboMenu,
+    runClockBtn,
+    timingBtn,
+    analyzerBtn,
+    new Separator()
+);
+toolbar.getItems().addAll(icMenus.values());
+toolbar.getItems().addAll(
     new Separator(),
     truthBtn,
     simulateBtn,
     new Separator(),
     clearBtn,
     saveBtn,
-    loadBtn
+    loadBtn,
+    new Separator(),
+    canvasBtn,
+    metricsBtn
 );
 
 // Make it wrap properly if window resizes
@@ -151,36 +199,6 @@ toolbar.setPrefHeight(40);
 toolbar.setStyle("-fx-font-size: 13px; -fx-background-color: linear-gradient(to right, #202020, #383838); -fx-text-fill: white;");
 
 
-// --- Group into Combinational Circuits dropdown ---
-MenuButton combinationalMenu = new MenuButton("Combinational Circuits");
-combinationalMenu.getItems().addAll(
-    new MenuItem("2x1 MUX"), new MenuItem("4x1 MUX"), new MenuItem("8x1 MUX"),
-    new SeparatorMenuItem(),
-    new MenuItem("1x2 DEMUX"), new MenuItem("1x4 DEMUX"), new MenuItem("1x8 DEMUX"),
-    new SeparatorMenuItem(),
-    new MenuItem("4x2 ENCODER"), new MenuItem("2x4 DECODER")
-);
-
-// --- Attach logic for each menu item (we’ll fill in later) ---
-for (MenuItem item : combinationalMenu.getItems()) {
-    if (item instanceof SeparatorMenuItem) continue;
-    item.setOnAction(e -> {
-        String name = item.getText();
-        ICBase ic = switch (name) {
-            case "2x1 MUX" -> new IC_MUX2x1(200, 550);
-            case "4x1 MUX" -> new IC_MUX4x1(400, 550);
-            case "8x1 MUX" -> new IC_MUX8x1(600, 550);
-            case "1x2 DEMUX" -> new IC_DEMUX1x2(200, 650);
-            case "1x4 DEMUX" -> new IC_DEMUX1x4(400, 650);
-            case "1x8 DEMUX" -> new IC_DEMUX1x8(600, 650);
-            case "4x2 ENCODER" -> new IC_ENC4x2(800, 550);
-            case "2x4 DECODER" -> new IC_DEC2x4(1000, 550);
-            default -> null;
-        };
-        if (ic != null) placeIC(ic);
-    });
-}
-
 board.getChildren().add(toolbar);
 
 
@@ -198,42 +216,73 @@ board.getChildren().add(toolbar);
             board.getChildren().add(l.group);
         }
 
+        sim.setErrorHandler(ex->Platform.runLater(()->
+            new Alert(Alert.AlertType.ERROR,"Simulation error: "+ex).show()));
+        sim.start();
+
+        indicatorPulse=new AnimationTimer(){
+            long wiresAtLastPulse;
+            @Override public void handle(long now){
+                long t0=System.nanoTime();
+                SimEvents.BoardRedraw ev=new SimEvents.BoardRedraw();
+                ev.begin();
+                applySnapshot();
+                int leds=dirtyLEDs.size(), switches=dirtySwitches.size();
+                flushIndicators();
+                boolean canvas=canvasView!=null&&canvasView.active&&canvasView.dirty;
+                if(canvasView!=null) canvasView.renderIfDirty();
+                if(waveView!=null) waveView.renderIfDirty();
+                metrics.pulse(now,System.nanoTime()-t0);
+                long wires=metrics.wiresRedrawn()-wiresAtLastPulse;
+                wiresAtLastPulse+=wires;
+                // idle pulses are not worth a record
+                if((leds|switches)!=0||canvas||wires!=0){
+                    if(ev.shouldCommit()){ev.leds=leds;ev.switches=switches;ev.canvas=canvas;ev.wires=wires;ev.commit();}
+                }
+                if(metricsOverlay!=null) updateMetricsOverlay(now);
+            }
+        };
+        indicatorPulse.start();
+
         Scene scene=new Scene(board);
         stage.setResizable(false);
 scene.setFill(Color.web("#1e272e"));
 stage.getIcons().add(new javafx.scene.image.Image("https://cdn-icons-png.flaticon.com/512/1483/1483336.png"));
 
         scene.setOnKeyPressed(k->{
-            if(k.getCode()==KeyCode.DELETE&&selectedWire!=null){
+            if(k.getCode()==KeyCode.DELETE&&canvasView!=null&&!canvasView.selection.isEmpty()){
+                for(Wire w:canvasView.selection){w.remove();wires.remove(w);}
+                canvasView.selection.clear();selectedWire=null;evaluateAll();
+            }
+            else if(k.getCode()==KeyCode.DELETE&&selectedWire!=null){
                 selectedWire.remove();wires.remove(selectedWire);selectedWire=null;evaluateAll();
             }
         });
         stage.setScene(scene);
-        stage.setTitle("Virtual IC Trainer – Dark PCB Edition");
+        stage.setTitle(TITLE);
         stage.show();
     }
 
+    @Override
+    public void stop() {
+        sim.shutdown();
+    }
+
     private Wire selectedWire;
     // ---------- PIN & WIRE SYSTEM ----------
     private enum PinType { INPUT, OUTPUT, POWER, GROUND }
 
     private class Pin {
-        ICBase owner; int number=-1; PinType type; boolean value=false;
+        ICBase owner; int number=-1; int id=-1; PinType type; boolean value=false;
+        ExternalLED led; // set on LED input pins so net changes can mark the LED dirty
+        Node anchor;     // the draggable group carrying this pin; keys wiresByAnchor
+        double bx, by; boolean indexed; // cached board-space centre while in pinGrid
         Circle visual; List<Wire> connections=new ArrayList<>();
         Pin(ICBase owner,PinType type){this.owner=owner;this.type=type;}
         void setValue(boolean v){
             if(this.value==v)return;
             this.value=v;
-            if(type==PinType.OUTPUT||type==PinType.POWER||type==PinType.GROUND){
-                for(Wire w:new ArrayList<>(connections)){
-                    Pin other=w.other(this);
-                    if(other.type==PinType.INPUT){
-                        other.setValue(v);
-                        if(other.owner!=null)other.owner.updateLogic();
-                    }
-                }
-            }
-            Platform.runLater(()->externalLEDs.forEach(ExternalLED::refresh));
+            if(type==PinType.OUTPUT&&owner==null)driveSource(this);
         }
         void setHighlighted(boolean on){
             if(visual!=null){
@@ -245,17 +294,23 @@ stage.getIcons().add(new javafx.scene.image.Image("https://cdn-icons-png.flatico
 
     private class Wire {
         Pin a,b; Path path; Color color; boolean selected=false;
-        Wire(Pin from,Pin to){
+        // geometry is edited in place on redraw; the path's element list never changes
+        final MoveTo start=new MoveTo(); final CubicCurveTo curve=new CubicCurveTo();
+        Wire(Pin from,Pin to){ this(from,to,true); }
+        // bulk loads pass addToBoard=false and add every path in one call
+        Wire(Pin from,Pin to,boolean addToBoard){
             this.a=from;this.b=to;
             a.connections.add(this); b.connections.add(this);
+            attach(a,this); attach(b,this);
+            indexWire(this);
             color=palette[(paletteIndex++)%palette.length];
-            path=new Path();
-            path.setStroke(color); path.setStrokeWidth(4);
+            path=new Path(start,curve);
+            path.setStroke(color); path.setStrokeWidth(3.5);
             path.setStrokeLineCap(StrokeLineCap.ROUND);
             path.setFill(Color.TRANSPARENT);
-            path.setEffect(new DropShadow(6,Color.color(0,0,0,0.35)));
+            path.setEffect(wireGlow(color));
             redraw();
-            board.getChildren().add(0,path);
+            if(addToBoard) board.getChildren().add(0,path);
 
            path.setOnMouseClicked(e -> {
     if (e.getButton() == MouseButton.PRIMARY) {
@@ -279,32 +334,18 @@ stage.getIcons().add(new javafx.scene.image.Image("https://cdn-icons-png.flatico
         cm.show(board, e.getScreenX(), e.getScreenY());
     }
 });
-
-            // propagate initial value
-            if(a.type==PinType.POWER)b.setValue(true);
-            else if(a.type==PinType.GROUND)b.setValue(false);
-            else if(a.type==PinType.OUTPUT)b.setValue(a.value);
         }
 void redraw() {
-    path.getElements().clear();
-    Point2D pa = pinSceneCenter(a), pb = pinSceneCenter(b);
-    Point2D pA = board.sceneToLocal(pa), pB = board.sceneToLocal(pb);
+    metrics.wiresRedrawn(1);
+    Point2D pA = pinBoardCenter(a), pB = pinBoardCenter(b);
 
     double controlOffset = Math.abs(pB.getX() - pA.getX()) * 0.5;
 
     // Smooth cubic Bezier curve between pins
-    path.getElements().add(new MoveTo(pA.getX(), pA.getY()));
-    path.getElements().add(new javafx.scene.shape.CubicCurveTo(
-        pA.getX() + controlOffset, pA.getY(),
-        pB.getX() - controlOffset, pB.getY(),
-        pB.getX(), pB.getY()
-    ));
-
-    path.setStrokeWidth(selected ? 5 : 3.5);
-    path.setStroke(color);
-    path.setStrokeLineCap(StrokeLineCap.ROUND);
-    path.setFill(Color.TRANSPARENT);
-    path.setEffect(new DropShadow(8, color));
+    start.setX(pA.getX()); start.setY(pA.getY());
+    curve.setControlX1(pA.getX() + controlOffset); curve.setControlY1(pA.getY());
+    curve.setControlX2(pB.getX() - controlOffset); curve.setControlY2(pB.getY());
+    curve.setX(pB.getX()); curve.setY(pB.getY());
 }
 
 void setSelected(boolean s) {
@@ -315,18 +356,209 @@ void setSelected(boolean s) {
 }
 
         void remove(){
-            a.connections.remove(this); b.connections.remove(this);
+            unlink();
             board.getChildren().remove(path);
+            markCanvasDirty();
+            markNetlistDirty();
             resetDisconnectedLEDs();
         }
+        // drops the wire from its pins and indexes, leaving the path on the board
+        void unlink(){
+            a.connections.remove(this); b.connections.remove(this);
+            detach(a,this); detach(b,this);
+            wireGrid.remove(this);
+        }
         Pin other(Pin p){return p==a?b:a;}
     }
 
+    // ---------- WIRE INDEX ----------
+    // Wires attached to each draggable group, so moving a component re-routes only its own wires.
+    private final Map<Node,List<Wire>> wiresByAnchor=new HashMap<>();
+    // one glow per palette colour, shared by every wire of that colour
+    private final Map<Color,DropShadow> wireGlows=new HashMap<>();
+
+    private void attach(Pin p,Wire w){
+        if(p.anchor!=null) wiresByAnchor.computeIfAbsent(p.anchor,k->new ArrayList<>()).add(w);
+    }
+
+    private void detach(Pin p,Wire w){
+        List<Wire> l=p.anchor==null?null:wiresByAnchor.get(p.anchor);
+        if(l==null) return;
+        l.remove(w);
+        if(l.isEmpty()) wiresByAnchor.remove(p.anchor);
+    }
+
+    private List<Wire> wiresAt(Node anchor){
+        return wiresByAnchor.getOrDefault(anchor,Collections.emptyList());
+    }
+
+    private void redrawWiresAt(Node anchor){
+        if(canvasView!=null&&canvasView.active){canvasView.dirty=true;return;}
+        for(Wire w:wiresAt(anchor)) w.redraw();
+    }
+
+    // ---------- SPATIAL INDEX ----------
+    // Pins are points and wires are the bounding boxes of their control points in two uniform
+    // grids. Both follow their groups through layout listeners, so drags, placement and loads
+    // keep them current without rescans; a pick only inspects the few buckets around a point.
+    private final SpatialGrid<Pin> pinGrid=new SpatialGrid<>(32);
+    private final SpatialGrid<Wire> wireGrid=new SpatialGrid<>(64);
+    private final Map<Node,List<Pin>> pinsByAnchor=new HashMap<>();
+    private final Set<Node> indexedAnchors=new HashSet<>();
+
+    /** Records the group that carries {@code p}; the pin is indexed while the group is on the board. */
+    private void anchorPin(Pin p,Node g){
+        p.anchor=g;
+        List<Pin> l=pinsByAnchor.get(g);
+        if(l==null){
+            pinsByAnchor.put(g,l=new ArrayList<>());
+            g.layoutXProperty().addListener(o->relocate(g));
+            g.layoutYProperty().addListener(o->relocate(g));
+        }
+        l.add(p);
+    }
+
+    private void indexAnchor(Node g){
+        if(!pinsByAnchor.containsKey(g)||!indexedAnchors.add(g)) return;
+        relocate(g);
+    }
+
+    private void unindexAnchor(Node g){
+        if(!indexedAnchors.remove(g)) return;
+        for(Pin p:pinsByAnchor.get(g)){ pinGrid.remove(p); p.indexed=false; }
+    }
+
+    private void relocate(Node g){
+        if(!indexedAnchors.contains(g)) return;
+        double ox=g.getLayoutX()+g.getTranslateX(), oy=g.getLayoutY()+g.getTranslateY();
+        for(Pin p:pinsByAnchor.get(g)){
+            p.bx=ox+p.visual.getLayoutX()+p.visual.getCenterX();
+            p.by=oy+p.visual.getLayoutY()+p.visual.getCenterY();
+            p.indexed=true;
+            pinGrid.put(p,p.bx,p.by,p.bx,p.by);
+        }
+        for(Wire w:wiresAt(g)) indexWire(w);
+    }
+
+    private void indexWire(Wire w){
+        Point2D a=pinBoardCenter(w.a), b=pinBoardCenter(w.b);
+        double off=Math.abs(b.getX()-a.getX())*0.5;
+        wireGrid.put(w,Math.min(a.getX(),b.getX())-off,Math.min(a.getY(),b.getY()),
+                       Math.max(a.getX(),b.getX())+off,Math.max(a.getY(),b.getY()));
+    }
+
+    /** Nearest connectable pin within {@code r} of a board point, or null. */
+    private Pin pinAt(double x,double y,double r){
+        Pin best=null; double bestD=r;
+        for(Pin p:pinGrid.query(x-r,y-r,x+r,y+r)){
+            if(p.type==PinType.GROUND||p.type==PinType.POWER) continue;
+            double d=Math.hypot(p.bx-x,p.by-y);
+            if(d<=bestD){best=p;bestD=d;}
+        }
+        return best;
+    }
+
+    /** Wire whose curve passes within {@code r} of a board point, or null. */
+    private Wire wireAt(double x,double y,double r){
+        Wire best=null; double bestD=r;
+        for(Wire w:wireGrid.query(x-r,y-r,x+r,y+r)){
+            double d=curveDistance(w,x,y);
+            if(d<=bestD){best=w;bestD=d;}
+        }
+        return best;
+    }
+
+    /** Wires with both ends inside the rectangle. */
+    private List<Wire> wiresIn(double x0,double y0,double x1,double y1){
+        List<Wire> out=new ArrayList<>();
+        for(Wire w:wireGrid.query(x0,y0,x1,y1)){
+            Point2D a=pinBoardCenter(w.a), b=pinBoardCenter(w.b);
+            if(a.getX()>=x0&&a.getX()<=x1&&a.getY()>=y0&&a.getY()<=y1
+             &&b.getX()>=x0&&b.getX()<=x1&&b.getY()>=y0&&b.getY()<=y1) out.add(w);
+        }
+        return out;
+    }
+
+    // distance to the wire's Bezier, flattened into 16 segments
+    private double curveDistance(Wire w,double x,double y){
+        Point2D a=pinBoardCenter(w.a), b=pinBoardCenter(w.b);
+        double off=Math.abs(b.getX()-a.getX())*0.5;
+        double c1x=a.getX()+off, c2x=b.getX()-off;
+        double px=a.getX(), py=a.getY(), best=Double.MAX_VALUE;
+        for(int i=1;i<=16;i++){
+            double t=i/16.0, u=1-t;
+            double qx=u*u*u*a.getX()+3*u*u*t*c1x+3*u*t*t*c2x+t*t*t*b.getX();
+            double qy=u*u*u*a.getY()+3*u*u*t*a.getY()+3*u*t*t*b.getY()+t*t*t*b.getY();
+            best=Math.min(best,segmentDistance(x,y,px,py,qx,qy));
+            px=qx; py=qy;
+        }
+        return best;
+    }
+
+    private static double segmentDistance(double x,double y,double ax,double ay,double bx,double by){
+        double dx=bx-ax, dy=by-ay, len=dx*dx+dy*dy;
+        double t=len==0?0:Math.max(0,Math.min(1,((x-ax)*dx+(y-ay)*dy)/len));
+        return Math.hypot(x-(ax+t*dx),y-(ay+t*dy));
+    }
+
+    /** Uniform bucket grid over board space; an item is listed in every cell its box touches. */
+    private static final class SpatialGrid<T> {
+        private final double cell;
+        private final Map<Long,List<T>> buckets=new HashMap<>();
+        private final Map<T,int[]> spans=new IdentityHashMap<>(); // x0,y0,x1,y1 in cells
+
+        SpatialGrid(double cell){ this.cell=cell; }
+
+        void put(T item,double x0,double y0,double x1,double y1){
+            int[] s={(int)Math.floor(x0/cell),(int)Math.floor(y0/cell),(int)Math.floor(x1/cell),(int)Math.floor(y1/cell)};
+            int[] old=spans.get(item);
+            if(old!=null){
+                if(Arrays.equals(old,s)) return;
+                remove(item);
+            }
+            spans.put(item,s);
+            for(int cx=s[0];cx<=s[2];cx++)
+                for(int cy=s[1];cy<=s[3];cy++) buckets.computeIfAbsent(key(cx,cy),k->new ArrayList<>(4)).add(item);
+        }
+
+        void remove(T item){
+            int[] s=spans.remove(item);
+            if(s==null) return;
+            for(int cx=s[0];cx<=s[2];cx++)
+                for(int cy=s[1];cy<=s[3];cy++){
+                    List<T> b=buckets.get(key(cx,cy));
+                    if(b==null) continue;
+                    b.remove(item);
+                    if(b.isEmpty()) buckets.remove(key(cx,cy));
+                }
+        }
+
+        /** Items whose box may intersect the rectangle; each listed once. */
+        List<T> query(double x0,double y0,double x1,double y1){
+            Set<T> seen=Collections.newSetFromMap(new IdentityHashMap<>());
+            List<T> out=new ArrayList<>();
+            int cx0=(int)Math.floor(x0/cell), cy0=(int)Math.floor(y0/cell);
+            int cx1=(int)Math.floor(x1/cell), cy1=(int)Math.floor(y1/cell);
+            for(int cx=cx0;cx<=cx1;cx++)
+                for(int cy=cy0;cy<=cy1;cy++){
+                    List<T> b=buckets.get(key(cx,cy));
+                    if(b!=null) for(T t:b) if(seen.add(t)) out.add(t);
+                }
+            return out;
+        }
+
+        private static long key(int cx,int cy){ return ((long)cx<<32)|(cy&0xffffffffL); }
+    }
+
+    private DropShadow wireGlow(Color c){
+        return wireGlows.computeIfAbsent(c,k->new DropShadow(8,k));
+    }
+
     // resets any LED that lost all connections
     private void resetDisconnectedLEDs(){
         for(ExternalLED led:externalLEDs){
             if(led.pin.connections.isEmpty()){
-                led.pin.value=false; led.refresh();
+                if(led.pin.value){led.pin.value=false; markDirty(led);}
             }
         }
     }
@@ -346,9 +578,9 @@ private class PowerNode {
             node=new Circle(12,Color.DARKRED); node.setStroke(Color.BLACK);
             tb=new ToggleButton("0"); tb.setLayoutX(30); tb.setLayoutY(-10);
             tb.setOnAction(e->{boolean v=tb.isSelected(); tb.setText(v?"1":"0");
-                node.setFill(v?Color.LIMEGREEN:Color.DARKRED);
-                pin.setValue(v); evaluateAll();});
-            pin=new Pin(null,PinType.OUTPUT);
+                markDirty(this);
+                pin.setValue(v);});
+            pin=new Pin(null,PinType.OUTPUT); pin.visual=node; anchorPin(pin,group);
             node.setOnMouseClicked(ev->{if(ev.getButton()==MouseButton.PRIMARY)startConnection(pin);});
             Text lbl=new Text("IN"+id); lbl.setFill(Color.WHITE);
             lbl.setLayoutX(-6); lbl.setLayoutY(28);
@@ -358,22 +590,26 @@ private class PowerNode {
                 ContextMenu cm=new ContextMenu();
                 MenuItem reset=new MenuItem("Reset Switch");
                 reset.setOnAction(a->{tb.setSelected(false);tb.setText("0");
-                    node.setFill(Color.DARKRED);pin.setValue(false);evaluateAll();});
+                    markDirty(this);pin.setValue(false);});
                 cm.getItems().add(reset); cm.show(group,ev.getScreenX(),ev.getScreenY());
             });
         }
+        void refresh(){
+            node.setFill((powerToggle.isSelected()&&tb.isSelected())?Color.LIMEGREEN:Color.DARKRED);
+        }
     }
 
     private class ExternalLED{
-        Group group=new Group(); Rectangle display; Circle node; Pin pin;
+        Group group=new Group(); Rectangle display; Circle node; Pin pin; Text label;
+        String hazard; Tooltip hazardTip;
         ExternalLED(double x,double y,int id){
             display=new Rectangle(20,20,Color.DARKRED);
             display.setStroke(Color.BLACK); display.setArcWidth(5); display.setArcHeight(5);
             node=new Circle(10,Color.DARKGRAY); node.setStroke(Color.BLACK);
             node.setCenterX(-30); node.setCenterY(10);
-            pin=new Pin(null,PinType.INPUT);
+            pin=new Pin(null,PinType.INPUT); pin.led=this; pin.visual=node; anchorPin(pin,group);
             node.setOnMouseClicked(ev->{if(ev.getButton()==MouseButton.PRIMARY)startConnection(pin);});
-            Text lbl=new Text("OUT"+id); lbl.setFill(Color.WHITE);
+            Text lbl=label=new Text("OUT"+id); lbl.setFill(Color.WHITE);
             lbl.setLayoutX(26); lbl.setLayoutY(14);
             group.getChildren().addAll(display,node,lbl);
             group.setLayoutX(x); group.setLayoutY(y);
@@ -384,9 +620,8 @@ private class PowerNode {
                     undoStack.push(this);
                     board.getChildren().remove(group);
                     externalLEDs.remove(this);
-                    for(Wire w:new ArrayList<>(wires)){
-                        if(w.a==pin||w.b==pin){w.remove();wires.remove(w);}
-                    }
+                    markNetlistDirty();
+                    for(Wire w:new ArrayList<>(wiresAt(group))){w.remove();wires.remove(w);}
                     evaluateAll();
                 });
                 cm.getItems().add(remove); cm.show(group,ev.getScreenX(),ev.getScreenY());
@@ -394,6 +629,12 @@ private class PowerNode {
         }
         void refresh(){
             display.setFill((powerToggle.isSelected()&&pin.value)?Color.LIMEGREEN:Color.DARKRED);
+            display.setStroke(hazard!=null?Color.ORANGE:Color.BLACK);
+            display.setStrokeWidth(hazard!=null?3:1);
+            if(hazard!=null){
+                if(hazardTip==null){hazardTip=new Tooltip();Tooltip.install(display,hazardTip);}
+                hazardTip.setText(hazard);
+            }else if(hazardTip!=null){Tooltip.uninstall(display,hazardTip);hazardTip=null;}
         }
     }
 
@@ -402,6 +643,7 @@ private class PowerNode {
         ExternalLED led=undoStack.pop();
         externalLEDs.add(led);
         board.getChildren().add(led.group);
+        markNetlistDirty();
         evaluateAll();
     }
         // ---------- Toolbar Helpers ----------
@@ -441,6 +683,7 @@ private void stylePowerButton() {
 
     private void placeIC(ICBase ic) {
         ics.add(ic);
+        markNetlistDirty();
         board.getChildren().add(ic.group);
         makeDraggable(ic.group);
        for (ExternalLED led : externalLEDs) {
@@ -453,20 +696,26 @@ private void stylePowerButton() {
     }
 
     // ---------- IC BASE ----------
-private abstract class ICBase {
+private class ICBase {
+    final ChipSpec spec;
     Group group = new Group();
     Rectangle body;
     Text title;
-    Map<Integer, Pin> pins = new HashMap<>();
-    Map<Integer, Circle> pinNodes = new HashMap<>();
-
-    ICBase(String name, double x, double y) {
-        body = new Rectangle(160, 140, Color.web("#e0e0e0"));
+    // indexed by pin number; slot 0 stays empty
+    final Pin[] pins;
+    final Circle[] pinNodes;
+
+    ICBase(ChipSpec spec, double x, double y) {
+        this.spec = spec;
+        pins = new Pin[spec.pins + 1];
+        pinNodes = new Circle[spec.pins + 1];
+        int half = spec.pins / 2;
+        body = new Rectangle(160, 44 + (half - 1) * 16, Color.web("#e0e0e0"));
         body.setStroke(Color.web("#222"));
         body.setArcWidth(10);
         body.setArcHeight(10);
 
-        title = new Text(name);
+        title = new Text(spec.name);
         title.setFont(Font.font("Roboto", 13));
         title.setFill(Color.BLACK);
         title.setX(10);
@@ -477,8 +726,8 @@ private abstract class ICBase {
         group.setLayoutY(y);
 
         double leftX = -8, rightX = body.getWidth() + 8, top = 28, gap = 16;
-// LEFT SIDE PINS (1–7)
-for (int i = 1; i <= 7; i++) {
+// LEFT SIDE PINS (1–7, or 1–8 on a 16-pin chip)
+for (int i = 1; i <= half; i++) {
     double py = top + (i - 1) * gap;
     Circle c = new Circle(leftX, py, 6, Color.web("#222"));
     c.setStroke(Color.WHITE);
@@ -496,16 +745,17 @@ for (int i = 1; i <= 7; i++) {
     Pin p = new Pin(this, PinType.INPUT);
     p.number = i;
     p.visual = c;
-    pins.put(i, p);
-    pinNodes.put(i, c);
+    anchorPin(p, group);
+    pins[i] = p;
+    pinNodes[i] = c;
 
-    // --- GND (pin 7) special handling ---
-    if (i == 7) {
+    // --- Supply pin special handling ---
+    if (spec.role(i) == ChipSpec.Role.GND || spec.role(i) == ChipSpec.Role.VCC) {
         c.setFill(Color.DARKRED);
         c.setStroke(Color.GRAY);
         c.setOnMouseClicked(null);
 
-        Text gndLbl = new Text("GND");
+        Text gndLbl = new Text(spec.role(i) == ChipSpec.Role.GND ? "GND" : "VCC");
         gndLbl.setFont(Font.font("Consolas", 9));
         gndLbl.setFill(Color.WHITE);
         gndLbl.setLayoutX(leftX - 45); // more left to avoid overlap
@@ -519,9 +769,9 @@ for (int i = 1; i <= 7; i++) {
         if (ev.getButton() == MouseButton.PRIMARY) startConnection(p);
     });
 }
-// RIGHT SIDE PINS (8–14)
-for (int j = 14; j >= 8; j--) {
-    int idx = 14 - j + 1;
+// RIGHT SIDE PINS (8–14, or 9–16), counted back up from the bottom
+for (int j = spec.pins; j > half; j--) {
+    int idx = spec.pins - j + 1;
     double py = top + (idx - 1) * gap;
     Circle c = new Circle(rightX, py, 6, Color.web("#222"));
     c.setStroke(Color.WHITE);
@@ -538,16 +788,17 @@ for (int j = 14; j >= 8; j--) {
     Pin p = new Pin(this, PinType.INPUT);
     p.number = j;
     p.visual = c;
-    pins.put(j, p);
-    pinNodes.put(j, c);
+    anchorPin(p, group);
+    pins[j] = p;
+    pinNodes[j] = c;
 
-    // --- VCC (pin 14) special handling ---
-    if (j == 14) {
+    // --- Supply pin special handling ---
+    if (spec.role(j) == ChipSpec.Role.GND || spec.role(j) == ChipSpec.Role.VCC) {
         c.setFill(Color.DARKRED);
         c.setStroke(Color.GRAY);
         c.setOnMouseClicked(null);
 
-        Text vccLbl = new Text("VCC");
+        Text vccLbl = new Text(spec.role(j) == ChipSpec.Role.GND ? "GND" : "VCC");
         vccLbl.setFont(Font.font("Consolas", 9));
         vccLbl.setFill(Color.WHITE);
         vccLbl.setLayoutX(rightX + 18); // further right to avoid overlap
@@ -562,19 +813,29 @@ for (int j = 14; j >= 8; j--) {
     });
 }
 
+        // Pin roles come from the chip's descriptor; NC pins keep the default
+        for (int n = 1; n <= spec.pins; n++) {
+            switch (spec.role(n)) {
+                case IN -> setPinType(n, PinType.INPUT);
+                case OUT -> setPinType(n, PinType.OUTPUT);
+                case GND -> setPinType(n, PinType.GROUND);
+                case VCC -> setPinType(n, PinType.POWER);
+                default -> { }
+            }
+        }
+
         // Right-click → remove IC
         group.setOnContextMenuRequested(ev -> {
             ContextMenu cm = new ContextMenu();
             MenuItem remove = new MenuItem("Remove IC");
             remove.setOnAction(a -> {
-                for (Wire w : new ArrayList<>(wires)) {
-                    if (w.a.owner == this || w.b.owner == this) {
-                        w.remove();
-                        wires.remove(w);
-                    }
+                for (Wire w : new ArrayList<>(wiresAt(group))) {
+                    w.remove();
+                    wires.remove(w);
                 }
                 board.getChildren().remove(group);
                 ics.remove(this);
+                markNetlistDirty();
                 evaluateAll();
             });
             cm.getItems().add(remove);
@@ -584,10 +845,10 @@ for (int j = 14; j >= 8; j--) {
 
     // Set pin type and color
     void setPinType(int pinNumber, PinType type) {
-        Pin p = pins.get(pinNumber);
+        Pin p = pins[pinNumber];
         if (p == null) return;
         p.type = type;
-        Circle c = pinNodes.get(pinNumber);
+        Circle c = pinNodes[pinNumber];
         if (c != null) {
             switch (type) {
                 case INPUT -> c.setFill(Color.web("#444"));
@@ -597,483 +858,22 @@ for (int j = 14; j >= 8; j--) {
             }
         }
     }
-
-    abstract void updateLogic();
-
-    boolean isPowered() {
-        return powerToggle.isSelected(); // All ICs powered when Power ON
-    }
 }
 
 
-    // ---------- IC IMPLEMENTATIONS ----------
-    private class IC7400 extends ICBase {
-        IC7400(double x, double y) {
-            super("7400 NAND", x, y);
-            setPinType(7, PinType.GROUND); setPinType(14, PinType.POWER);
-            setPinType(1, PinType.INPUT); setPinType(2, PinType.INPUT); setPinType(3, PinType.OUTPUT);
-            setPinType(4, PinType.INPUT); setPinType(5, PinType.INPUT); setPinType(6, PinType.OUTPUT);
-            setPinType(9, PinType.INPUT); setPinType(10, PinType.INPUT); setPinType(8, PinType.OUTPUT);
-            setPinType(12, PinType.INPUT); setPinType(13, PinType.INPUT); setPinType(11, PinType.OUTPUT);
-        }
-        void updateLogic() {
-            if (!isPowered()) { for (int p : new int[]{3, 6, 8, 11}) pins.get(p).setValue(false); return; }
-            pins.get(3).setValue(!(pins.get(1).value && pins.get(2).value));
-            pins.get(6).setValue(!(pins.get(4).value && pins.get(5).value));
-            pins.get(8).setValue(!(pins.get(9).value && pins.get(10).value));
-            pins.get(11).setValue(!(pins.get(12).value && pins.get(13).value));
-        }
-    }
-
-    private class IC7402 extends ICBase {
-        IC7402(double x, double y) {
-            super("7402 NOR", x, y);
-            setPinType(7, PinType.GROUND); setPinType(14, PinType.POWER);
-            setPinType(1, PinType.OUTPUT); setPinType(2, PinType.INPUT); setPinType(3, PinType.INPUT);
-            setPinType(4, PinType.OUTPUT); setPinType(5, PinType.INPUT); setPinType(6, PinType.INPUT);
-            setPinType(8, PinType.INPUT); setPinType(9, PinType.INPUT); setPinType(10, PinType.OUTPUT);
-            setPinType(11, PinType.INPUT); setPinType(12, PinType.INPUT); setPinType(13, PinType.OUTPUT);
-        }
-        void updateLogic() {
-            if (!isPowered()) { for (int p : new int[]{1, 4, 10, 13}) pins.get(p).setValue(false); return; }
-            pins.get(1).setValue(!(pins.get(2).value || pins.get(3).value));
-            pins.get(4).setValue(!(pins.get(5).value || pins.get(6).value));
-            pins.get(10).setValue(!(pins.get(8).value || pins.get(9).value));
-            pins.get(13).setValue(!(pins.get(11).value || pins.get(12).value));
-        }
-    }
-
-    private class IC7408 extends ICBase {
-        IC7408(double x, double y) {
-            super("7408 AND", x, y);
-            setPinType(7, PinType.GROUND); setPinType(14, PinType.POWER);
-            setPinType(1, PinType.INPUT); setPinType(2, PinType.INPUT); setPinType(3, PinType.OUTPUT);
-            setPinType(4, PinType.INPUT); setPinType(5, PinType.INPUT); setPinType(6, PinType.OUTPUT);
-            setPinType(9, PinType.INPUT); setPinType(10, PinType.INPUT); setPinType(8, PinType.OUTPUT);
-            setPinType(12, PinType.INPUT); setPinType(13, PinType.INPUT); setPinType(11, PinType.OUTPUT);
-        }
-        void updateLogic() {
-            if (!isPowered()) { for (int p : new int[]{3, 6, 8, 11}) pins.get(p).setValue(false); return; }
-            pins.get(3).setValue(pins.get(1).value && pins.get(2).value);
-            pins.get(6).setValue(pins.get(4).value && pins.get(5).value);
-            pins.get(8).setValue(pins.get(9).value && pins.get(10).value);
-            pins.get(11).setValue(pins.get(12).value && pins.get(13).value);
-        }
-    }
-
-    private class IC7432 extends ICBase {
-        IC7432(double x, double y) {
-            super("7432 OR", x, y);
-            setPinType(7, PinType.GROUND); setPinType(14, PinType.POWER);
-            setPinType(1, PinType.INPUT); setPinType(2, PinType.INPUT); setPinType(3, PinType.OUTPUT);
-            setPinType(4, PinType.INPUT); setPinType(5, PinType.INPUT); setPinType(6, PinType.OUTPUT);
-            setPinType(9, PinType.INPUT); setPinType(10, PinType.INPUT); setPinType(8, PinType.OUTPUT);
-            setPinType(12, PinType.INPUT); setPinType(13, PinType.INPUT); setPinType(11, PinType.OUTPUT);
-        }
-        void updateLogic() {
-            if (!isPowered()) { for (int p : new int[]{3, 6, 8, 11}) pins.get(p).setValue(false); return; }
-            pins.get(3).setValue(pins.get(1).value || pins.get(2).value);
-            pins.get(6).setValue(pins.get(4).value || pins.get(5).value);
-            pins.get(8).setValue(pins.get(9).value || pins.get(10).value);
-            pins.get(11).setValue(pins.get(12).value || pins.get(13).value);
-        }
-    }
-
-    private class IC7404 extends ICBase {
-        IC7404(double x, double y) {
-            super("7404 NOT", x, y);
-            setPinType(7, PinType.GROUND); setPinType(14, PinType.POWER);
-            int[][] map = {{1, 2}, {3, 4}, {5, 6}, {8, 9}, {10, 11}, {12, 13}};
-            for (int[] m : map) { setPinType(m[0], PinType.INPUT); setPinType(m[1], PinType.OUTPUT); }
-        }
-        void updateLogic() {
-            if (!isPowered()) { for (int[] p : new int[][]{{2}, {4}, {6}, {9}, {11}, {13}}) pins.get(p[0]).setValue(false); return; }
-            pins.get(2).setValue(!pins.get(1).value);
-            pins.get(4).setValue(!pins.get(3).value);
-            pins.get(6).setValue(!pins.get(5).value);
-            pins.get(9).setValue(!pins.get(8).value);
-            pins.get(11).setValue(!pins.get(10).value);
-            pins.get(13).setValue(!pins.get(12).value);
-        }
-    }
-
-    private class IC7486 extends ICBase {
-        IC7486(double x, double y) {
-            super("7486 XOR", x, y);
-            setPinType(7, PinType.GROUND); setPinType(14, PinType.POWER);
-            int[][] map = {{1, 2, 3}, {4, 5, 6}, {9, 10, 8}, {12, 13, 11}};
-            for (int[] m : map) { setPinType(m[0], PinType.INPUT); setPinType(m[1], PinType.INPUT); setPinType(m[2], PinType.OUTPUT); }
-        }
-        void updateLogic() {
-            if (!isPowered()) { for (int p : new int[]{3, 6, 8, 11}) pins.get(p).setValue(false); return; }
-            pins.get(3).setValue(pins.get(1).value ^ pins.get(2).value);
-            pins.get(6).setValue(pins.get(4).value ^ pins.get(5).value);
-            pins.get(8).setValue(pins.get(9).value ^ pins.get(10).value);
-            pins.get(11).setValue(pins.get(12).value ^ pins.get(13).value);
-        }
-    }
-
-    private class IC7487 extends ICBase {
-        IC7487(double x, double y) {
-            super("7487 XNOR", x, y);
-            setPinType(7, PinType.GROUND); setPinType(14, PinType.POWER);
-            int[][] map = {{1, 2, 3}, {4, 5, 6}, {9, 10, 8}, {12, 13, 11}};
-            for (int[] m : map) { setPinType(m[0], PinType.INPUT); setPinType(m[1], PinType.INPUT); setPinType(m[2], PinType.OUTPUT); }
-        }
-        void updateLogic() {
-            if (!isPowered()) { for (int p : new int[]{3, 6, 8, 11}) pins.get(p).setValue(false); return; }
-            pins.get(3).setValue(!(pins.get(1).value ^ pins.get(2).value));
-            pins.get(6).setValue(!(pins.get(4).value ^ pins.get(5).value));
-            pins.get(8).setValue(!(pins.get(9).value ^ pins.get(10).value));
-            pins.get(11).setValue(!(pins.get(12).value ^ pins.get(13).value));
-        }
-    }
-    // --- 3-Input AND IC ---
-private class IC_AND3 extends ICBase {
-    IC_AND3(double x, double y) {
-        super("3-Input AND", x, y);
-        setPinType(1, PinType.INPUT); // A
-        setPinType(2, PinType.INPUT); // B
-        setPinType(3, PinType.INPUT); // C
-        setPinType(4, PinType.OUTPUT); // Y
-        setPinType(14, PinType.POWER);
-        setPinType(7, PinType.GROUND);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(4).setValue(false); return; }
-        pins.get(4).setValue(pins.get(1).value && pins.get(2).value && pins.get(3).value);
-    }
-}
-// --- 3-Input OR IC ---
-private class IC_OR3 extends ICBase {
-    IC_OR3(double x, double y) {
-        super("3-Input OR", x, y);
-        setPinType(1, PinType.INPUT);
-        setPinType(2, PinType.INPUT);
-        setPinType(3, PinType.INPUT);
-        setPinType(4, PinType.OUTPUT);
-        setPinType(14, PinType.POWER);
-        setPinType(7, PinType.GROUND);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(4).setValue(false); return; }
-        pins.get(4).setValue(pins.get(1).value || pins.get(2).value || pins.get(3).value);
-    }
-}
-// --- 3-Input NAND IC ---
-private class IC_NAND3 extends ICBase {
-    IC_NAND3(double x, double y) {
-        super("3-Input NAND", x, y);
-        setPinType(1, PinType.INPUT);
-        setPinType(2, PinType.INPUT);
-        setPinType(3, PinType.INPUT);
-        setPinType(4, PinType.OUTPUT);
-        setPinType(14, PinType.POWER);
-        setPinType(7, PinType.GROUND);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(4).setValue(false); return; }
-        pins.get(4).setValue(!(pins.get(1).value && pins.get(2).value && pins.get(3).value));
-    }
-}
-// --- 3-Input NOR IC ---
-private class IC_NOR3 extends ICBase {
-    IC_NOR3(double x, double y) {
-        super("3-Input NOR", x, y);
-        setPinType(1, PinType.INPUT);
-        setPinType(2, PinType.INPUT);
-        setPinType(3, PinType.INPUT);
-        setPinType(4, PinType.OUTPUT);
-        setPinType(14, PinType.POWER);
-        setPinType(7, PinType.GROUND);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(4).setValue(false); return; }
-        pins.get(4).setValue(!(pins.get(1).value || pins.get(2).value || pins.get(3).value));
-    }
-}
-// --- 3-Input XOR IC ---
-private class IC_XOR3 extends ICBase {
-    IC_XOR3(double x, double y) {
-        super("3-Input XOR", x, y);
-        setPinType(1, PinType.INPUT);
-        setPinType(2, PinType.INPUT);
-        setPinType(3, PinType.INPUT);
-        setPinType(4, PinType.OUTPUT);
-        setPinType(14, PinType.POWER);
-        setPinType(7, PinType.GROUND);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(4).setValue(false); return; }
-        int sum = (pins.get(1).value ? 1 : 0) + (pins.get(2).value ? 1 : 0) + (pins.get(3).value ? 1 : 0);
-        pins.get(4).setValue(sum % 2 == 1); // output 1 if odd number of 1s
-    }
-}
-// --- 3-Input XNOR IC ---
-private class IC_XNOR3 extends ICBase {
-    IC_XNOR3(double x, double y) {
-        super("3-Input XNOR", x, y);
-        setPinType(1, PinType.INPUT);
-        setPinType(2, PinType.INPUT);
-        setPinType(3, PinType.INPUT);
-        setPinType(4, PinType.OUTPUT);
-        setPinType(14, PinType.POWER);
-        setPinType(7, PinType.GROUND);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(4).setValue(false); return; }
-        int sum = (pins.get(1).value ? 1 : 0) + (pins.get(2).value ? 1 : 0) + (pins.get(3).value ? 1 : 0);
-        pins.get(4).setValue(sum % 2 == 0); // even number of 1s → output 1
-    }
-}
-
-// ===========================================================
-// ✅ COMBINATIONAL CIRCUITS (Final Corrected Implementations)
-// ===========================================================
-
-// --- 2x1 MUX ---
-private class IC_MUX2x1 extends ICBase {
-    IC_MUX2x1(double x, double y) {
-        super("2x1 MUX", x, y);
-        setPinType(1, PinType.INPUT);  // I0
-        setPinType(2, PinType.INPUT);  // I1
-        setPinType(3, PinType.INPUT);  // S (Select)
-        setPinType(4, PinType.OUTPUT); // Y
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(4).setValue(false); return; }
-        boolean s = pins.get(3).value;
-        pins.get(4).setValue(s ? pins.get(2).value : pins.get(1).value);
-    }
-}
-
-// --- 4x1 MUX ---
-private class IC_MUX4x1 extends ICBase {
-    IC_MUX4x1(double x, double y) {
-        super("4x1 MUX", x, y);
-        setPinType(1, PinType.INPUT); // I0
-        setPinType(2, PinType.INPUT); // I1
-        setPinType(3, PinType.INPUT); // I2
-        setPinType(4, PinType.INPUT); // I3
-        setPinType(5, PinType.INPUT); // S0
-        setPinType(6, PinType.INPUT); // S1
-        setPinType(11, PinType.OUTPUT); // Y
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(11).setValue(false); return; }
-        int sel = (pins.get(6).value ? 2 : 0) + (pins.get(5).value ? 1 : 0);
-        boolean[] I = { pins.get(1).value, pins.get(2).value, pins.get(3).value, pins.get(4).value };
-        pins.get(11).setValue(I[sel]);
-    }
-}
-
-// --- 8x1 MUX ---
-private class IC_MUX8x1 extends ICBase {
-    IC_MUX8x1(double x, double y) {
-        super("8x1 MUX", x, y);
-        for (int i = 1; i <= 8; i++) setPinType(i, PinType.INPUT); // I0–I7
-        setPinType(9, PinType.INPUT);  // S0
-        setPinType(10, PinType.INPUT); // S1
-        setPinType(11, PinType.INPUT); // S2
-        setPinType(12, PinType.OUTPUT); // Y
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(12).setValue(false); return; }
-        int sel = (pins.get(11).value ? 4 : 0) + (pins.get(10).value ? 2 : 0) + (pins.get(9).value ? 1 : 0);
-        pins.get(12).setValue(pins.get(sel + 1).value);
-    }
-}
-
-// --- 1x2 DEMUX ---
-private class IC_DEMUX1x2 extends ICBase {
-    IC_DEMUX1x2(double x, double y) {
-        super("1x2 DEMUX", x, y);
-        setPinType(1, PinType.INPUT);  // D (Data)
-        setPinType(2, PinType.INPUT);  // S (Select)
-        setPinType(3, PinType.OUTPUT); // Y0
-        setPinType(4, PinType.OUTPUT); // Y1
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) {
-            pins.get(3).setValue(false);
-            pins.get(4).setValue(false);
-            return;
-        }
-        boolean D = pins.get(1).value;
-        boolean S = pins.get(2).value;
-        pins.get(3).setValue(D && !S);
-        pins.get(4).setValue(D && S);
-    }
-}
-
-// --- 1x4 DEMUX ---
-private class IC_DEMUX1x4 extends ICBase {
-    IC_DEMUX1x4(double x, double y) {
-        super("1x4 DEMUX", x, y);
-        setPinType(1, PinType.INPUT);  // D (Data)
-        setPinType(2, PinType.INPUT);  // S0
-        setPinType(3, PinType.INPUT);  // S1
-        setPinType(4, PinType.OUTPUT); // Y0
-        setPinType(5, PinType.OUTPUT); // Y1
-        setPinType(6, PinType.OUTPUT); // Y2
-        setPinType(8, PinType.OUTPUT); // Y3
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { for (int p : new int[]{4, 5, 6, 8}) pins.get(p).setValue(false); return; }
-        boolean D = pins.get(1).value;
-        int sel = (pins.get(3).value ? 2 : 0) + (pins.get(2).value ? 1 : 0);
-        pins.get(4).setValue(D && sel == 0);
-        pins.get(5).setValue(D && sel == 1);
-        pins.get(6).setValue(D && sel == 2);
-        pins.get(8).setValue(D && sel == 3);
-    }
-}
-
-// --- 1x8 DEMUX ---
-private class IC_DEMUX1x8 extends ICBase {
-    IC_DEMUX1x8(double x, double y) {
-        super("1x8 DEMUX", x, y);
-        setPinType(1, PinType.INPUT);  // D
-        setPinType(2, PinType.INPUT);  // S0
-        setPinType(3, PinType.INPUT);  // S1
-        setPinType(4, PinType.INPUT);  // S2
-        for (int i = 5; i <= 12; i++) setPinType(i, PinType.OUTPUT); // Y0–Y7
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { for (int i = 5; i <= 12; i++) pins.get(i).setValue(false); return; }
-        boolean D = pins.get(1).value;
-        int sel = (pins.get(4).value ? 4 : 0) + (pins.get(3).value ? 2 : 0) + (pins.get(2).value ? 1 : 0);
-        for (int i = 0; i < 8; i++) pins.get(i + 5).setValue(D && i == sel);
-    }
-}
-
-// --- 4x2 ENCODER ---
-private class IC_ENC4x2 extends ICBase {
-    IC_ENC4x2(double x, double y) {
-        super("4x2 ENCODER", x, y);
-        for (int i = 1; i <= 4; i++) setPinType(i, PinType.INPUT); // D0–D3
-        setPinType(5, PinType.OUTPUT); // Y0
-        setPinType(6, PinType.OUTPUT); // Y1
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { pins.get(5).setValue(false); pins.get(6).setValue(false); return; }
-
-        int code = -1;
-        for (int i = 0; i < 4; i++) if (pins.get(i + 1).value) code = i;
-        if (code == -1) { pins.get(5).setValue(false); pins.get(6).setValue(false); return; }
-
-        pins.get(5).setValue((code & 1) != 0); // Y0
-        pins.get(6).setValue((code & 2) != 0); // Y1
-    }
-}
-
-// --- 2x4 DECODER (✅ WITH ENABLE) ---
-private class IC_DEC2x4 extends ICBase {
-    IC_DEC2x4(double x, double y) {
-        super("2x4 DECODER", x, y);
-        setPinType(1, PinType.INPUT);  // A
-        setPinType(2, PinType.INPUT);  // B
-        setPinType(3, PinType.INPUT);  // EN
-        setPinType(4, PinType.OUTPUT); // Y0
-        setPinType(5, PinType.OUTPUT); // Y1
-        setPinType(6, PinType.OUTPUT); // Y2
-        setPinType(8, PinType.OUTPUT); // Y3
-        setPinType(7, PinType.GROUND);
-        setPinType(14, PinType.POWER);
-    }
-
-    @Override
-    void updateLogic() {
-        if (!isPowered()) { for (int p : new int[]{4, 5, 6, 8}) pins.get(p).setValue(false); return; }
-        boolean en = pins.get(3).value;
-        if (!en) { for (int p : new int[]{4, 5, 6, 8}) pins.get(p).setValue(false); return; }
-
-        int sel = (pins.get(2).value ? 2 : 0) + (pins.get(1).value ? 1 : 0);
-        pins.get(4).setValue(sel == 0);
-        pins.get(5).setValue(sel == 1);
-        pins.get(6).setValue(sel == 2);
-        pins.get(8).setValue(sel == 3);
-    }
-}
 // =====================================
 // 🔧 Helper for Toolbar Dropdown IC Menus
 // =====================================
 
-private MenuItem createICMenuItem(String name) {
-    MenuItem item = new MenuItem(name);
-    item.setOnAction(e -> addICToBoard(name));
+private MenuItem createICMenuItem(ChipSpec spec) {
+    MenuItem item = new MenuItem(spec.menuItem);
+    item.setOnAction(e -> addICToBoard(spec.name));
     return item;
 }
 
 private void addICToBoard(String name) {
-    switch (name) {
-        // --- Logic Gates ---
-        case "7400 NAND" -> placeIC(new IC7400(200, 120));
-        case "7402 NOR" -> placeIC(new IC7402(420, 120));
-        case "7408 AND" -> placeIC(new IC7408(200, 300));
-        case "7432 OR" -> placeIC(new IC7432(420, 300));
-        case "7404 NOT" -> placeIC(new IC7404(640, 120));
-        case "7486 XOR" -> placeIC(new IC7486(640, 300));
-        case "7487 XNOR" -> placeIC(new IC7487(860, 200));
-
-        // --- 3-Input Gates ---
-        case "AND3" -> placeIC(new IC_AND3(200, 500));
-        case "OR3" -> placeIC(new IC_OR3(400, 500));
-        case "NAND3" -> placeIC(new IC_NAND3(600, 500));
-        case "NOR3" -> placeIC(new IC_NOR3(800, 500));
-        case "XOR3" -> placeIC(new IC_XOR3(1000, 500));
-        case "XNOR3" -> placeIC(new IC_XNOR3(1200, 500));
-
-        // --- Combinational Circuits ---
-        case "2x1 MUX" -> placeIC(new IC_MUX2x1(200, 600));
-        case "4x1 MUX" -> placeIC(new IC_MUX4x1(400, 600));
-        case "8x1 MUX" -> placeIC(new IC_MUX8x1(600, 600));
-        case "1x2 DEMUX" -> placeIC(new IC_DEMUX1x2(800, 600));
-        case "1x4 DEMUX" -> placeIC(new IC_DEMUX1x4(1000, 600));
-        case "1x8 DEMUX" -> placeIC(new IC_DEMUX1x8(1200, 600));
-        case "4x2 ENCODER" -> placeIC(new IC_ENC4x2(800, 700));
-        case "2x4 DECODER" -> placeIC(new IC_DEC2x4(1000, 700));
-    }
+    ChipSpec spec = ChipSpec.forName(name);
+    if (spec != null) placeIC(new ICBase(spec, spec.x, spec.y));
 }
 
 
@@ -1090,6 +890,8 @@ private class ClockPulse {
         node = new Circle(15, Color.DARKRED);
         node.setStroke(Color.BLACK);
         outputPin = new Pin(null, PinType.OUTPUT);
+        outputPin.visual = node;
+        anchorPin(outputPin, group);
         node.setOnMouseClicked(ev -> {
             if (ev.getButton() == MouseButton.PRIMARY) startConnection(outputPin);
         });
@@ -1120,7 +922,6 @@ private class ClockPulse {
             if (pulse != null) pulse.stop();
             node.setFill(Color.DARKRED);
             outputPin.setValue(false);
-            evaluateAll();
         }
     }
 
@@ -1128,7 +929,6 @@ private class ClockPulse {
         state = !state;
         node.setFill(state ? Color.LIMEGREEN : Color.DARKRED);
         outputPin.setValue(state);
-        evaluateAll();
     }
 }
 
@@ -1263,8 +1063,6 @@ private void createParallelWires(List<Pin> fromPins, List<Pin> toPins) {
         createWire(a.type == PinType.OUTPUT ? a : b, a.type == PinType.INPUT ? a : b);
     }
 
-    // Redraw and evaluate
-    for (Wire w : wires) w.redraw();
     evaluateAll();
 }
 
@@ -1272,7 +1070,7 @@ private void createParallelWires(List<Pin> fromPins, List<Pin> toPins) {
     private void createWire(Pin from, Pin to) {
         Wire w = new Wire(from, to);
         wires.add(w);
-        for (Wire ww : wires) ww.redraw();
+        markNetlistDirty();
         evaluateAll();
     }
 
@@ -1290,10 +1088,10 @@ private void showTruthTable() {
 
     if (ic != null) {
         List<String> autoHeaders = new ArrayList<>();
-        List<String[]> autoRows = generateTruthTableForIC(ic.title.getText(), autoHeaders);
+        List<String[]> autoRows = generateTruthTableForIC(ic.spec, autoHeaders);
 
         if (autoRows != null) {
-            populateTruthTable(autoHeaders, autoRows);
+            populateTruthTable("Auto Truth Table", autoHeaders, autoRows, ic.spec.tableExpressions());
             return;
         }
     }
@@ -1314,15 +1112,33 @@ private void showTruthTable() {
     int nInputs = activeInputs.size();
     int combos = 1 << nInputs;
 
+    // Whole table up front: bit-parallel over the netlist, 64 input vectors per gate evaluation
+    Netlist nl = netlist();
+    boolean powered = powerToggle.isSelected();
+    int[] inNets = new int[nInputs];
+    for (int i = 0; i < nInputs; i++) inNets[i] = nl.netOf(activeInputs.get(i).pin.id);
+    int[] outNets = new int[activeOutputs.size()];
+    for (int j = 0; j < outNets.length; j++) outNets[j] = nl.netOf(activeOutputs.get(j).pin.id);
+    if (nInputs > SYMBOLIC_INPUTS) {
+        showSymbolicTruthTable(nl, powered, inNets, outNets, activeInputs, activeOutputs);
+        return;
+    }
+    TruthTableEngine.Result result = sim.call(() -> {
+        nl.setPowered(powered);
+        return partitions.truthTable(inNets, outNets);
+    }).join();
+
     TableView<Map<String, String>> table = new TableView<>();
     table.setPrefHeight(400);
     table.setPrefWidth(600);
 
     // Columns for inputs
+    List<String> inLabels = new ArrayList<>();
     for (ExternalSwitch sw : activeInputs) {
         String label = ((Text) sw.group.getChildren().stream()
             .filter(n -> n instanceof Text)
             .findFirst().orElse(new Text("IN"))).getText();
+        inLabels.add(label);
 
         TableColumn<Map<String, String>, String> col = new TableColumn<>(label);
         col.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty(data.getValue().get(label)));
@@ -1330,10 +1146,12 @@ private void showTruthTable() {
     }
 
     // Columns for outputs
+    List<String> outLabels = new ArrayList<>();
     for (ExternalLED led : activeOutputs) {
         String label = ((Text) led.group.getChildren().stream()
             .filter(n -> n instanceof Text)
             .findFirst().orElse(new Text("OUT"))).getText();
+        outLabels.add(label);
 
         TableColumn<Map<String, String>, String> col = new TableColumn<>(label);
         col.setCellValueFactory(data -> new javafx.beans.property.SimpleStringProperty(data.getValue().get(label)));
@@ -1347,16 +1165,16 @@ private void showTruthTable() {
     );
     table.getColumns().add(statusCol);
 
-    // Prepare combinations
+    // Fill every row from the precomputed columns
     List<Map<String, String>> rows = new ArrayList<>();
     for (int mask = 0; mask < combos; mask++) {
         Map<String, String> row = new LinkedHashMap<>();
         for (int i = 0; i < nInputs; i++) {
             boolean value = ((mask >> i) & 1) == 1;
-            row.put("IN" + (i + 1), value ? "1" : "0");
+            row.put(inLabels.get(i), value ? "1" : "0");
         }
         for (int j = 0; j < activeOutputs.size(); j++) {
-            row.put("OUT" + (j + 1), "-");
+            row.put(outLabels.get(j), result.get(mask, j) ? "1" : "0");
         }
         row.put("Status", "");
         rows.add(row);
@@ -1371,30 +1189,96 @@ private void showTruthTable() {
     VBox root = new VBox(10);
     root.setPadding(new Insets(10));
 
-    Label summaryLabel = new Label("Simulation Summary: Pending...");
+    Label summaryLabel = new Label(String.format("Computed %d rows in %.2f ms", combos, result.nanos / 1e6));
     summaryLabel.setTextFill(Color.WHITE);
 
-    Button simulateBtn = new Button("Simulate Circuit");
+    Button simulateBtn = new Button("Replay on Board");
     simulateBtn.setTextFill(Color.WHITE);
     simulateBtn.setStyle("-fx-background-color: #27ae60; -fx-font-weight: bold;");
     simulateBtn.setPrefWidth(160);
 
-    root.getChildren().addAll(table, simulateBtn, summaryLabel);
+    Button checkBtn = new Button("Check Against Reference…");
+    checkBtn.setTextFill(Color.WHITE);
+    checkBtn.setStyle("-fx-background-color: #2980b9; -fx-font-weight: bold;");
+    checkBtn.setPrefWidth(200);
+
+    HBox buttons = new HBox(10, simulateBtn, checkBtn);
+    buttons.setAlignment(Pos.CENTER);
+    root.getChildren().addAll(table, buttons, summaryLabel);
     root.setAlignment(Pos.CENTER);
     dialog.getDialogPane().setContent(root);
     dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
 
-    // Simulation logic
+    // Grading against a saved reference board: switches and LEDs pair up by position, the whole
+    // input space is checked at once, and Status shows each row's verdict
+    EquivalenceChecker.Result[] verdict = {null};
+    boolean[] graded = {false}; // rows line up with the checker's when both vary the same switches
+    checkBtn.setOnAction(e -> {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Reference Circuit");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Virtual IC file", "*.vic"));
+        File f = fc.showOpenDialog(dialog.getDialogPane().getScene().getWindow());
+        if (f == null) return;
+        EquivalenceChecker.Result r;
+        try {
+            CircuitFile.Compiled ref = CircuitFile.read(f.toPath()).compile();
+            int[] swNets = externalSwitches.stream().mapToInt(sw -> nl.netOf(sw.pin.id)).toArray();
+            int[] ledNets = externalLEDs.stream().mapToInt(led -> nl.netOf(led.pin.id)).toArray();
+            r = sim.call(() -> new EquivalenceChecker(nl, swNets, ledNets, ref.netlist, ref.switchNets, ref.ledNets)
+                .check(TruthTableEngine.MAX_INPUTS)).join();
+        } catch (IOException | IllegalArgumentException ex) {
+            new Alert(Alert.AlertType.ERROR, "Cannot load reference: " + ex.getMessage()).showAndWait();
+            return;
+        } catch (CompletionException ex) {
+            new Alert(Alert.AlertType.ERROR, "Check failed: " + ex.getCause().getMessage()).showAndWait();
+            return;
+        }
+        verdict[0] = r;
+        int[] positions = activeInputs.stream().mapToInt(externalSwitches::indexOf).toArray();
+        graded[0] = r.differing != null && Arrays.equals(positions, r.inputs);
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).put("Status", !graded[0] ? "" : r.differs(i) ? "❌" : "✅");
+        }
+        table.refresh();
+
+        String how = r.method == EquivalenceChecker.Method.SIMULATION
+            ? (1L << r.inputs.length) + " vectors simulated"
+            : "SAT, " + r.conflicts + " conflicts";
+        if (r.equivalent) {
+            summaryLabel.setText(String.format("✅ Equivalent to %s (%s, %.1f ms)", f.getName(), how, r.nanos / 1e6));
+            return;
+        }
+        StringBuilder cex = new StringBuilder();
+        long row = 0;
+        for (int i = 0; i < r.inputs.length; i++) {
+            int p = r.inputs[i];
+            String label = p < externalSwitches.size()
+                ? ((Text) externalSwitches.get(p).group.getChildren().stream()
+                    .filter(n -> n instanceof Text).findFirst().orElse(new Text("IN" + (p + 1)))).getText()
+                : "IN" + (p + 1);
+            cex.append(label).append('=').append(r.counterexample[p] ? '1' : '0').append(' ');
+            if (r.counterexample[p]) row |= 1L << i;
+        }
+        String out = r.output < externalLEDs.size() ? externalLEDs.get(r.output).label.getText() : "OUT" + (r.output + 1);
+        summaryLabel.setText(String.format("❌ Differs from %s (%s, %.1f ms): %s→ %s is %d, expected %d", f.getName(), how,
+            r.nanos / 1e6, cex, out, r.studentValue ? 1 : 0, r.referenceValue ? 1 : 0));
+        if (graded[0]) {
+            table.getSelectionModel().select((int) row);
+            table.scrollTo((int) row);
+        }
+    });
+
+    // Optional walk-through: steps the switches through the precomputed rows
     simulateBtn.setOnAction(e -> {
-        if (simulateBtn.getText().equals("Stop Simulation")) {
-            simulateBtn.setText("Simulate Circuit");
+        if (simulateBtn.getText().equals("Stop Replay")) {
+            simulateBtn.setText("Replay on Board");
             simulateBtn.setStyle("-fx-background-color: #27ae60; -fx-font-weight: bold;");
             if (simulationTimeline != null) simulationTimeline.stop();
-            summaryLabel.setText("Simulation Stopped.");
+            summaryLabel.setText("Replay Stopped.");
             return;
         }
 
-        simulateBtn.setText("Stop Simulation");
+        simulateBtn.setText("Stop Replay");
         simulateBtn.setStyle("-fx-background-color: #e67e22; -fx-font-weight: bold;");
         int[] index = {0};
         int[] pass = {0};
@@ -1402,31 +1286,30 @@ private void showTruthTable() {
 
         simulationTimeline = new Timeline(new KeyFrame(Duration.seconds(0.8), ev -> {
             if (index[0] >= rows.size()) {
-                simulateBtn.setText("Simulate Circuit");
+                simulateBtn.setText("Replay on Board");
                 simulateBtn.setStyle("-fx-background-color: #27ae60; -fx-font-weight: bold;");
                 simulationTimeline.stop();
-                summaryLabel.setText("Simulation Complete — ✅ " + pass[0] + "  ❌ " + fail[0]);
+                summaryLabel.setText(graded[0] ? "Replay Complete — ✅ " + pass[0] + "  ❌ " + fail[0] : "Replay Complete");
                 return;
             }
 
             Map<String, String> row = rows.get(index[0]);
             for (int i = 0; i < nInputs; i++) {
-                boolean val = row.get("IN" + (i + 1)).equals("1");
+                boolean val = row.get(inLabels.get(i)).equals("1");
                 activeInputs.get(i).tb.setSelected(val);
+                activeInputs.get(i).tb.setText(val ? "1" : "0");
                 activeInputs.get(i).pin.setValue(val);
-                activeInputs.get(i).node.setFill(val ? Color.LIMEGREEN : Color.DARKRED);
+                markDirty(activeInputs.get(i));
             }
 
-            evaluateAll();
-
-            boolean match = true;
-            for (int j = 0; j < activeOutputs.size(); j++) {
-                boolean outVal = activeOutputs.get(j).pin.value;
-                row.put("OUT" + (j + 1), outVal ? "1" : "0");
+            // rows are only graded once a reference has been checked
+            if (graded[0]) {
+                boolean match = !verdict[0].differs(index[0]);
+                row.put("Status", match ? "✅" : "❌");
+                if (match) pass[0]++; else fail[0]++;
             }
-
-            row.put("Status", match ? "✅" : "❌");
-            if (match) pass[0]++; else fail[0]++;
+            table.getSelectionModel().select(index[0]);
+            table.scrollTo(index[0]);
             table.refresh();
             index[0]++;
         }));
@@ -1438,148 +1321,71 @@ private void showTruthTable() {
     dialog.showAndWait();
 }
 // ---------- AUTO TRUTH TABLE GENERATOR ----------
-private List<String[]> generateTruthTableForIC(String icName, List<String> headers) {
-    headers.clear();
-
-    switch (icName.toUpperCase()) {
-        // ---------------- MUX FAMILY ----------------
-        case "2X1 MUX" -> {
-            headers.addAll(List.of("A", "B", "S", "Y"));
-            List<String[]> rows = new ArrayList<>();
-            for (int A = 0; A <= 1; A++)
-                for (int B = 0; B <= 1; B++)
-                    for (int S = 0; S <= 1; S++) {
-                        int Y = (S == 1) ? B : A;
-                        rows.add(new String[]{String.valueOf(A), String.valueOf(B),
-                                String.valueOf(S), String.valueOf(Y)});
-                    }
-            return rows;
-        }
-
-        case "4X1 MUX" -> {
-            headers.addAll(List.of("I0", "I1", "I2", "I3", "S0", "S1", "Y"));
-            List<String[]> rows = new ArrayList<>();
-            for (int i0 = 0; i0 <= 1; i0++)
-                for (int i1 = 0; i1 <= 1; i1++)
-                    for (int i2 = 0; i2 <= 1; i2++)
-                        for (int i3 = 0; i3 <= 1; i3++)
-                            for (int s0 = 0; s0 <= 1; s0++)
-                                for (int s1 = 0; s1 <= 1; s1++) {
-                                    int sel = (s1 << 1) | s0;
-                                    int[] inputs = {i0, i1, i2, i3};
-                                    int y = inputs[sel];
-                                    rows.add(new String[]{""+i0,""+i1,""+i2,""+i3,""+s0,""+s1,""+y});
-                                }
-            return rows;
-        }
-
-        case "8X1 MUX" -> {
-            headers.addAll(List.of("I0","I1","I2","I3","I4","I5","I6","I7","S0","S1","S2","Y"));
-            List<String[]> rows = new ArrayList<>();
-            for (int[] vals = new int[11]; vals[0] <= 1; ) {
-                // generate 11-bit binary count
-                for (int i = 0; i < 11; i++) vals[i]++;
-                break;
-            }
-            for (int s0 = 0; s0 <= 1; s0++)
-                for (int s1 = 0; s1 <= 1; s1++)
-                    for (int s2 = 0; s2 <= 1; s2++) {
-                        int sel = (s2 << 2) | (s1 << 1) | s0;
-                        for (int[] inputs : new int[][]{{0,0,0,0,0,0,0,0}, {0,1,1,0,1,0,1,1}}) {
-                            int y = inputs[sel];
-                            rows.add(new String[]{
-                                ""+inputs[0],""+inputs[1],""+inputs[2],""+inputs[3],
-                                ""+inputs[4],""+inputs[5],""+inputs[6],""+inputs[7],
-                                ""+s0,""+s1,""+s2,""+y});
-                        }
-                    }
-            return rows;
-        }
-
-        // ---------------- DEMUX FAMILY ----------------
-        case "1X2 DEMUX" -> {
-            headers.addAll(List.of("D", "S", "Y0", "Y1"));
-            List<String[]> rows = new ArrayList<>();
-            for (int D = 0; D <= 1; D++)
-                for (int S = 0; S <= 1; S++) {
-                    int Y0 = (D == 1 && S == 0) ? 1 : 0;
-                    int Y1 = (D == 1 && S == 1) ? 1 : 0;
-                    rows.add(new String[]{""+D,""+S,""+Y0,""+Y1});
-                }
-            return rows;
-        }
-
-        case "1X4 DEMUX" -> {
-            headers.addAll(List.of("D","S0","S1","Y0","Y1","Y2","Y3"));
-            List<String[]> rows = new ArrayList<>();
-            for (int D = 0; D <= 1; D++)
-                for (int s0 = 0; s0 <= 1; s0++)
-                    for (int s1 = 0; s1 <= 1; s1++) {
-                        int sel = (s1 << 1) | s0;
-                        int[] y = new int[4];
-                        if (D == 1) y[sel] = 1;
-                        rows.add(new String[]{""+D,""+s0,""+s1,""+y[0],""+y[1],""+y[2],""+y[3]});
-                    }
-            return rows;
-        }
-
-        case "1X8 DEMUX" -> {
-            headers.addAll(List.of("D","S0","S1","S2","Y0","Y1","Y2","Y3","Y4","Y5","Y6","Y7"));
-            List<String[]> rows = new ArrayList<>();
-            for (int D = 0; D <= 1; D++)
-                for (int s0 = 0; s0 <= 1; s0++)
-                    for (int s1 = 0; s1 <= 1; s1++)
-                        for (int s2 = 0; s2 <= 1; s2++) {
-                            int sel = (s2 << 2) | (s1 << 1) | s0;
-                            int[] y = new int[8];
-                            if (D == 1) y[sel] = 1;
-                            rows.add(new String[]{
-                                ""+D,""+s0,""+s1,""+s2,
-                                ""+y[0],""+y[1],""+y[2],""+y[3],
-                                ""+y[4],""+y[5],""+y[6],""+y[7]
-                            });
-                        }
-            return rows;
-        }
-
-        // ---------------- ENCODER ----------------
-        case "4X2 ENCODER" -> {
-            headers.addAll(List.of("D0","D1","D2","D3","Y1","Y0"));
-            List<String[]> rows = new ArrayList<>();
-            for (int d0=0; d0<=1; d0++)
-                for (int d1=0; d1<=1; d1++)
-                    for (int d2=0; d2<=1; d2++)
-                        for (int d3=0; d3<=1; d3++) {
-                            int code=-1;
-                            if (d0==1) code=0;
-                            else if (d1==1) code=1;
-                            else if (d2==1) code=2;
-                            else if (d3==1) code=3;
-                            int y1=(code>>1)&1, y0=code&1;
-                            rows.add(new String[]{""+d0,""+d1,""+d2,""+d3,""+y1,""+y0});
-                        }
-            return rows;
-        }
-
-        // ---------------- DECODER ----------------
-        case "2X4 DECODER" -> {
-            headers.addAll(List.of("A","B","Y0","Y1","Y2","Y3"));
-            List<String[]> rows = new ArrayList<>();
-            for (int A=0; A<=1; A++)
-                for (int B=0; B<=1; B++) {
-                    int sel=(B<<1)|A;
-                    int[] y=new int[4];
-                    y[sel]=1;
-                    rows.add(new String[]{""+A,""+B,""+y[0],""+y[1],""+y[2],""+y[3]});
-                }
-            return rows;
+// Rows come from the same compiled LUTs the simulator evaluates; the first input is the MSB.
+private List<String[]> generateTruthTableForIC(ChipSpec spec, List<String> headers) {
+    return spec.tableRows(headers); // null when the type has no table → manual truth table
+}
+
+// Above this many switches the board's table is built as BDDs: exact rows with X for "either",
+// and one minimised expression per LED, instead of 2^n simulated rows
+private static final int SYMBOLIC_INPUTS = 16;
+private static final int SYMBOLIC_ROWS = 4096;
+private static final int SYMBOLIC_CUBES = 32;
+
+private void showSymbolicTruthTable(Netlist nl, boolean powered, int[] inNets, int[] outNets,
+                                    List<ExternalSwitch> activeInputs, List<ExternalLED> activeOutputs) {
+    SymbolicTable st;
+    long start = System.nanoTime();
+    try {
+        st = sim.call(() -> {
+            nl.setPowered(powered);
+            return SymbolicTable.of(nl, inNets, outNets);
+        }).join();
+    } catch (CompletionException ex) {
+        if (!(ex.getCause() instanceof IllegalStateException)) throw ex;
+        new Alert(Alert.AlertType.WARNING, "⚠ This circuit is too complex for a symbolic truth table ("
+            + ex.getCause().getMessage() + ").").showAndWait();
+        return;
+    }
+    long nanos = System.nanoTime() - start;
+
+    List<String> headers = new ArrayList<>();
+    for (ExternalSwitch sw : activeInputs) {
+        headers.add(((Text) sw.group.getChildren().stream()
+            .filter(n -> n instanceof Text)
+            .findFirst().orElse(new Text("IN"))).getText());
+    }
+    String[] names = headers.toArray(new String[0]);
+    for (ExternalLED led : activeOutputs) {
+        headers.add(((Text) led.group.getChildren().stream()
+            .filter(n -> n instanceof Text)
+            .findFirst().orElse(new Text("OUT"))).getText());
+    }
+
+    List<String[]> rows = new ArrayList<>();
+    List<byte[]> exact = st.rows(SYMBOLIC_ROWS);
+    if (exact != null) {
+        for (byte[] r : exact) {
+            String[] row = new String[r.length];
+            for (int k = 0; k < r.length; k++) row[k] = r[k] == Bdd.X ? "X" : r[k] == 1 ? "1" : "0";
+            rows.add(row);
         }
     }
-    return null; // no match → fall back to manual truth table
+
+    List<String> notes = new ArrayList<>();
+    notes.add(String.format("%d inputs, %d BDD nodes, built in %.2f ms", names.length, st.bdd.size(), nanos / 1e6));
+    if (exact == null) notes.add("More than " + SYMBOLIC_ROWS + " rows even with X entries; see the expressions below.");
+    for (int j = 0; j < st.outputs(); j++) {
+        String label = headers.get(names.length + j);
+        String expr = st.expression(j, names, SYMBOLIC_CUBES);
+        notes.add(expr != null ? label + " = " + expr
+                               : label + " is 1 on " + st.onRows(j) + " of 2^" + names.length + " rows");
+    }
+    populateTruthTable("Symbolic Truth Table", headers, rows, notes);
 }
 
 // Helper to populate the auto-generated table
-private void populateTruthTable(List<String> headers, List<String[]> rows) {
+private void populateTruthTable(String title, List<String> headers, List<String[]> rows, List<String> notes) {
     TableView<String[]> table = new TableView<>();
     table.setPrefWidth(700);
     table.setPrefHeight(500);
@@ -1596,11 +1402,18 @@ private void populateTruthTable(List<String> headers, List<String[]> rows) {
     table.getItems().addAll(rows);
 
     Dialog<Void> dialog = new Dialog<>();
-    dialog.setTitle("Auto Truth Table");
+    dialog.setTitle(title);
     dialog.setResizable(true);
 
     VBox box = new VBox(10, table);
     box.setPadding(new Insets(10));
+    for (String note : notes) {
+        Label l = new Label(note);
+        l.setTextFill(Color.WHITE);
+        l.setWrapText(true);
+        l.setMaxWidth(700);
+        box.getChildren().add(l);
+    }
     dialog.getDialogPane().setContent(box);
     dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
     dialog.showAndWait();
@@ -1614,47 +1427,326 @@ private void evaluateAll() {
     // If power is OFF — simulate full shutdown
     if (!powerToggle.isSelected()) {
         // 1️⃣ Force all IC outputs LOW
-        for (ICBase ic : new ArrayList<>(ics)) {
-            for (Map.Entry<Integer, Pin> en : ic.pins.entrySet()) {
-                if (en.getValue().type == PinType.OUTPUT) en.getValue().value = false;
+        for (int i = 0; i < ics.size(); i++) {
+            Pin[] pins = ics.get(i).pins;
+            for (int n = 1; n < pins.length; n++) {
+                if (pins[n].type == PinType.OUTPUT) pins[n].value = false;
             }
         }
 
         // 2️⃣ Turn off all LEDs (outputs)
         for (ExternalLED led : externalLEDs) {
+            if (led.pin.value) markDirty(led);
             led.pin.value = false;
-            led.refresh();
         }
 
-        // 3️⃣ Turn off all input indicators (switch LEDs)
-        for (ExternalSwitch sw : externalSwitches) {
-            sw.node.setFill(Color.DARKRED);
-        }
+        // 3️⃣ Netlist values are kept; pins are resynced in full on the next powered pass
+        pinsStale = true;
 
-        // 4️⃣ Reset disconnected LEDs and update wires
+        // 4️⃣ Reset disconnected LEDs
         resetDisconnectedLEDs();
-        for (Wire w : wires) w.redraw();
         return;
     }
 
-    // If power is ON — run normal logic simulation
-    for (ICBase ic : ics) ic.updateLogic();
+    // If power is ON — one levelized pass over the compiled netlist (feedback loops iterate to a fixpoint),
+    // on the simulation thread, unrelated sub-circuits of a large board in parallel; the pins catch up
+    // from its snapshot on a later frame
+    Netlist n = netlist();
+    List<Pin> sources = new ArrayList<>();
+    for (Pin p : netPins) {
+        if (p.owner == null && p.type == PinType.OUTPUT) sources.add(p);
+    }
+    int[] sourceNets = new int[sources.size()];
+    boolean[] sourceValues = new boolean[sources.size()];
+    for (int i = 0; i < sourceNets.length; i++) {
+        sourceNets[i] = n.netOf(sources.get(i).id);
+        sourceValues[i] = sources.get(i).value;
+    }
+    sim.post(() -> {
+        beginPass("evaluateAll");
+        n.setPowered(true);
+        for (int i = 0; i < sourceNets.length; i++) n.set(sourceNets[i], sourceValues[i]);
+        // registers keep their state across full passes; only their set/clear inputs are rechecked
+        partitions.evaluate();
+        endPass(partitions.lastDepth());
+        // the full pass wrote the nets behind the timing engine's back
+        if (timingSim != null) timingSim.resync();
+        recordStep();
+    });
 
-    // Refresh output LEDs
-    for (ExternalLED led : externalLEDs) led.refresh();
+    resetDisconnectedLEDs();
+}
+// ---------- NETLIST COMPILER ----------
+private void markNetlistDirty() {
+    netlistDirty = true;
+}
+
+private Netlist netlist() {
+    if (netlist == null || netlistDirty) compileNetlist();
+    return netlist;
+}
 
-    // Restore switch LED color (Green = ON)
-    for (ExternalSwitch sw : externalSwitches) {
-        sw.node.setFill(sw.tb.isSelected() ? Color.LIMEGREEN : Color.DARKRED);
+// Flattens switches, LEDs, clock and IC pins into pin ids, unions them through the wires
+// and adds one LUT cell per gate output of every placed IC.
+private void compileNetlist() {
+    Netlist.Builder nb = new Netlist.Builder();
+    for (Pin p : netPins) p.id = -1;
+    netPins.clear();
+    for (ExternalSwitch s : externalSwitches) registerPin(nb, s.pin);
+    for (ExternalLED l : externalLEDs) registerPin(nb, l.pin);
+    if (clockPulseInstance != null) registerPin(nb, clockPulseInstance.outputPin);
+    for (ICBase ic : ics) {
+        for (int n = 1; n < ic.pins.length; n++) registerPin(nb, ic.pins[n]);
+    }
+    for (Wire w : wires) {
+        if (w.a.id >= 0 && w.b.id >= 0) nb.connect(w.a.id, w.b.id);
+    }
+    for (ICBase ic : ics) {
+        for (ChipSpec.Gate g : ic.spec.gates()) {
+            int[] in = new int[g.in.length];
+            for (int i = 0; i < in.length; i++) in[i] = ic.pins[g.in[i]].id;
+            nb.setCellDelay(nb.addCell(g.lut, in, ic.pins[g.out].id), ic.spec.delay);
+        }
+        for (ChipSpec.Reg r : ic.spec.regs()) {
+            int[] in = new int[r.in.length];
+            for (int i = 0; i < in.length; i++) in[i] = ic.pins[r.in[i]].id;
+            nb.setRegDelay(nb.addReg(ic.pins[r.clk].id, r.rising, in, r.next, r.force, r.forceValue, ic.pins[r.out].id), ic.spec.delay);
+        }
     }
+    Netlist n = netlist = nb.build();
+    pinsStale = true;
+    netlistDirty = false;
+    int[] leds = new int[externalLEDs.size()];
+    for (int i = 0; i < leds.length; i++) leds[i] = n.netOf(externalLEDs.get(i).pin.id);
+    sim.post(() -> {
+        eventSim = new EventSimulator(n);
+        partitions = new PartitionedSimulator(n);
+        ledNets = leds;
+        timingSim = null;
+        sim.attach(n);
+    });
+    if (waveView != null) openRecorder();
+}
 
-    resetDisconnectedLEDs();
+// Pushes a switch/clock change through the netlist: only the fan-out cone of the changed net
+// is evaluated, iteratively, until the event queue drains. Called on the FX thread; the
+// propagation itself is posted to the simulation thread.
+private void driveSource(Pin p) {
+    if (netlistDirty || p.id < 0) { evaluateAll(); return; }
+    if (!powerToggle.isSelected()) return;
+    int net = netlist.netOf(p.id);
+    boolean v = p.value;
+    if (timingMode) { sim.post(() -> timedDrive(net, v)); return; }
+    sim.post(() -> {
+        beginPass("drive");
+        eventSim.drive(net, v);
+        eventSim.run();
+        endPass(eventSim.lastDepth());
+        recordStep();
+    });
+}
+
+// ---------- METRICS ----------
+// A pass is one evaluateAll() or one drive; evaluations come from whichever engines ran.
+// Each pass is also a JFR Evaluation event. Passes run on the simulation thread.
+private long passStart, passEvaluations, passTransitions;
+private SimEvents.Evaluation passEvent;
+
+private long engineEvaluations() {
+    return eventSim.evaluations() + partitions.evaluations() + (timingSim != null ? timingSim.events() : 0);
+}
+
+private void beginPass(String kind) {
+    passEvent = new SimEvents.Evaluation();
+    passEvent.kind = kind;
+    passEvent.begin();
+    passEvaluations = engineEvaluations();
+    passTransitions = eventSim.netlist().transitions();
+    passStart = System.nanoTime();
+}
+
+private void endPass(long depth) {
+    long evaluations = engineEvaluations() - passEvaluations, transitions = eventSim.netlist().transitions() - passTransitions;
+    metrics.pass(System.nanoTime() - passStart, evaluations, transitions, Math.max(0, depth));
+    if (passEvent.shouldCommit()) {
+        passEvent.evaluations = evaluations;
+        passEvent.transitions = transitions;
+        passEvent.depth = Math.max(0, depth);
+        passEvent.commit();
+    }
+}
+
+/** Counters since the board opened; the histograms hold one sample per pass or frame. */
+public SimMetrics.Snapshot metricsSnapshot() {
+    return metrics.snapshot();
+}
+
+private void setMetricsOverlay(boolean on) {
+    if (on && metricsOverlay == null) {
+        metricsOverlay = new Label();
+        metricsOverlay.setLayoutX(12);
+        metricsOverlay.setLayoutY(62);
+        metricsOverlay.setMouseTransparent(true);
+        metricsOverlay.setFont(Font.font("Consolas", 12));
+        metricsOverlay.setTextFill(Color.WHITE);
+        metricsOverlay.setPadding(new Insets(6, 8, 6, 8));
+        metricsOverlay.setStyle("-fx-background-color: rgba(0,0,0,0.65); -fx-background-radius: 6;");
+        board.getChildren().add(metricsOverlay);
+    } else if (!on && metricsOverlay != null) {
+        board.getChildren().remove(metricsOverlay);
+        metricsOverlay = null;
+    }
+    overlayUpdatedAt = 0;
+}
+
+private long overlayUpdatedAt;
+
+// four refreshes a second are plenty to read, and keep the overlay out of its own numbers
+private void updateMetricsOverlay(long now) {
+    if (now - overlayUpdatedAt < 250_000_000L) return;
+    overlayUpdatedAt = now;
+    SimMetrics.Snapshot m = metrics.snapshot();
+    metricsOverlay.setText(String.format(
+        "passes       %,d   last %.2f ms   p50 %.2f   p99 %.2f ms%n"
+        + "gate evals   last %,d   total %,d%n"
+        + "transitions  last %,d   total %,d%n"
+        + "depth        last %,d   max %,d%n"
+        + "wires drawn  %,d%n"
+        + "FX pulses    %,d   frame %.1f ms (p99 %.1f)   work %.2f ms",
+        m.passes, m.lastPassNanos / 1e6, m.passNanos.percentile(50) / 1e6, m.passNanos.percentile(99) / 1e6,
+        m.lastEvaluations, m.evaluations,
+        m.lastTransitions, m.transitions,
+        m.lastDepth, m.maxDepth,
+        m.wiresRedrawn,
+        m.pulses, m.lastFrameNanos / 1e6, m.frameNanos.percentile(99) / 1e6, m.lastPulseWorkNanos / 1e6));
+    metricsOverlay.toFront();
+}
+
+// ---------- TIMING MODE ----------
+private void setTimingMode(boolean on) {
+    timingMode = on;
+    if (!on) showHazards(null, 0);
+}
+
+// The timing engine for the current netlist, with every LED net watched for hazards.
+// Simulation thread only, like the rest of the engine state.
+private TimingSimulator timingSim() {
+    if (timingSim == null) {
+        timingSim = new TimingSimulator(eventSim.netlist());
+        timingSim.resync();
+        for (int net : ledNets) timingSim.watch(net);
+        timingSim.setRecorder(recorder);
+    }
+    return timingSim;
+}
+
+// Same as the zero-delay drive, except the change propagates through gate delays and any LED
+// that glitches on the way is outlined with the pulse in its tooltip.
+private void timedDrive(int net, boolean v) {
+    TimingSimulator ts = timingSim();
+    ts.rest();
+    ts.clearHazards();
+    beginPass("timed drive");
+    long start = ts.now();
+    ts.drive(net, v);
+    ts.run();
+    endPass(ts.lastEventTime() - start); // depth in timing mode is the settle time, ns
+    postHazards(ts);
+}
+
+// Simulation thread: hands the hazards ts recorded to the FX thread.
+private void postHazards(TimingSimulator ts) {
+    List<TimingSimulator.Hazard> hazards = new ArrayList<>(ts.hazards());
+    long total = ts.hazardCount();
+    Platform.runLater(() -> showHazards(hazards, total));
+}
+
+// Marks the LEDs with the given hazards (total counts the ones not kept); null clears every mark.
+private void showHazards(List<TimingSimulator.Hazard> hazards, long total) {
+    Map<Integer, StringBuilder> byNet = new HashMap<>();
+    if (hazards != null) {
+        for (TimingSimulator.Hazard h : hazards) {
+            byNet.computeIfAbsent(h.net, k -> new StringBuilder("Hazard:")).append('\n').append(h);
+        }
+        if (total > hazards.size()) {
+            for (StringBuilder sb : byNet.values()) sb.append("\n(").append(total).append(" in total)");
+        }
+    }
+    for (ExternalLED l : externalLEDs) {
+        StringBuilder sb = l.pin.id >= 0 && netlist != null ? byNet.get(netlist.netOf(l.pin.id)) : null;
+        String text = sb == null ? null : sb.toString();
+        if (!Objects.equals(text, l.hazard)) { l.hazard = text; markDirty(l); }
+    }
+}
+
+// ---------- SNAPSHOTS ----------
+// Once per frame the newest values published by the simulation thread are copied onto the pins:
+// only nets that changed since the last applied snapshot, or every pin when they are stale
+// (recompile, power cycle). Switch and clock pins are the board's own inputs and never copied.
+private void applySnapshot() {
+    SimThread.Snapshot s = sim.latest();
+    if (s == null || s.netlist != netlist || !powerToggle.isSelected()) return;
+    if (s == shownSnapshot && !pinsStale) return;
+    SimThread.Snapshot was = shownSnapshot;
+    if (pinsStale || was == null || was.netlist != s.netlist) {
+        for (int net = 0; net < s.netlist.netCount(); net++) applyNet(s, net);
+        dirtyLEDs.addAll(externalLEDs);
+        pinsStale = false;
+    } else {
+        for (int w = 0; w < s.words(); w++) {
+            for (long d = s.word(w) ^ was.word(w); d != 0; d &= d - 1) {
+                applyNet(s, w << 6 | Long.numberOfTrailingZeros(d));
+            }
+        }
+    }
+    shownSnapshot = s;
+    if (waveView != null) waveView.dirty = true;
+}
+
+private void applyNet(SimThread.Snapshot s, int net) {
+    Netlist n = s.netlist;
+    boolean v = s.get(net);
+    for (int k = n.pinBegin(net); k < n.pinEnd(net); k++) {
+        Pin p = netPins.get(n.pinAt(k));
+        if (p.owner == null && p.type == PinType.OUTPUT) continue;
+        if (p.value == v) continue;
+        p.value = v;
+        if (p.led != null) markDirty(p.led);
+    }
+}
+
+// ---------- PRESENTATION ----------
+// LED and switch indicators are repainted from a single AnimationTimer pulse: at most once per
+// frame, and only the ones marked dirty since the previous frame.
+private final Set<ExternalLED> dirtyLEDs = new LinkedHashSet<>();
+private final Set<ExternalSwitch> dirtySwitches = new LinkedHashSet<>();
+private AnimationTimer indicatorPulse;
+
+private void markDirty(ExternalLED led) { dirtyLEDs.add(led); }
+
+private void markDirty(ExternalSwitch sw) { dirtySwitches.add(sw); }
+
+private void flushIndicators() {
+    if (!dirtyLEDs.isEmpty() || !dirtySwitches.isEmpty()) markCanvasDirty();
+    if (!dirtyLEDs.isEmpty()) {
+        for (ExternalLED led : dirtyLEDs) led.refresh();
+        dirtyLEDs.clear();
+    }
+    if (!dirtySwitches.isEmpty()) {
+        for (ExternalSwitch sw : dirtySwitches) sw.refresh();
+        dirtySwitches.clear();
+    }
+}
 
-    // Redraw wires to stay aligned with components
-    for (Wire w : wires) w.redraw();
+private void registerPin(Netlist.Builder nb, Pin p) {
+    p.id = nb.addPin();
+    netPins.add(p);
+    if (p.type == PinType.POWER) nb.tie(p.id, true);
+    else if (p.type == PinType.GROUND) nb.tie(p.id, false);
 }
+
 // ---------- SIMULATION MODE ----------
-private Timeline simulationLoop;
+// Clock and switch edges propagate through driveSource as they happen, so nothing polls here.
 
 private void toggleSimulation(ToggleButton btn) {
     if (btn.isSelected()) {
@@ -1666,11 +1758,6 @@ private void toggleSimulation(ToggleButton btn) {
             sw.tb.setDisable(true);
         }
 
-        // Start continuous evaluation (for clock-based changes)
-        simulationLoop = new Timeline(new KeyFrame(Duration.millis(100), e -> evaluateAll()));
-        simulationLoop.setCycleCount(Animation.INDEFINITE);
-        simulationLoop.play();
-
         // Add tick marks to indicate powered ICs
         for (ICBase ic : ics) {
             Text tick = new Text("✔");
@@ -1690,9 +1777,6 @@ private void toggleSimulation(ToggleButton btn) {
             sw.tb.setDisable(false);
         }
 
-        // Stop continuous simulation
-        if (simulationLoop != null) simulationLoop.stop();
-
         // Remove tick marks
         for (ICBase ic : ics) {
             ic.group.getChildren().removeIf(node -> node instanceof Text && ((Text) node).getText().equals("✔"));
@@ -1706,16 +1790,23 @@ private ClockPulse clockPulseInstance = null;
 private void togglePower() {
     // Toggle visual style and simulation state
     stylePowerButton();
+    dirtyLEDs.addAll(externalLEDs);
+    dirtySwitches.addAll(externalSwitches);
     evaluateAll();
 }
 
-// Trigger a single short clock pulse (creates a ClockPulse widget if missing)
-private void triggerClockPulse() {
+private void ensureClock() {
     if (clockPulseInstance == null) {
         clockPulseInstance = new ClockPulse(1100, 40);
         board.getChildren().add(clockPulseInstance.group);
+        markNetlistDirty();
         makeDraggable(clockPulseInstance.group);
     }
+}
+
+// Trigger a single short clock pulse (creates a ClockPulse widget if missing)
+private void triggerClockPulse() {
+    ensureClock();
     // toggle on, short delay, toggle off
     clockPulseInstance.toggleClock();
     PauseTransition pt = new PauseTransition(Duration.millis(220));
@@ -1725,18 +1816,650 @@ private void triggerClockPulse() {
     pt.play();
 }
 
+// ---------- VIRTUAL-TIME CLOCK RUN ----------
+// Runs the clock in virtual time as one long command on the simulation thread. The dialog is
+// modal, so the board cannot change under the kernel; LEDs update when the run ends, or every
+// N cycles if sampling is set.
+private void showClockRun() {
+    if (!powerToggle.isSelected()) {
+        new Alert(Alert.AlertType.WARNING, "⚠ Turn the power on first!").showAndWait();
+        return;
+    }
+    ensureClock();
+    if (clockPulseInstance.startBtn.isSelected()) {
+        clockPulseInstance.startBtn.setSelected(false);
+        clockPulseInstance.togglePulse();
+    }
+
+    ChoiceBox<String> mode = new ChoiceBox<>();
+    mode.getItems().addAll("Run N cycles", "Run until LED", "Run for time (µs)");
+    mode.getSelectionModel().selectFirst();
+    TextField amount = new TextField("1000");
+    TextField period = new TextField("1000");
+    TextField sample = new TextField("0");
+    ChoiceBox<ExternalLED> led = new ChoiceBox<>();
+    led.getItems().addAll(externalLEDs);
+    led.setConverter(new javafx.util.StringConverter<>() {
+        @Override public String toString(ExternalLED l) { return l == null ? "" : l.label.getText(); }
+        @Override public ExternalLED fromString(String s) { return null; }
+    });
+    led.getSelectionModel().selectFirst();
+    ChoiceBox<String> level = new ChoiceBox<>();
+    level.getItems().addAll("HIGH", "LOW");
+    level.getSelectionModel().selectFirst();
+    led.disableProperty().bind(mode.getSelectionModel().selectedIndexProperty().isNotEqualTo(1));
+    level.disableProperty().bind(led.disableProperty());
+
+    GridPane form = new GridPane();
+    form.setHgap(8);
+    form.setVgap(8);
+    form.addRow(0, new Label("Mode"), mode);
+    form.addRow(1, new Label("Cycles / limit / µs"), amount);
+    form.addRow(2, new Label("Clock period (ns)"), period);
+    form.addRow(3, new Label("Stop when"), new HBox(6, led, level));
+    form.addRow(4, new Label("Update LEDs every N cycles (0 = at end)"), sample);
+    Label status = new Label("Virtual time: 0 ns");
+    Button runBtn = new Button("Run");
+    VBox root = new VBox(10, form, runBtn, status);
+    root.setPadding(new Insets(10));
+
+    Dialog<Void> dialog = new Dialog<>();
+    dialog.setTitle("Run Clock");
+    dialog.getDialogPane().setContent(root);
+    dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+    ClockKernel[] running = {null};
+    dialog.setOnCloseRequest(e -> { if (running[0] != null) running[0].cancel(); });
+    runBtn.setOnAction(e -> {
+        if (running[0] != null) { running[0].cancel(); return; }
+        long n, periodNs, every;
+        try {
+            n = Long.parseLong(amount.getText().trim());
+            periodNs = Long.parseLong(period.getText().trim());
+            every = Long.parseLong(sample.getText().trim());
+            if (n < 0 || periodNs < 2 || every < 0) throw new NumberFormatException();
+        } catch (NumberFormatException ex) {
+            status.setText("Enter whole numbers; the period must be at least 2 ns.");
+            return;
+        }
+        int m = mode.getSelectionModel().getSelectedIndex();
+        ExternalLED target = led.getValue();
+        if (m == 1 && target == null) { status.setText("No LED to watch."); return; }
+
+        Netlist net = netlist();
+        evaluateAll();
+        int clockNet = net.netOf(clockPulseInstance.outputPin.id);
+        boolean timed = timingMode;
+        // the kernel is built on the simulation thread, behind the evaluateAll above
+        ClockKernel k = sim.call(() -> {
+            TimingSimulator ts = timed ? timingSim() : null;
+            if (ts != null) ts.clearHazards();
+            ClockKernel ck = ts != null ? new ClockKernel(ts, clockNet, periodNs) : new ClockKernel(eventSim, clockNet, periodNs);
+            if (ts == null) ck.setRecorder(recorder);
+            if (every > 0) ck.setSampling(every, kk -> sim.publish());
+            return ck;
+        }).join();
+        ClockKernel.Condition until = null;
+        if (m == 1) {
+            int ledNet = net.netOf(target.pin.id);
+            boolean want = level.getValue().equals("HIGH");
+            until = nl -> nl.get(ledNet) == want;
+        }
+        ClockKernel.Condition cond = until;
+        running[0] = k;
+        runBtn.setText("Stop");
+        status.setText("Running…");
+
+        sim.post(() -> {
+            long t0 = System.nanoTime();
+            ClockKernel.Stop stop = switch (m) {
+                case 1 -> k.runUntil(cond, n);
+                case 2 -> k.runFor(n * 1000);
+                default -> k.runCycles(n);
+            };
+            if (timed) {
+                timingSim.run();  // let the last edge finish propagating
+                postHazards(timingSim);
+            }
+            long wall = System.nanoTime() - t0;
+            boolean lvl = k.clockLevel();
+            long cycles = k.cycles(), now = k.now();
+            Platform.runLater(() -> {
+                running[0] = null;
+                runBtn.setText("Run");
+                finishClockRun(lvl);
+                status.setText(String.format("%s after %,d cycles — virtual time %,d ns, wall %.1f ms",
+                    stop, cycles, now, wall / 1e6));
+            });
+        });
+    });
+
+    dialog.showAndWait();
+}
+
+// Back on the FX thread: the clock widget shows the final level and every pin resyncs
+private void finishClockRun(boolean lvl) {
+    clockPulseInstance.state = lvl;
+    clockPulseInstance.outputPin.value = lvl;
+    clockPulseInstance.node.setFill(lvl ? Color.LIMEGREEN : Color.DARKRED);
+    pinsStale = true;
+    evaluateAll();
+}
+
+// ---------- LOGIC ANALYZER ----------
+// Every switch, the clock and every LED is probed while the analyzer window is open. Clock runs
+// record in virtual time; each hand-made change (switch, clock button) is one 1 µs step, and in
+// timing mode the gate delays show up inside the step.
+private static final long MANUAL_STEP_NS = 1000;
+private static final int WAVE_CAPACITY = 1 << 16;
+
+// A recorder for the current netlist, continuing the previous one's time line; any VCD stream
+// is ended first. Posted when the analyzer opens and after every recompile while it is open.
+private void openRecorder() {
+    Netlist n = netlist();
+    List<Integer> nets = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < externalSwitches.size(); i++) {
+        Pin p = externalSwitches.get(i).pin;
+        if (p.id >= 0 && !p.connections.isEmpty()) { nets.add(n.netOf(p.id)); names.add("SW" + (i + 1)); }
+    }
+    if (clockPulseInstance != null && clockPulseInstance.outputPin.id >= 0) {
+        nets.add(n.netOf(clockPulseInstance.outputPin.id));
+        names.add("CLK");
+    }
+    for (ExternalLED l : externalLEDs) {
+        if (l.pin.id >= 0 && !l.pin.connections.isEmpty()) { nets.add(n.netOf(l.pin.id)); names.add(l.label.getText()); }
+    }
+    waveView.stopStream();
+    waveView.follow = true;
+    sim.post(() -> {
+        long end = recorder == null ? 0 : recorder.end();
+        WaveRecorder r = new WaveRecorder(n, WAVE_CAPACITY);
+        for (int i = 0; i < nets.size(); i++) r.probe(nets.get(i), names.get(i));
+        r.sample(end);
+        recorder = r;
+        if (timingSim != null) timingSim.setRecorder(r);
+    });
+}
+
+// Simulation thread: one manual step on the zero-delay engines.
+private void recordStep() {
+    WaveRecorder r = recorder;
+    if (r == null || timingMode) return;
+    r.sample(r.end() + MANUAL_STEP_NS);
+}
+
+private void showAnalyzer(Stage owner) {
+    if (waveView != null) { waveView.stage.toFront(); return; }
+    netlist();
+    waveView = new WaveView(owner);
+    openRecorder();
+    waveView.stage.show();
+}
+
+private class WaveView {
+    static final double ROW = 28, LABELS = 70, HIGH = 6, LOW = 22;
+
+    final Stage stage = new Stage();
+    final Canvas canvas = new Canvas(900, 300);
+    final ScrollBar scroll = new ScrollBar();
+    final Slider zoom = new Slider(0, 9, 3);   // log10 of ns per pixel
+    final ToggleButton streamBtn = new ToggleButton("Stream to VCD…");
+    final Label status = new Label();
+    VcdWriter stream;
+    boolean dirty = true, follow = true;
+
+    WaveView(Stage owner) {
+        stage.initOwner(owner);
+        stage.setTitle("Logic Analyzer");
+        Button clear = new Button("Clear");
+        clear.setOnAction(e -> {
+            sim.post(() -> { WaveRecorder r = recorder; if (r != null) r.clear(); });
+            follow = true;
+        });
+        Button export = new Button("Export VCD…");
+        export.setOnAction(e -> exportVcd());
+        streamBtn.setOnAction(e -> { if (streamBtn.isSelected()) startStream(); else stopStream(); });
+        zoom.setPrefWidth(160);
+        zoom.valueProperty().addListener((o, a, b) -> dirty = true);
+        scroll.valueProperty().addListener((o, a, b) -> {
+            follow = b.doubleValue() >= scroll.getMax() - scroll.getVisibleAmount();
+            dirty = true;
+        });
+        ToolBar bar = new ToolBar(clear, export, streamBtn, new Separator(), new Label("Zoom"), zoom, status);
+        Pane holder = new Pane(canvas);
+        canvas.widthProperty().bind(holder.widthProperty());
+        canvas.heightProperty().bind(holder.heightProperty());
+        canvas.widthProperty().addListener(o -> dirty = true);
+        canvas.heightProperty().addListener(o -> dirty = true);
+        BorderPane root = new BorderPane(holder, bar, null, scroll, null);
+        stage.setScene(new Scene(root, 900, 340));
+        stage.setOnHidden(e -> {
+            stopStream();
+            waveView = null;
+            sim.post(() -> {
+                recorder = null;
+                if (timingSim != null) timingSim.setRecorder(null);
+            });
+        });
+    }
+
+    double nsPerPixel() { return Math.pow(10, zoom.getValue()); }
+
+    void renderIfDirty() {
+        if (!dirty) return;
+        dirty = false;
+        // read while the simulation thread records: a frame may catch a change half-written,
+        // and the snapshot that follows it marks the view dirty again
+        WaveRecorder r = recorder;
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double w = canvas.getWidth(), h = canvas.getHeight();
+        g.setFill(Color.web("#1e272e"));
+        g.fillRect(0, 0, w, h);
+        if (r == null) return;
+
+        // the scroll bar spans the held history; follow mode keeps the newest edge in view
+        long start = r.start(), end = r.end();
+        double span = (w - LABELS) * nsPerPixel();
+        scroll.setMin(start);
+        scroll.setMax(Math.max(start, end - span) + span);
+        scroll.setVisibleAmount(span);
+        if (follow) scroll.setValue(Math.max(start, end - span));
+        long t0 = (long) scroll.getValue();
+        long t1 = (long) (t0 + span);
+        status.setText(String.format("%,d – %,d ns", t0, t1));
+
+        g.setFont(Font.font(12));
+        for (int p = 0; p < r.probes(); p++) {
+            double y = p * ROW;
+            if (y > h) break;
+            g.setFill(Color.WHITE);
+            g.fillText(r.name(p), 6, y + 18);
+            g.setStroke(Color.LIMEGREEN);
+            g.setLineWidth(1.5);
+            int i = Math.max(0, r.indexAt(p, t0));
+            if (r.count(p) == 0 || r.time(p, i) > t1) continue;
+            double x = LABELS + Math.max(0, (r.time(p, i) - t0) / nsPerPixel());
+            boolean v = r.value(p, i);
+            for (i++; i < r.count(p) && r.time(p, i) <= t1; i++) {
+                double nx = LABELS + (r.time(p, i) - t0) / nsPerPixel();
+                g.strokeLine(x, y + (v ? HIGH : LOW), nx, y + (v ? HIGH : LOW));
+                g.strokeLine(nx, y + HIGH, nx, y + LOW);
+                x = nx;
+                v = r.value(p, i);
+            }
+            double xe = LABELS + Math.min(span, end - t0) / nsPerPixel();
+            g.strokeLine(x, y + (v ? HIGH : LOW), Math.max(x, xe), y + (v ? HIGH : LOW));
+        }
+    }
+
+    // the file is written on the simulation thread, so nothing is recorded half-way through it
+    void exportVcd() {
+        WaveRecorder r = recorder;
+        if (r == null) return;
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Export VCD");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Value change dump", "*.vcd"));
+        File f = fc.showSaveDialog(stage);
+        if (f == null) return;
+        sim.post(() -> {
+            try (Writer out = java.nio.file.Files.newBufferedWriter(f.toPath())) {
+                r.writeVcd(out);
+            } catch (IOException ex) {
+                Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Could not write " + f.getName() + ": " + ex.getMessage()).show());
+            }
+        });
+    }
+
+    void startStream() {
+        FileChooser fc = new FileChooser();
+        fc.setTitle("Stream to VCD");
+        fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Value change dump", "*.vcd"));
+        File f = fc.showSaveDialog(stage);
+        if (f == null || recorder == null) { streamBtn.setSelected(false); return; }
+        VcdWriter w;
+        try {
+            w = stream = new VcdWriter(java.nio.file.Files.newBufferedWriter(f.toPath()));
+        } catch (IOException ex) {
+            streamBtn.setSelected(false);
+            new Alert(Alert.AlertType.ERROR, "Could not write " + f.getName() + ": " + ex.getMessage()).showAndWait();
+            return;
+        }
+        sim.post(() -> {
+            try {
+                if (recorder != null) recorder.setStream(w);
+            } catch (IOException ex) {
+                Platform.runLater(() -> {
+                    if (stream == w) stopStream();
+                    new Alert(Alert.AlertType.ERROR, "Could not write " + f.getName() + ": " + ex.getMessage()).show();
+                });
+            }
+        });
+    }
+
+    void stopStream() {
+        streamBtn.setSelected(false);
+        if (stream == null) return;
+        VcdWriter w = stream;
+        stream = null;
+        sim.post(() -> {
+            try {
+                if (recorder != null) recorder.setStream(null);
+                w.close();
+            } catch (IOException ex) {
+                Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "VCD stream failed: " + ex.getMessage()).show());
+            }
+        });
+    }
+}
+
 // Clears all wire connections
 private void clearConnections() {
-    for (Wire w : new ArrayList<>(wires)) {
-        w.remove();
+    removeAllWires();
+    evaluateAll();
+}
+
+// Removes every wire with a single pass over the board's children instead of one per path.
+private void removeAllWires() {
+    Set<Node> paths = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (Wire w : wires) {
+        w.unlink();
+        paths.add(w.path);
     }
+    board.getChildren().removeAll(paths);
     wires.clear();
-    evaluateAll();
+    selectedWire = null;
+    markNetlistDirty();
+    resetDisconnectedLEDs();
+}
+
+// ---------- CANVAS RENDERER ----------
+// Alternative view for large boards: ICs, wires and external nodes are painted onto one Canvas
+// instead of living as visible scene-graph nodes. The component groups stay on the board
+// (hidden) as the model for positions and state, so toggling back to the node view is free.
+// Anything outside the viewport is skipped, and each IC type is drawn from a cached sprite.
+private BoardCanvas canvasView;
+
+private void setCanvasView(boolean on) {
+    if (canvasView == null) {
+        canvasView = new BoardCanvas();
+        board.getChildren().add(0, canvasView.canvas);
+        // nodes added while the canvas is active (placed ICs, new wires, loads) start hidden
+        board.getChildren().addListener((javafx.collections.ListChangeListener<Node>) c -> {
+            if (!canvasView.active) return;
+            while (c.next()) for (Node n : c.getAddedSubList()) if (canvasView.paints(n)) n.setVisible(false);
+            canvasView.dirty = true;
+        });
+    }
+    canvasView.active = on;
+    canvasView.canvas.setVisible(on);
+    for (Node n : board.getChildren()) if (canvasView.paints(n)) n.setVisible(!on);
+    if (on) canvasView.dirty = true;
+    else for (Wire w : wires) w.redraw(); // node paths were not kept up to date while hidden
+}
+
+private void markCanvasDirty() {
+    if (canvasView != null && canvasView.active) canvasView.dirty = true;
+}
+
+private class BoardCanvas {
+    static final double SPRITE_PAD = 56;   // room for pin numbers and the GND/VCC labels
+
+    final Canvas canvas = new Canvas();
+    final Map<String, WritableImage> sprites = new HashMap<>();
+    boolean active, dirty;
+    double panX, panY;
+
+    // drag, hover and rubber-band state
+    private Node dragged;
+    private double dragDX, dragDY;
+    private Pin hovered;
+    private boolean banding;
+    private double bandX0, bandY0, bandX1, bandY1;
+    final List<Wire> selection = new ArrayList<>();
+
+    BoardCanvas() {
+        canvas.widthProperty().bind(board.widthProperty());
+        canvas.heightProperty().bind(board.heightProperty());
+        canvas.setVisible(false);
+        canvas.setOnMousePressed(this::pressed);
+        canvas.setOnMouseDragged(e -> {
+            if (banding) {
+                bandX1 = e.getX() + panX;
+                bandY1 = e.getY() + panY;
+                dirty = true;
+                return;
+            }
+            if (dragged == null) return;
+            dragged.setLayoutX(e.getX() + panX - dragDX);
+            dragged.setLayoutY(e.getY() + panY - dragDY);
+            dirty = true;
+        });
+        canvas.setOnMouseReleased(e -> {
+            dragged = null;
+            if (!banding) return;
+            banding = false;
+            select(wiresIn(Math.min(bandX0, bandX1), Math.min(bandY0, bandY1),
+                           Math.max(bandX0, bandX1), Math.max(bandY0, bandY1)));
+        });
+        canvas.setOnMouseMoved(e -> {
+            Pin p = pinAt(e.getX() + panX, e.getY() + panY, 14);
+            if (p != hovered) { hovered = p; dirty = true; }
+        });
+        canvas.setOnScroll(e -> {
+            if (e.isShiftDown()) panX -= e.getDeltaX() != 0 ? e.getDeltaX() : e.getDeltaY();
+            else { panX -= e.getDeltaX(); panY -= e.getDeltaY(); }
+            dirty = true;
+        });
+    }
+
+    /** Board children this view draws itself (everything except the toolbar and the canvas). */
+    boolean paints(Node n) {
+        return n != canvas && !(n instanceof ToolBar) && n != metricsOverlay;
+    }
+
+    void renderIfDirty() {
+        if (!active || !dirty) return;
+        dirty = false;
+        render();
+    }
+
+    private void render() {
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        double w = canvas.getWidth(), h = canvas.getHeight();
+        g.setFill(Color.web("#242c33"));
+        g.fillRect(0, 0, w, h);
+        double x0 = panX, y0 = panY, x1 = panX + w, y1 = panY + h;
+        g.save();
+        g.translate(-panX, -panY);
+
+        g.setLineCap(StrokeLineCap.ROUND);
+        for (Wire wire : wires) {
+            Point2D a = pinBoardCenter(wire.a), b = pinBoardCenter(wire.b);
+            double off = Math.abs(b.getX() - a.getX()) * 0.5;
+            // a cubic Bezier lies inside the hull of its control points
+            double minX = Math.min(a.getX(), b.getX()) - off, maxX = Math.max(a.getX(), b.getX()) + off;
+            double minY = Math.min(a.getY(), b.getY()), maxY = Math.max(a.getY(), b.getY());
+            if (maxX < x0 || minX > x1 || maxY < y0 || minY > y1) continue;
+            metrics.wiresRedrawn(1);
+            g.setStroke(wire.selected ? Color.YELLOW : wire.color);
+            g.setLineWidth(wire.selected ? 5 : 3.5);
+            g.beginPath();
+            g.moveTo(a.getX(), a.getY());
+            g.bezierCurveTo(a.getX() + off, a.getY(), b.getX() - off, b.getY(), b.getX(), b.getY());
+            g.stroke();
+        }
+
+        for (ICBase ic : ics) {
+            double x = ic.group.getLayoutX(), y = ic.group.getLayoutY();
+            double iw = ic.body.getWidth(), ih = ic.body.getHeight();
+            if (x + iw + SPRITE_PAD < x0 || x - SPRITE_PAD > x1 || y + ih < y0 || y > y1) continue;
+            g.drawImage(sprite(ic), x - SPRITE_PAD, y);
+        }
+
+        g.setFont(Font.font("Consolas", 11));
+        for (ExternalSwitch s : externalSwitches) {
+            double x = s.group.getLayoutX(), y = s.group.getLayoutY();
+            if (x + 70 < x0 || x - 15 > x1 || y + 15 < y0 || y - 15 > y1) continue;
+            drawDisc(g, x, y, 12, (Color) s.node.getFill());
+            drawButton(g, x + 30, y - 10, s.tb.getText());
+        }
+        for (ExternalLED l : externalLEDs) {
+            double x = l.group.getLayoutX(), y = l.group.getLayoutY();
+            if (x + 70 < x0 || x - 45 > x1 || y + 25 < y0 || y - 5 > y1) continue;
+            g.setFill(l.display.getFill());
+            g.fillRoundRect(x, y, 20, 20, 5, 5);
+            g.setStroke(l.display.getStroke());
+            g.setLineWidth(l.display.getStrokeWidth());
+            g.strokeRoundRect(x, y, 20, 20, 5, 5);
+            drawDisc(g, x - 30, y + 10, 10, Color.DARKGRAY);
+            g.setFill(Color.WHITE);
+            g.fillText(l.label.getText(), x + 26, y + 14);
+        }
+        ClockPulse clk = clockPulseInstance;
+        if (clk != null) {
+            double x = clk.group.getLayoutX(), y = clk.group.getLayoutY();
+            if (!(x + 100 < x0 || x - 20 > x1 || y + 40 < y0 || y - 20 > y1)) {
+                drawDisc(g, x, y, 15, (Color) clk.node.getFill());
+                drawButton(g, x + 40, y - 12, clk.startBtn.getText());
+            }
+        }
+
+        if (hovered != null) {
+            Point2D p = pinBoardCenter(hovered);
+            g.setStroke(Color.WHITE);
+            g.setLineWidth(1.5);
+            g.strokeOval(p.getX() - 9, p.getY() - 9, 18, 18);
+        }
+        if (connectionStart != null) {
+            Point2D p = pinBoardCenter(connectionStart);
+            g.setStroke(Color.YELLOW);
+            g.setLineWidth(2.5);
+            g.strokeOval(p.getX() - 8, p.getY() - 8, 16, 16);
+        }
+        if (banding) {
+            g.setStroke(Color.YELLOW);
+            g.setLineWidth(1);
+            g.setLineDashes(4);
+            g.strokeRect(Math.min(bandX0, bandX1), Math.min(bandY0, bandY1),
+                         Math.abs(bandX1 - bandX0), Math.abs(bandY1 - bandY0));
+            g.setLineDashes(null);
+        }
+        g.restore();
+    }
+
+    private void drawDisc(GraphicsContext g, double cx, double cy, double r, Color fill) {
+        g.setFill(fill);
+        g.fillOval(cx - r, cy - r, 2 * r, 2 * r);
+        g.setStroke(Color.BLACK);
+        g.setLineWidth(1);
+        g.strokeOval(cx - r, cy - r, 2 * r, 2 * r);
+    }
+
+    private void drawButton(GraphicsContext g, double x, double y, String label) {
+        g.setFill(Color.web("#3a3a3a"));
+        g.fillRoundRect(x, y, 44, 22, 6, 6);
+        g.setFill(Color.WHITE);
+        g.fillText(label, x + 8, y + 15);
+    }
+
+    // IC bodies never change after placement, so one image per type covers every instance
+    private WritableImage sprite(ICBase ic) {
+        return sprites.computeIfAbsent(ic.title.getText(), name -> {
+            double w = ic.body.getWidth(), h = ic.body.getHeight();
+            Canvas c = new Canvas(w + 2 * SPRITE_PAD, h);
+            GraphicsContext g = c.getGraphicsContext2D();
+            g.translate(SPRITE_PAD, 0);
+            g.setFill(Color.web("#e0e0e0"));
+            g.fillRoundRect(0, 0, w, h, 10, 10);
+            g.setStroke(Color.web("#222"));
+            g.strokeRoundRect(0, 0, w, h, 10, 10);
+            g.setFill(Color.BLACK);
+            g.setFont(Font.font("Roboto", 13));
+            g.fillText(name, 10, 18);
+            g.setFont(Font.font("Consolas", 10));
+            for (int num = 1; num < ic.pinNodes.length; num++) {
+                Circle pc = ic.pinNodes[num];
+                ChipSpec.Role role = ic.spec.role(num);
+                boolean rail = role == ChipSpec.Role.GND || role == ChipSpec.Role.VCC;
+                g.setFill(rail ? Color.DARKRED : Color.web("#222"));
+                g.fillOval(pc.getCenterX() - 6, pc.getCenterY() - 6, 12, 12);
+                g.setStroke(rail ? Color.GRAY : Color.WHITE);
+                g.strokeOval(pc.getCenterX() - 6, pc.getCenterY() - 6, 12, 12);
+                g.setFill(Color.BLACK);
+                g.fillText(String.valueOf(num), pc.getCenterX() + (num <= ic.spec.pins / 2 ? -22 : 10), pc.getCenterY() + 4);
+            }
+            SnapshotParameters sp = new SnapshotParameters();
+            sp.setFill(Color.TRANSPARENT);
+            return c.snapshot(sp, null);
+        });
+    }
+
+    private void pressed(MouseEvent e) {
+        double x = e.getX() + panX, y = e.getY() + panY;
+        if (e.getButton() != MouseButton.PRIMARY) return;
+        Pin pin = pinAt(x, y, 14);
+        if (pin != null) {
+            startConnection(pin);
+            dirty = true;
+            return;
+        }
+        // topmost group first, as in the node view
+        List<Node> children = board.getChildren();
+        for (int i = children.size() - 1; i >= 0; i--) {
+            Node n = children.get(i);
+            if (!paints(n) || !(n instanceof Group) || !n.getBoundsInParent().contains(x, y)) continue;
+            for (Node c : ((Group) n).getChildren()) {
+                if (c instanceof ButtonBase && c.getBoundsInParent().contains(n.parentToLocal(x, y))) {
+                    ((ButtonBase) c).fire();
+                    dirty = true;
+                    return;
+                }
+            }
+            dragged = n;
+            dragDX = x - n.getLayoutX();
+            dragDY = y - n.getLayoutY();
+            return;
+        }
+        Wire w = wireAt(x, y, 6);
+        if (w != null) {
+            select(List.of(w));
+            selectedWire = w;
+            return;
+        }
+        select(List.of());
+        banding = true;
+        bandX0 = bandX1 = x;
+        bandY0 = bandY1 = y;
+    }
+
+    void select(List<Wire> ws) {
+        for (Wire w : selection) w.setSelected(false);
+        selection.clear();
+        selectedWire = null;
+        for (Wire w : ws) w.setSelected(true);
+        selection.addAll(ws);
+        dirty = true;
+    }
+}
+
+// Pin centre in board coordinates: the grid's cached value when indexed, else from layout offsets
+// (valid whether or not the nodes are shown), else through the scene transform.
+private Point2D pinBoardCenter(Pin p) {
+    if (p.indexed) return new Point2D(p.bx, p.by);
+    Circle c = p.visual;
+    if (c == null || p.anchor == null) return board.sceneToLocal(pinSceneCenter(p));
+    return new Point2D(p.anchor.getLayoutX() + p.anchor.getTranslateX() + c.getLayoutX() + c.getCenterX(),
+                       p.anchor.getLayoutY() + p.anchor.getTranslateY() + c.getLayoutY() + c.getCenterY());
 }
 
 // ---------- UTILITIES ----------
     private Point2D pinSceneCenter(Pin p) {
         Bounds b;
+        if (p.visual != null) {
+            b = p.visual.localToScene(p.visual.getBoundsInLocal());
+            return new Point2D((b.getMinX() + b.getMaxX()) / 2, (b.getMinY() + b.getMaxY()) / 2);
+        }
         if (p.owner == null) {
             // external switches
             for (ExternalSwitch s : externalSwitches) {
@@ -1770,25 +2493,28 @@ private void clearConnections() {
     }
 
     // ---------- SAVE / LOAD ----------
-    private String ownerKey(Pin p) {
-        if (p.owner == null) {
-            for (int i = 0; i < externalSwitches.size(); i++) if (externalSwitches.get(i).pin == p) return "SW" + i;
-            for (int i = 0; i < externalLEDs.size(); i++) if (externalLEDs.get(i).pin == p) return "LED" + i;
-            if (vccNode != null && vccNode.pin == p) return "VCC";
-            if (gndNode != null && gndNode.pin == p) return "GND";
-            return "EXT";
-        } else {
-            for (int i = 0; i < ics.size(); i++) if (ics.get(i) == p.owner) return "IC" + i;
-            return "IC?";
-        }
+    // Save keys for every wire end, assigned in one pass: external pins and ICs map to "SW3", "IC12"...
+    private Map<Object, String> ownerKeys() {
+        Map<Object, String> keys = new IdentityHashMap<>();
+        for (int i = 0; i < externalSwitches.size(); i++) keys.put(externalSwitches.get(i).pin, "SW" + i);
+        for (int i = 0; i < externalLEDs.size(); i++) keys.put(externalLEDs.get(i).pin, "LED" + i);
+        for (int i = 0; i < ics.size(); i++) keys.put(ics.get(i), "IC" + i);
+        if (vccNode != null) keys.put(vccNode.pin, "VCC");
+        if (gndNode != null) keys.put(gndNode.pin, "GND");
+        return keys;
+    }
+
+    private String ownerKey(Map<Object, String> keys, Pin p) {
+        if (p.owner != null) return keys.getOrDefault(p.owner, "IC?");
+        return keys.getOrDefault(p, "EXT");
     }
 
     private Pin findPinByKey(String key, int pinNumber, Map<String, ICBase> icMap, Map<String, ExternalSwitch> swMap, Map<String, ExternalLED> ledMap) {
-        if ("VCC".equals(key)) return vccNode.pin;
-        if ("GND".equals(key)) return gndNode.pin;
+        if ("VCC".equals(key)) return vccNode == null ? null : vccNode.pin;
+        if ("GND".equals(key)) return gndNode == null ? null : gndNode.pin;
         if (key.startsWith("IC")) {
             ICBase ic = icMap.get(key);
-            if (ic != null) return ic.pins.get(pinNumber);
+            if (ic != null && pinNumber >= 1 && pinNumber < ic.pins.length) return ic.pins[pinNumber];
         }
         if (key.startsWith("SW")) {
             ExternalSwitch s = swMap.get(key);
@@ -1807,33 +2533,44 @@ private void clearConnections() {
         fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Virtual IC file", "*.vic"));
         File f = fc.showSaveDialog(stage);
         if (f == null) return;
-        try (PrintWriter pw = new PrintWriter(new FileWriter(f))) {
-            pw.println("POWER=" + powerToggle.isSelected());
-            // switches
-            for (int i = 0; i < externalSwitches.size(); i++) {
-                ExternalSwitch s = externalSwitches.get(i);
-                pw.println(String.format("SW,%d,%.2f,%.2f,%b", i, s.group.getLayoutX(), s.group.getLayoutY(), s.tb.isSelected()));
-            }
-            // leds
-            for (int i = 0; i < externalLEDs.size(); i++) {
-                ExternalLED l = externalLEDs.get(i);
-                pw.println(String.format("LED,%d,%.2f,%.2f", i, l.group.getLayoutX(), l.group.getLayoutY()));
-            }
-            // ics
-            for (int i = 0; i < ics.size(); i++) {
-                ICBase ic = ics.get(i);
-                pw.println(String.format("IC,%d,%s,%.2f,%.2f", i, ic.title.getText(), ic.group.getLayoutX(), ic.group.getLayoutY()));
-            }
-            // wires
-            for (Wire w : wires) {
-                String a = ownerKey(w.a);
-                String b = ownerKey(w.b);
-                pw.println(String.format("WIRE,%s,%s,%d,%d", a, b, w.a.number, w.b.number));
-            }
-            pw.flush();
+        long t0 = System.nanoTime();
+        CircuitFile cf = new CircuitFile();
+        cf.power = powerToggle.isSelected();
+        for (int i = 0; i < externalSwitches.size(); i++) {
+            ExternalSwitch s = externalSwitches.get(i);
+            cf.switches.add(new CircuitFile.Switch(i, s.group.getLayoutX(), s.group.getLayoutY(), s.tb.isSelected()));
+        }
+        for (int i = 0; i < externalLEDs.size(); i++) {
+            ExternalLED l = externalLEDs.get(i);
+            cf.leds.add(new CircuitFile.Led(i, l.group.getLayoutX(), l.group.getLayoutY()));
+        }
+        for (int i = 0; i < ics.size(); i++) {
+            ICBase ic = ics.get(i);
+            cf.chips.add(new CircuitFile.Chip(i, ic.title.getText(), ic.group.getLayoutX(), ic.group.getLayoutY()));
+        }
+        Map<Object, String> keys = ownerKeys();
+        for (Wire w : wires) cf.wires.add(new CircuitFile.Wire(ownerKey(keys, w.a), ownerKey(keys, w.b), w.a.number, w.b.number));
+        long t1 = System.nanoTime();
+        SimEvents.CircuitFileIO ev = new SimEvents.CircuitFileIO();
+        ev.begin();
+        try {
+            // saved as binary v2; Load still reads the older text files
+            cf.writeBinary(f.toPath());
         } catch (IOException ex) {
             ex.printStackTrace();
+            return;
+        }
+        if (ev.shouldCommit()) {
+            ev.operation = "save";
+            ev.file = f.getPath();
+            ev.bytes = f.length();
+            ev.ics = ics.size();
+            ev.wires = wires.size();
+            ev.commit();
         }
+        long t2 = System.nanoTime();
+        stage.setTitle(String.format("%s – %s saved: %d ICs, %d wires in %.1f ms (collect %.1f, write %.1f)", TITLE,
+            f.getName(), ics.size(), wires.size(), (t2 - t0) / 1e6, (t1 - t0) / 1e6, (t2 - t1) / 1e6));
     }
 
     private void loadCircuit(Stage stage) {
@@ -1842,94 +2579,93 @@ private void clearConnections() {
         fc.getExtensionFilters().add(new FileChooser.ExtensionFilter("Virtual IC file", "*.vic"));
         File f = fc.showOpenDialog(stage);
         if (f == null) return;
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            // clear current
-            for (Wire w : new ArrayList<>(wires)) w.remove();
-            wires.clear();
-            for (ICBase ic : new ArrayList<>(ics)) { board.getChildren().remove(ic.group); ics.remove(ic); }
-            for (ExternalLED l : new ArrayList<>(externalLEDs)) { board.getChildren().remove(l.group); externalLEDs.remove(l); }
-            for (ExternalSwitch s : new ArrayList<>(externalSwitches)) { board.getChildren().remove(s.group); externalSwitches.remove(s); }
-
-            Map<String, ICBase> icMap = new HashMap<>();
-            Map<String, ExternalSwitch> swMap = new HashMap<>();
-            Map<String, ExternalLED> ledMap = new HashMap<>();
-
-            List<String> wireLines = new ArrayList<>();
-
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
-                if (line.startsWith("POWER=")) {
-                    powerToggle.setSelected(Boolean.parseBoolean(line.substring(6)));
-                    stylePowerButton();
-                    continue;
-                }
-                String[] toks = line.split(",");
-                switch (toks[0]) {
-                    case "SW" -> {
-                        int idx = Integer.parseInt(toks[1]);
-                        double lx = Double.parseDouble(toks[2]);
-                        double ly = Double.parseDouble(toks[3]);
-                        boolean on = Boolean.parseBoolean(toks[4]);
-                        ExternalSwitch s = new ExternalSwitch(lx, ly, idx + 1);
-                        s.group.setLayoutX(lx); s.group.setLayoutY(ly);
-                        s.tb.setSelected(on); s.tb.setText(on ? "1" : "0");
-                        s.node.setFill(on ? Color.LIMEGREEN : Color.DARKRED);
-                        s.pin.setValue(on);
-                        externalSwitches.add(s);
-                        board.getChildren().add(s.group);
-                        swMap.put("SW" + idx, s);
-                    }
-                    case "LED" -> {
-                        int idx = Integer.parseInt(toks[1]);
-                        double lx = Double.parseDouble(toks[2]);
-                        double ly = Double.parseDouble(toks[3]);
-                        ExternalLED l = new ExternalLED(lx, ly, idx + 1);
-                        l.group.setLayoutX(lx); l.group.setLayoutY(ly);
-                        externalLEDs.add(l);
-                        board.getChildren().add(l.group);
-                        ledMap.put("LED" + idx, l);
-                    }
-                    case "IC" -> {
-                        int idx = Integer.parseInt(toks[1]);
-                        String name = toks[2];
-                        double lx = Double.parseDouble(toks[3]);
-                        double ly = Double.parseDouble(toks[4]);
-                        ICBase ic;
-                        switch (name) {
-                            case "7400", "7400 NAND" -> ic = new IC7400(lx, ly);
-                            case "7402", "7402 NOR" -> ic = new IC7402(lx, ly);
-                            case "7408", "7408 AND" -> ic = new IC7408(lx, ly);
-                            case "7432", "7432 OR" -> ic = new IC7432(lx, ly);
-                            case "7404", "7404 NOT" -> ic = new IC7404(lx, ly);
-                            case "7486", "7486 XOR" -> ic = new IC7486(lx, ly);
-                            case "7487", "7487 XNOR" -> ic = new IC7487(lx, ly);
-                            default -> ic = new IC7400(lx, ly);
-                        }
-                        ic.group.setLayoutX(lx); ic.group.setLayoutY(ly);
-                        ics.add(ic);
-                        board.getChildren().add(ic.group);
-                        icMap.put("IC" + idx, ic);
-                    }
-                    case "WIRE" -> wireLines.add(line);
-                }
-            }
-
-            // second pass: add wires
-            for (String wln : wireLines) {
-                String[] toks = wln.split(",");
-                if (toks.length < 5) continue;
-                String aStr = toks[1], bStr = toks[2];
-                int pinA = Integer.parseInt(toks[3]);
-                int pinB = Integer.parseInt(toks[4]);
-                Pin pa = findPinByKey(aStr, pinA, icMap, swMap, ledMap);
-                Pin pb = findPinByKey(bStr, pinB, icMap, swMap, ledMap);
-                if (pa != null && pb != null) createWire(pa, pb);
-            }
-
-            evaluateAll();
+        long t0 = System.nanoTime();
+        SimEvents.CircuitFileIO ev = new SimEvents.CircuitFileIO();
+        ev.begin();
+        CircuitFile cf;
+        try {
+            cf = CircuitFile.read(f.toPath());
         } catch (IOException ex) {
             ex.printStackTrace();
+            return;
+        }
+        long t1 = System.nanoTime();
+        // clear current, in bulk: one removal pass over the board's children
+        removeAllWires();
+        Set<Node> old = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ICBase ic : ics) old.add(ic.group);
+        for (ExternalLED l : externalLEDs) old.add(l.group);
+        for (ExternalSwitch s : externalSwitches) old.add(s.group);
+        board.getChildren().removeAll(old);
+        ics.clear();
+        externalLEDs.clear();
+        externalSwitches.clear();
+        markNetlistDirty();
+
+        Map<String, ICBase> icMap = new HashMap<>();
+        Set<String> unknown = new LinkedHashSet<>(); // chip types missing from the library
+        Map<String, ExternalSwitch> swMap = new HashMap<>();
+        Map<String, ExternalLED> ledMap = new HashMap<>();
+
+        powerToggle.setSelected(cf.power);
+        stylePowerButton();
+        for (CircuitFile.Switch rec : cf.switches) {
+            ExternalSwitch s = new ExternalSwitch(rec.x, rec.y, rec.index + 1);
+            s.group.setLayoutX(rec.x); s.group.setLayoutY(rec.y);
+            s.tb.setSelected(rec.on); s.tb.setText(rec.on ? "1" : "0");
+            markDirty(s);
+            s.pin.value = rec.on;
+            externalSwitches.add(s);
+            board.getChildren().add(s.group);
+            swMap.put("SW" + rec.index, s);
+        }
+        for (CircuitFile.Led rec : cf.leds) {
+            ExternalLED l = new ExternalLED(rec.x, rec.y, rec.index + 1);
+            l.group.setLayoutX(rec.x); l.group.setLayoutY(rec.y);
+            externalLEDs.add(l);
+            board.getChildren().add(l.group);
+            ledMap.put("LED" + rec.index, l);
+        }
+        for (CircuitFile.Chip rec : cf.chips) {
+            double lx = rec.x, ly = rec.y;
+            ChipSpec spec = ChipSpec.forName(rec.name);
+            if (spec == null) { unknown.add(rec.name); continue; }
+            ICBase ic = new ICBase(spec, lx, ly);
+            ics.add(ic);
+            board.getChildren().add(ic.group);
+            icMap.put("IC" + rec.index, ic);
+        }
+
+        // second pass: add wires, then compile and evaluate once for the whole board
+        List<Node> paths = new ArrayList<>(cf.wires.size());
+        for (CircuitFile.Wire rec : cf.wires) {
+            Pin pa = findPinByKey(rec.a, rec.pinA, icMap, swMap, ledMap);
+            Pin pb = findPinByKey(rec.b, rec.pinB, icMap, swMap, ledMap);
+            if (pa == null || pb == null) continue;
+            Wire w = new Wire(pa, pb, false);
+            wires.add(w);
+            paths.add(w.path);
+        }
+        board.getChildren().addAll(0, paths);
+        long t2 = System.nanoTime();
+
+        evaluateAll();
+        // the pass runs on the simulation thread; commands run in order, so this waits for it
+        sim.call(() -> null).join();
+        long t3 = System.nanoTime();
+        // the event spans the whole load: read, rebuild and first evaluation
+        if (ev.shouldCommit()) {
+            ev.operation = "load";
+            ev.file = f.getPath();
+            ev.bytes = f.length();
+            ev.ics = ics.size();
+            ev.wires = wires.size();
+            ev.commit();
+        }
+        stage.setTitle(String.format("%s – %s loaded: %d ICs, %d wires in %.1f ms (read %.1f, build %.1f, evaluate %.1f)",
+            TITLE, f.getName(), ics.size(), wires.size(), (t3 - t0) / 1e6, (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6));
+        if (!unknown.isEmpty()) {
+            new Alert(Alert.AlertType.WARNING, "Skipped unknown IC types (and their wires): " + String.join(", ", unknown)).showAndWait();
         }
     }
     // ---------- Drag Helpers ----------
@@ -1948,7 +2684,7 @@ private void makeDraggable(Group g) {
         if (e.getButton() != MouseButton.PRIMARY) return;
         g.setLayoutX(e.getSceneX() - dragDelta.x);
         g.setLayoutY(e.getSceneY() - dragDelta.y);
-        for (Wire w : wires) w.redraw(); // refresh wires dynamically
+        redrawWiresAt(g); // only the wires attached to this group move
     });
 }
 
@@ -1963,7 +2699,7 @@ private void makeDraggable(Pane p) {
         if (e.getButton() != MouseButton.PRIMARY) return;
         p.setLayoutX(e.getSceneX() - dragDelta.x);
         p.setLayoutY(e.getSceneY() - dragDelta.y);
-        for (Wire w : wires) w.redraw(); // refresh wire geometry
+        redrawWiresAt(p); // refresh wire geometry
     });
 }
 
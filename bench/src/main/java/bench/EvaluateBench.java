@@ -0,0 +1,85 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sim.BoardGenerator;
+import sim.CircuitFile;
+import sim.EventSimulator;
+import sim.LevelizedSchedule;
+import sim.Netlist;
+
+/**
+ * Whole-board work on generated boards: the levelized pass behind {@code evaluateAll()}, one
+ * switch flip through the event queue, and the netlist rebuild that follows an edit. A
+ * {@code dag} board is random gates 20 layers deep; an {@code adder} is a ripple-carry adder of
+ * about the same IC count, whose carry chain makes it deep and narrow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluateBench {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int ics;
+
+    @Param({ "dag", "adder" })
+    public String shape;
+
+    private CircuitFile board;
+    private Netlist n;
+    private LevelizedSchedule schedule;
+    private EventSimulator sim;
+    private int[] switches;
+    private int step;
+
+    @Setup
+    public void setup() {
+        board = shape.equals("adder")
+            ? BoardGenerator.adder(Math.max(1, ics * 4 / 5), 100)
+            : BoardGenerator.dag(ics, 8, 8, 2, 0, 20, 42, 100);
+        CircuitFile.Compiled c = board.compile();
+        n = c.netlist;
+        schedule = new LevelizedSchedule(n);
+        schedule.evaluate();
+        sim = new EventSimulator(n);
+        switches = c.switchNets;
+    }
+
+    @Benchmark
+    public boolean evaluateAll() {
+        step++;
+        for (int i = 0; i < switches.length; i++) n.set(switches[i], (step >>> i & 1) != 0);
+        boolean stable = schedule.evaluate();
+        n.clearChanges();
+        return stable;
+    }
+
+    @Benchmark
+    public boolean driveSwitch() {
+        step++;
+        sim.drive(switches[step & 7], (step & 8) != 0);
+        boolean settled = sim.run();
+        n.clearChanges();
+        return settled;
+    }
+
+    @Benchmark
+    public Netlist compile() {
+        return board.compile().netlist;
+    }
+}
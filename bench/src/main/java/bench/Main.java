@@ -0,0 +1,23 @@
+package bench;
+
+import java.util.Arrays;
+
+/**
+ * Entry point of {@code benchmarks.jar}: JMH's own command line, with the GC profiler added
+ * unless {@code -prof} is given, so every run reports allocation rate next to ops/s.
+ */
+public final class Main {
+
+    private Main() { }
+
+    public static void main(String[] args) throws Exception {
+        if (!Arrays.asList(args).contains("-prof")) {
+            String[] a = new String[args.length + 2];
+            a[0] = "-prof";
+            a[1] = "gc";
+            System.arraycopy(args, 0, a, 2, args.length);
+            args = a;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,93 @@
+package bench;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sim.BoardGenerator;
+import sim.CircuitFile;
+import sim.EventSimulator;
+import sim.LevelizedSchedule;
+import sim.Netlist;
+import sim.PartitionedSimulator;
+import sim.TruthTableEngine;
+
+/**
+ * A lab board of eight unrelated exercises, each a random board of {@code ics} gate chips with
+ * two switches, evaluated whole and split one part per exercise on the common pool. The
+ * {@code whole} benchmarks are the single-threaded baseline; the pass speed-up is bounded by the
+ * pool's parallelism, while a split table wins on one core too (eight 4-row tables instead of
+ * one of 65536 rows).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionBench {
+
+    @Param({ "100", "1000" })
+    public int ics;
+
+    private Netlist whole, split;
+    private LevelizedSchedule schedule;
+    private EventSimulator sim;
+    private PartitionedSimulator parts;
+    private int[] switches, leds;
+    private int step;
+
+    @Setup
+    public void setup() {
+        CircuitFile board = BoardGenerator.exercises(8, ics, 2, 2, 42, 100);
+        CircuitFile.Compiled c = board.compile();
+        whole = c.netlist;
+        schedule = new LevelizedSchedule(whole);
+        sim = new EventSimulator(whole);
+        switches = c.switchNets;
+        leds = c.ledNets;
+        split = board.compile().netlist;
+        parts = new PartitionedSimulator(split, 8, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public boolean wholeEvaluate() {
+        step++;
+        for (int i = 0; i < switches.length; i++) whole.set(switches[i], (step >>> (i & 7) & 1) != 0);
+        boolean stable = schedule.evaluate();
+        sim.scheduleRegisters();
+        stable &= sim.run();
+        whole.clearChanges();
+        return stable;
+    }
+
+    @Benchmark
+    public boolean partitionedEvaluate() {
+        step++;
+        for (int i = 0; i < switches.length; i++) split.set(switches[i], (step >>> (i & 7) & 1) != 0);
+        boolean stable = parts.evaluate();
+        split.clearChanges();
+        return stable;
+    }
+
+    @Benchmark
+    public TruthTableEngine.Result wholeTable() {
+        return new TruthTableEngine(whole, schedule).compute(switches, leds);
+    }
+
+    @Benchmark
+    public TruthTableEngine.Result partitionedTable() {
+        return parts.truthTable(switches, leds);
+    }
+}
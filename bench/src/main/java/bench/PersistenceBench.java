@@ -0,0 +1,83 @@
+package bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sim.BoardGenerator;
+import sim.CircuitFile;
+
+/**
+ * The file half of {@code saveCircuit}/{@code loadCircuit}: binary v2 through a temp file, and
+ * the older text format in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersistenceBench {
+
+    @Param({ "100", "1000", "10000" })
+    public int ics;
+
+    private CircuitFile board;
+    private Path binary, scratch;
+    private String text;
+
+    @Setup
+    public void setup() throws IOException {
+        board = BoardGenerator.dag(ics, 8, 8, 2, 0, 20, 42, 100);
+        binary = Files.createTempFile("bench", ".vic");
+        scratch = Files.createTempFile("bench", ".vic");
+        board.writeBinary(binary);
+        StringWriter w = new StringWriter();
+        board.writeText(w);
+        text = w.toString();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(binary);
+        Files.deleteIfExists(scratch);
+    }
+
+    @Benchmark
+    public void saveBinary() throws IOException {
+        board.writeBinary(scratch);
+    }
+
+    @Benchmark
+    public CircuitFile loadBinary() throws IOException {
+        return CircuitFile.read(binary);
+    }
+
+    @Benchmark
+    public String saveText() {
+        StringWriter w = new StringWriter(text.length());
+        board.writeText(w);
+        return w.toString();
+    }
+
+    @Benchmark
+    public CircuitFile loadText() throws IOException {
+        return CircuitFile.readText(new StringReader(text));
+    }
+}
@@ -0,0 +1,61 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sim.BoardGenerator;
+import sim.CircuitFile;
+import sim.EventSimulator;
+import sim.LevelizedSchedule;
+import sim.Netlist;
+
+/**
+ * A switch flip travelling down an inverter chain: the board's {@code driveSource} path
+ * (what {@code Pin.setValue} propagation became), one event per gate of depth.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropagationBench {
+
+    @Param({ "10", "100", "1000", "10000" })
+    public int depth;
+
+    private Netlist n;
+    private EventSimulator sim;
+    private int in, out;
+    private boolean level;
+
+    @Setup
+    public void setup() {
+        CircuitFile.Compiled c = BoardGenerator.chain(depth, 100).compile();
+        n = c.netlist;
+        new LevelizedSchedule(n).evaluate();
+        sim = new EventSimulator(n);
+        in = c.switchNets[0];
+        out = c.ledNets[0];
+    }
+
+    @Benchmark
+    public boolean toggle() {
+        level = !level;
+        sim.drive(in, level);
+        sim.run();
+        n.clearChanges();
+        return n.get(out);
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sim.BoardGenerator;
+import sim.ChipSpec;
+import sim.CircuitFile;
+import sim.LevelizedSchedule;
+import sim.TruthTableEngine;
+
+/**
+ * Both Truth Table paths: a chip's own table ({@code generateTruthTableForIC}) and the
+ * external-switch table over a generated random board of 200 gate chips.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TruthTableBench {
+
+    @State(Scope.Benchmark)
+    public static class Chip {
+        @Param({ "2x1 MUX", "4x1 MUX", "8x1 MUX" })
+        public String chip;
+
+        ChipSpec spec;
+
+        @Setup
+        public void setup() {
+            spec = ChipSpec.forName(chip);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Board {
+        @Param({ "4", "8", "12", "16" })
+        public int inputs;
+
+        TruthTableEngine engine;
+        int[] switchNets, ledNets;
+
+        @Setup
+        public void setup() {
+            CircuitFile.Compiled c = BoardGenerator.dag(200, inputs, 8, 2, 0, 20, 7, 100).compile();
+            engine = new TruthTableEngine(c.netlist, new LevelizedSchedule(c.netlist));
+            switchNets = c.switchNets;
+            ledNets = c.ledNets;
+        }
+    }
+
+    @Benchmark
+    public List<String[]> chipTable(Chip s) {
+        return s.spec.tableRows(new ArrayList<>());
+    }
+
+    @Benchmark
+    public TruthTableEngine.Result switchTable(Board s) {
+        return s.engine.compute(s.switchNets, s.ledNets);
+    }
+}
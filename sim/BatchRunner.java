@@ -0,0 +1,230 @@
+package sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless grading entry point: loads {@code .vic} boards (text or binary v2), applies input
+ * vectors to their switches and prints the LED outputs. Touches nothing from JavaFX, so it runs
+ * without a display.
+ *
+ * <pre>
+ *   java sim.BatchRunner [-v vectors.txt | --exhaustive | --reference ref.vic] [--timing] [--stats] board.vic...
+ * </pre>
+ *
+ * A vector is a line of 0/1 characters, switch SW0 first; missing switches read 0, blank lines
+ * and lines starting with {@code #} are skipped. Without {@code -v} vectors come from stdin.
+ * {@code --exhaustive} enumerates every switch combination through {@link TruthTableEngine}.
+ * Boards are split into unrelated sub-circuits ({@link PartitionedSimulator}), which run in
+ * parallel on large boards, and whose tables only cover their own switches.
+ * Output is one tab-separated line per vector: file, vector, LED states (LED0 first). A board
+ * whose feedback loop does not settle gets a trailing {@code unstable}. Boards are simulated
+ * powered on, whatever their saved POWER flag.
+ *
+ * <p>{@code --reference} grades each board against a reference board with the
+ * {@link EquivalenceChecker} instead of printing outputs: switches and LEDs are paired by
+ * position, and the line is {@code equivalent} with the method used, or {@code differs} with a
+ * counterexample vector and the first LED that disagrees ({@code LEDj=<board>/<reference>}).
+ * The exit status is 1 when any board differs or fails to load.
+ *
+ * <p>{@code --timing} applies each vector through the {@link TimingSimulator} with the chips'
+ * propagation delays, adds {@code settle=<ns>} (time from the switch change to the last event)
+ * and lists any LED hazard as {@code LEDi:<pulse>}.
+ *
+ * <p>{@code --stats} prints each board's {@link SimMetrics} to stderr after its vectors: one pass
+ * for the initial evaluation and one per vector.
+ */
+public final class BatchRunner {
+
+    private BatchRunner() { }
+
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        String vectorFile = null, referenceFile = null;
+        boolean exhaustive = false, timing = false, stats = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-v", "--vectors" -> {
+                    if (++i == args.length) usage();
+                    vectorFile = args[i];
+                }
+                case "--exhaustive" -> exhaustive = true;
+                case "--reference" -> {
+                    if (++i == args.length) usage();
+                    referenceFile = args[i];
+                }
+                case "--timing" -> timing = true;
+                case "--stats" -> stats = true;
+                case "-h", "--help" -> usage();
+                default -> files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) usage();
+
+        CircuitFile.Compiled reference = referenceFile == null ? null : CircuitFile.read(Path.of(referenceFile)).compile();
+        List<boolean[]> vectors = exhaustive || reference != null ? null : readVectors(vectorFile);
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        int failed = 0;
+        for (String file : files) {
+            try {
+                CircuitFile.Compiled c = CircuitFile.read(Path.of(file)).compile();
+                SimMetrics metrics = stats && reference == null ? new SimMetrics() : null;
+                if (reference != null) {
+                    if (!runEquivalence(file, c, reference, out)) failed++;
+                } else if (exhaustive) runExhaustive(file, c, out);
+                else if (timing) runTimed(file, c, vectors, out, metrics);
+                else runVectors(file, c, vectors, out, metrics);
+                if (metrics != null) {
+                    out.flush();
+                    System.err.println(file + "\t" + metrics.snapshot());
+                }
+            } catch (IOException | RuntimeException ex) {
+                failed++;
+                System.err.println(file + "\tERROR\t" + ex.getMessage());
+            }
+        }
+        out.flush();
+        if (failed > 0) System.exit(1);
+    }
+
+    private static void usage() {
+        System.err.println("usage: java sim.BatchRunner [-v vectors.txt | --exhaustive | --reference ref.vic] [--timing] [--stats] board.vic...");
+        System.exit(2);
+    }
+
+    static List<boolean[]> readVectors(String file) throws IOException {
+        BufferedReader r = file == null
+            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8);
+        List<boolean[]> vectors = new ArrayList<>();
+        try (r) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                boolean[] v = new boolean[line.length()];
+                int k = 0;
+                for (int i = 0; i < line.length(); i++) {
+                    char ch = line.charAt(i);
+                    if (ch == '0' || ch == '1') v[k++] = ch == '1';
+                    else if (!Character.isWhitespace(ch) && ch != ',') throw new IOException("Bad vector: " + line);
+                }
+                vectors.add(Arrays.copyOf(v, k));
+            }
+        }
+        return vectors;
+    }
+
+    // Switches change between vectors by diffing, so each vector only costs its fan-out cones;
+    // large boards of unrelated sub-circuits run them in parallel.
+    static void runVectors(String file, CircuitFile.Compiled c, List<boolean[]> vectors, PrintStream out,
+                           SimMetrics metrics) {
+        Netlist n = c.netlist;
+        PartitionedSimulator sim = new PartitionedSimulator(n);
+        long t0 = System.nanoTime();
+        boolean stable = sim.evaluate();
+        if (metrics != null) {
+            metrics.pass(System.nanoTime() - t0, sim.evaluations(), n.transitions(), sim.lastDepth());
+        }
+        StringBuilder sb = new StringBuilder();
+        boolean[] levels = new boolean[c.switchNets.length];
+        for (boolean[] v : vectors) {
+            long e0 = sim.evaluations(), x0 = n.transitions();
+            t0 = System.nanoTime();
+            for (int i = 0; i < levels.length; i++) levels[i] = i < v.length && v[i];
+            boolean settled = sim.drive(c.switchNets, levels);
+            if (metrics != null) {
+                metrics.pass(System.nanoTime() - t0, sim.evaluations() - e0, n.transitions() - x0, sim.lastDepth());
+            }
+            sb.setLength(0);
+            sb.append(file).append('\t');
+            for (int i = 0; i < c.switchNets.length; i++) sb.append(i < v.length && v[i] ? '1' : '0');
+            sb.append('\t');
+            for (int net : c.ledNets) sb.append(n.get(net) ? '1' : '0');
+            if (!settled || !stable) sb.append("\tunstable");
+            stable = true;
+            out.println(sb);
+        }
+    }
+
+    static void runTimed(String file, CircuitFile.Compiled c, List<boolean[]> vectors, PrintStream out,
+                         SimMetrics metrics) {
+        Netlist n = c.netlist;
+        EventSimulator sim = new EventSimulator(n);
+        boolean stable = new LevelizedSchedule(n).evaluate();
+        sim.scheduleRegisters();
+        stable &= sim.run();
+        TimingSimulator ts = new TimingSimulator(n);
+        ts.resync();
+        for (int net : c.ledNets) ts.watch(net);
+        StringBuilder sb = new StringBuilder();
+        for (boolean[] v : vectors) {
+            ts.rest();
+            ts.clearHazards();
+            long start = ts.now(), e0 = ts.events(), x0 = n.transitions(), t0 = System.nanoTime();
+            for (int i = 0; i < c.switchNets.length; i++) ts.drive(c.switchNets[i], i < v.length && v[i]);
+            boolean settled = ts.run();
+            // in timing mode the depth is the settle time in ns
+            if (metrics != null) {
+                metrics.pass(System.nanoTime() - t0, ts.events() - e0, n.transitions() - x0, ts.lastEventTime() - start);
+            }
+            sb.setLength(0);
+            sb.append(file).append('\t');
+            for (int i = 0; i < c.switchNets.length; i++) sb.append(i < v.length && v[i] ? '1' : '0');
+            sb.append('\t');
+            for (int net : c.ledNets) sb.append(n.get(net) ? '1' : '0');
+            sb.append("\tsettle=").append(Math.max(0, ts.lastEventTime() - start)).append("ns");
+            for (TimingSimulator.Hazard h : ts.hazards()) {
+                for (int j = 0; j < c.ledNets.length; j++) {
+                    if (c.ledNets[j] == h.net) sb.append("\tLED").append(j).append(':').append(h);
+                }
+            }
+            if (!settled || !stable) sb.append("\tunstable");
+            stable = true;
+            out.println(sb);
+        }
+    }
+
+    static void runExhaustive(String file, CircuitFile.Compiled c, PrintStream out) {
+        int k = c.switchNets.length;
+        if (k > 20) throw new IllegalArgumentException(k + " switches is too many for --exhaustive");
+        // one part per sub-circuit: each enumerates only the switches it reads
+        PartitionedSimulator p = new PartitionedSimulator(c.netlist, Integer.MAX_VALUE, ForkJoinPool.commonPool());
+        TruthTableEngine.Result t = p.truthTable(c.switchNets, c.ledNets);
+        StringBuilder sb = new StringBuilder();
+        for (long row = 0; row < t.rows(); row++) {
+            sb.setLength(0);
+            sb.append(file).append('\t');
+            for (int i = 0; i < k; i++) sb.append((row >>> i & 1) != 0 ? '1' : '0');
+            sb.append('\t');
+            for (int j = 0; j < t.outputs; j++) sb.append(t.get(row, j) ? '1' : '0');
+            out.println(sb);
+        }
+    }
+
+    static boolean runEquivalence(String file, CircuitFile.Compiled c, CircuitFile.Compiled reference, PrintStream out) {
+        EquivalenceChecker.Result r = new EquivalenceChecker(c.netlist, c.switchNets, c.ledNets,
+                                                             reference.netlist, reference.switchNets, reference.ledNets).check();
+        StringBuilder sb = new StringBuilder();
+        sb.append(file).append('\t');
+        if (r.equivalent) {
+            sb.append("equivalent\t").append(r.method.name().toLowerCase());
+        } else {
+            sb.append("differs\t");
+            for (boolean v : r.counterexample) sb.append(v ? '1' : '0');
+            sb.append("\tLED").append(r.output).append('=').append(r.studentValue ? '1' : '0')
+              .append('/').append(r.referenceValue ? '1' : '0');
+        }
+        out.println(sb);
+        return r.equivalent;
+    }
+}
@@ -0,0 +1,330 @@
+package sim;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reduced ordered binary decision diagrams. Nodes live in flat arrays and are hash-consed
+ * through a unique table, so equal functions are the same node and comparing them is an int
+ * comparison. Every operation goes through {@link #ite} (or {@link #restrict}) and a
+ * direct-mapped operation cache. Variable i sits at level i, 0 on top. Nodes are never freed;
+ * a manager throws once it would pass its node limit. Not thread-safe.
+ */
+public final class Bdd implements SymbolicNetlist.Logic {
+
+    public static final int FALSE = 0, TRUE = 1;
+    /** Value of a don't-care input in {@link #rows}. */
+    public static final byte X = 2;
+    /** 2M nodes, about 40 MB with the unique table. */
+    public static final int DEFAULT_NODE_LIMIT = 1 << 21;
+
+    private static final int CACHE_SIZE = 1 << 18;
+    private static final int RESTRICT = -1;   // cache tag in the third operand; ite's is a node
+
+    private final int vars, nodeLimit;
+    private int[] var = new int[1024], lo = new int[1024], hi = new int[1024];
+    private int size;
+    private int[] unique = new int[2048];     // open addressing over node ids, 0 = empty slot
+    private final int[] cacheF = new int[CACHE_SIZE], cacheG = new int[CACHE_SIZE], cacheH = new int[CACHE_SIZE];
+    private final int[] cacheR = new int[CACHE_SIZE];
+
+    public Bdd(int vars) { this(vars, DEFAULT_NODE_LIMIT); }
+
+    public Bdd(int vars, int nodeLimit) {
+        this.vars = vars;
+        this.nodeLimit = nodeLimit;
+        var[FALSE] = var[TRUE] = vars;   // terminals sit below every variable
+        size = 2;
+        Arrays.fill(cacheF, -1);
+    }
+
+    public int vars() { return vars; }
+
+    /** Nodes allocated so far, terminals included. */
+    public int size() { return size; }
+
+    public int var(int i) {
+        if (i < 0 || i >= vars) throw new IllegalArgumentException("No variable " + i);
+        return make(i, FALSE, TRUE);
+    }
+
+    /** Level of {@code f}'s top variable; {@link #vars()} for the terminals. */
+    public int level(int f) { return var[f]; }
+
+    public int low(int f) { return lo[f]; }
+
+    public int high(int f) { return hi[f]; }
+
+    private int make(int v, int l, int h) {
+        if (l == h) return l;
+        int mask = unique.length - 1;
+        int slot = hash(v, l, h) & mask;
+        for (int id; (id = unique[slot]) != 0; slot = (slot + 1) & mask) {
+            if (var[id] == v && lo[id] == l && hi[id] == h) return id;
+        }
+        if (size == nodeLimit) throw new IllegalStateException("BDD grew past " + nodeLimit + " nodes");
+        if (size == var.length) {
+            int cap = Math.min(2 * size, nodeLimit);
+            var = Arrays.copyOf(var, cap);
+            lo = Arrays.copyOf(lo, cap);
+            hi = Arrays.copyOf(hi, cap);
+        }
+        int id = size++;
+        var[id] = v;
+        lo[id] = l;
+        hi[id] = h;
+        unique[slot] = id;
+        if (2 * size > unique.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        unique = new int[2 * unique.length];
+        int mask = unique.length - 1;
+        for (int id = 2; id < size; id++) {
+            int slot = hash(var[id], lo[id], hi[id]) & mask;
+            while (unique[slot] != 0) slot = (slot + 1) & mask;
+            unique[slot] = id;
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b * 0x85EBCA77 + c * 0xC2B2AE3D;
+        return h ^ (h >>> 15);
+    }
+
+    // ---------- OPERATIONS ----------
+    /** {@code f ? g : h} */
+    public int ite(int f, int g, int h) {
+        if (f == TRUE) return g;
+        if (f == FALSE) return h;
+        if (g == f) g = TRUE;
+        if (h == f) h = FALSE;
+        if (g == h) return g;
+        if (g == TRUE && h == FALSE) return f;
+        int slot = hash(f, g, h) & (CACHE_SIZE - 1);
+        if (cacheF[slot] == f && cacheG[slot] == g && cacheH[slot] == h) return cacheR[slot];
+        int v = Math.min(var[f], Math.min(var[g], var[h]));
+        int t = ite(cofactor(f, v, true), cofactor(g, v, true), cofactor(h, v, true));
+        int e = ite(cofactor(f, v, false), cofactor(g, v, false), cofactor(h, v, false));
+        int r = make(v, e, t);
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheR[slot] = r;
+        return r;
+    }
+
+    private int cofactor(int f, int v, boolean value) {
+        return var[f] != v ? f : value ? hi[f] : lo[f];
+    }
+
+    public int not(int f) { return ite(f, FALSE, TRUE); }
+    public int and(int f, int g) { return ite(f, g, FALSE); }
+    public int or(int f, int g) { return ite(f, TRUE, g); }
+    public int xor(int f, int g) { return ite(f, not(g), g); }
+
+    /** {@code f} with variable {@code v} fixed to {@code value}. */
+    public int restrict(int f, int v, boolean value) {
+        if (var[f] > v) return f;
+        if (var[f] == v) return value ? hi[f] : lo[f];
+        int key = 2 * v + (value ? 1 : 0);
+        int slot = hash(f, key, RESTRICT) & (CACHE_SIZE - 1);
+        if (cacheF[slot] == f && cacheG[slot] == key && cacheH[slot] == RESTRICT) return cacheR[slot];
+        int r = make(var[f], restrict(lo[f], v, value), restrict(hi[f], v, value));
+        cacheF[slot] = f;
+        cacheG[slot] = key;
+        cacheH[slot] = RESTRICT;
+        cacheR[slot] = r;
+        return r;
+    }
+
+    /** A LUT over {@code in}, built from the same Shannon expansion the table engine compiles. */
+    public int lut(long[] lut, int[] in) {
+        return SymbolicNetlist.lut(lut, in, this);
+    }
+
+    @Override public int zero() { return FALSE; }
+    @Override public int one() { return TRUE; }
+    @Override public int mux(int x, int lo, int hi) { return ite(x, hi, lo); }
+
+    // ---------- QUERIES ----------
+    public boolean isSatisfiable(int f) { return f != FALSE; }
+
+    /** Assignments of all {@link #vars()} variables that satisfy {@code f}. */
+    public BigInteger satCount(int f) {
+        return count(f, new HashMap<>()).shiftLeft(var[f]);
+    }
+
+    // satisfying assignments of the variables from f's level down
+    private BigInteger count(int f, Map<Integer, BigInteger> memo) {
+        if (f == FALSE) return BigInteger.ZERO;
+        if (f == TRUE) return BigInteger.ONE;
+        BigInteger c = memo.get(f);
+        if (c == null) {
+            c = count(lo[f], memo).shiftLeft(var[lo[f]] - var[f] - 1)
+                .add(count(hi[f], memo).shiftLeft(var[hi[f]] - var[f] - 1));
+            memo.put(f, c);
+        }
+        return c;
+    }
+
+    /** Fraction of all assignments that satisfy {@code f}. */
+    public double density(int f) {
+        return density(f, new HashMap<>());
+    }
+
+    private double density(int f, Map<Integer, Double> memo) {
+        if (f <= TRUE) return f;
+        Double d = memo.get(f);
+        if (d == null) memo.put(f, d = (density(lo[f], memo) + density(hi[f], memo)) / 2);
+        return d;
+    }
+
+    /** One satisfying assignment, variables off the path left 0; null when {@code f} is FALSE. */
+    public boolean[] satisfying(int f) {
+        if (f == FALSE) return null;
+        boolean[] a = new boolean[vars];
+        while (f != TRUE) {
+            boolean up = lo[f] == FALSE;
+            a[var[f]] = up;
+            f = up ? hi[f] : lo[f];
+        }
+        return a;
+    }
+
+    public boolean eval(int f, boolean[] assignment) {
+        while (f > TRUE) f = assignment[var[f]] ? hi[f] : lo[f];
+        return f == TRUE;
+    }
+
+    /** Distinct inner nodes reachable from {@code roots}. */
+    public int nodeCount(int... roots) {
+        boolean[] seen = new boolean[size];
+        int[] stack = new int[size + roots.length];
+        int sp = 0, count = 0;
+        for (int f : roots) stack[sp++] = f;
+        while (sp > 0) {
+            int g = stack[--sp];
+            if (g <= TRUE || seen[g]) continue;
+            seen[g] = true;
+            count++;
+            stack[sp++] = lo[g];
+            stack[sp++] = hi[g];
+        }
+        return count;
+    }
+
+    /** Variables {@code f} depends on, by level. */
+    public boolean[] support(int f) {
+        boolean[] s = new boolean[vars];
+        boolean[] seen = new boolean[size];
+        int[] stack = new int[size];
+        int sp = 0;
+        stack[sp++] = f;
+        while (sp > 0) {
+            int g = stack[--sp];
+            if (g <= TRUE || seen[g]) continue;
+            seen[g] = true;
+            s[var[g]] = true;
+            stack[sp++] = lo[g];
+            stack[sp++] = hi[g];
+        }
+        return s;
+    }
+
+    // ---------- COVERS AND TABLES ----------
+    /**
+     * An irredundant sum-of-products for {@code f} (Minato-Morreale ISOP). No cube can be dropped
+     * and no literal removed from a cube. A cube lists its literals as {@code v + 1} or
+     * {@code -(v + 1)}. Null when more than {@code maxCubes} cubes would be needed.
+     */
+    public List<int[]> cover(int f, int maxCubes) {
+        List<int[]> cubes = new ArrayList<>();
+        try {
+            isop(f, f, cubes, maxCubes);
+        } catch (TooLarge ex) {
+            return null;
+        }
+        return cubes;
+    }
+
+    private static final class TooLarge extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        TooLarge() { super(null, null, false, false); }
+    }
+
+    // covers some function between lower and upper; appends its cubes and returns the cover
+    private int isop(int lower, int upper, List<int[]> out, int maxCubes) {
+        if (lower == FALSE) return FALSE;
+        if (upper == TRUE) {
+            if (out.size() == maxCubes) throw new TooLarge();
+            out.add(new int[0]);
+            return TRUE;
+        }
+        int v = Math.min(var[lower], var[upper]);
+        int l0 = cofactor(lower, v, false), l1 = cofactor(lower, v, true);
+        int u0 = cofactor(upper, v, false), u1 = cofactor(upper, v, true);
+        int from = out.size();
+        int c0 = isop(and(l0, not(u1)), u0, out, maxCubes);
+        prefix(out, from, -(v + 1));
+        from = out.size();
+        int c1 = isop(and(l1, not(u0)), u1, out, maxCubes);
+        prefix(out, from, v + 1);
+        int rest = or(and(l0, not(c0)), and(l1, not(c1)));
+        int cd = isop(rest, and(u0, u1), out, maxCubes);
+        return or(ite(var(v), c1, c0), cd);
+    }
+
+    private static void prefix(List<int[]> cubes, int from, int literal) {
+        for (int i = from; i < cubes.size(); i++) {
+            int[] c = cubes.get(i);
+            int[] p = new int[c.length + 1];
+            p[0] = literal;
+            System.arraycopy(c, 0, p, 1, c.length);
+            cubes.set(i, p);
+        }
+    }
+
+    /**
+     * Exact table of {@code roots} with don't-cares: each row holds one value per variable
+     * (0, 1 or {@link #X}) and then each root's output, and stands for every assignment it
+     * matches. Rows are disjoint, cover all assignments, and come in variable order with 0
+     * before 1. Null when there would be more than {@code limit} rows.
+     */
+    public List<byte[]> rows(int[] roots, int limit) {
+        List<byte[]> out = new ArrayList<>();
+        byte[] row = new byte[vars + roots.length];
+        Arrays.fill(row, 0, vars, X);
+        try {
+            rows(roots.clone(), row, out, limit);
+        } catch (TooLarge ex) {
+            return null;
+        }
+        return out;
+    }
+
+    private void rows(int[] nodes, byte[] row, List<byte[]> out, int limit) {
+        int v = vars;
+        for (int f : nodes) v = Math.min(v, var[f]);
+        if (v == vars) {
+            if (out.size() == limit) throw new TooLarge();
+            byte[] r = row.clone();
+            for (int j = 0; j < nodes.length; j++) r[vars + j] = (byte) nodes[j];
+            out.add(r);
+            return;
+        }
+        for (int b = 0; b < 2; b++) {
+            int[] next = new int[nodes.length];
+            for (int j = 0; j < nodes.length; j++) next[j] = cofactor(nodes[j], v, b == 1);
+            row[v] = (byte) b;
+            rows(next, row, out, limit);
+        }
+        row[v] = X;
+    }
+}
@@ -0,0 +1,326 @@
+package sim;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic boards for scale and load testing, built from the library's own IC types and written
+ * as {@code .vic} files the board and {@link BatchRunner} load like any other.
+ *
+ * <pre>
+ *   java sim.BoardGenerator adder --bits 64 -o adder64.vic
+ *   java sim.BoardGenerator mux --levels 3 -o mux512.vic
+ *   java sim.BoardGenerator chain --depth 30000 -o chain.vic
+ *   java sim.BoardGenerator dag --ics 5000 --inputs 16 --outputs 16 --fanin 3 --fanout 4 --depth 50 -o dag.vic
+ *   java sim.BoardGenerator exercises --count 8 --ics 500 --inputs 4 --outputs 2 -o lab.vic
+ * </pre>
+ *
+ * Boards are written as binary v2 unless {@code --text} is given, and are saved powered on.
+ * Gates are packed into chips in allocation order, so a quad chip holds four neighbouring gates.
+ * ICs are laid out on a grid {@code --columns} wide (default 10).
+ */
+public final class BoardGenerator {
+
+    /** One end of a wire: a component key ("SW0", "IC12") and its pin (0 for switches). */
+    public static final class Net {
+        public final String key;
+        public final int pin;
+
+        Net(String key, int pin) {
+            this.key = key;
+            this.pin = pin;
+        }
+    }
+
+    private final CircuitFile cf = new CircuitFile();
+    private final int columns;
+    private Pool[] pools = new Pool[0];
+
+    public BoardGenerator(int columns) {
+        this.columns = Math.max(1, columns);
+        cf.power = true;
+    }
+
+    public CircuitFile board() { return cf; }
+
+    public Net addSwitch() {
+        int i = cf.switches.size();
+        cf.switches.add(new CircuitFile.Switch(i, 40, 100 + i % 12 * 60, false));
+        return new Net("SW" + i, 0);
+    }
+
+    public void addLed(Net from) {
+        int i = cf.leds.size();
+        cf.leds.add(new CircuitFile.Led(i, 1220, 120 + i % 12 * 60));
+        wire(from, new Net("LED" + i, 0));
+    }
+
+    public void wire(Net a, Net b) {
+        cf.wires.add(new CircuitFile.Wire(a.key, b.key, a.pin, b.pin));
+    }
+
+    /** A new chip of the given type; returns its key. */
+    public String addChip(ChipSpec spec) {
+        int c = cf.chips.size();
+        cf.chips.add(new CircuitFile.Chip(c, spec.name, 160 + c % columns * 120, 110 + c / columns * 100));
+        return "IC" + c;
+    }
+
+    /**
+     * Takes the next free gate of {@code type}, opening a new chip when the current one is full,
+     * and wires {@code in} to its inputs in pin order. Returns the gate's output.
+     */
+    public Net gate(String type, Net... in) {
+        Pool p = pool(type);
+        if (p.key == null || p.next == p.gates.length) {
+            p.key = addChip(p.spec);
+            p.next = 0;
+        }
+        ChipSpec.Gate g = p.gates[p.next++];
+        if (g.in.length != in.length) throw new IllegalArgumentException(type + " gates take " + g.in.length + " inputs");
+        for (int i = 0; i < in.length; i++) wire(in[i], new Net(p.key, g.in[i]));
+        return new Net(p.key, g.out);
+    }
+
+    private Pool pool(String type) {
+        for (Pool p : pools) if (p.type.equals(type)) return p;
+        ChipSpec spec = ChipSpec.forName(type);
+        if (spec == null) throw new IllegalArgumentException("Unknown IC type: " + type);
+        Pool p = new Pool(type, spec);
+        pools = Arrays.copyOf(pools, pools.length + 1);
+        pools[pools.length - 1] = p;
+        return p;
+    }
+
+    private static final class Pool {
+        final String type;
+        final ChipSpec spec;
+        final ChipSpec.Gate[] gates;
+        String key;
+        int next;
+
+        Pool(String type, ChipSpec spec) {
+            this.type = type;
+            this.spec = spec;
+            this.gates = spec.gates();
+        }
+    }
+
+    // ---------- CIRCUITS ----------
+    /**
+     * N-bit ripple-carry adder from 7486/7408/7432: switches A0..An-1, B0..Bn-1, Cin; LEDs
+     * S0..Sn-1, Cout. Five gates per bit; the carry chain is 2n gates deep.
+     */
+    public static CircuitFile adder(int bits, int columns) {
+        BoardGenerator g = new BoardGenerator(columns);
+        Net[] a = new Net[bits], b = new Net[bits];
+        for (int i = 0; i < bits; i++) a[i] = g.addSwitch();
+        for (int i = 0; i < bits; i++) b[i] = g.addSwitch();
+        Net carry = g.addSwitch();
+        Net[] sum = new Net[bits];
+        for (int i = 0; i < bits; i++) {
+            Net half = g.gate("7486", a[i], b[i]);
+            sum[i] = g.gate("7486", half, carry);
+            Net generate = g.gate("7408", a[i], b[i]);
+            Net propagate = g.gate("7408", half, carry);
+            carry = g.gate("7432", generate, propagate);
+        }
+        for (Net s : sum) g.addLed(s);
+        g.addLed(carry);
+        return g.board();
+    }
+
+    // 8x1 MUX data pins in select order; I6 is the GND pin on this part and reads 0
+    private static final int[] MUX_DATA = { 1, 2, 3, 4, 5, 6, -1, 8 };
+    private static final int[] MUX_SELECT = { 9, 10, 11 };
+    private static final int MUX_OUT = 12;
+
+    /**
+     * Balanced tree of 8x1 MUXes, {@code levels} deep (8^levels leaves, (8^levels - 1) / 7
+     * chips). Each level has its own three select switches, the root's first; leaves read
+     * {@code inputs} data switches in rotation. One LED on the root output.
+     */
+    public static CircuitFile muxTree(int levels, int inputs, int columns) {
+        BoardGenerator g = new BoardGenerator(columns);
+        Net[][] select = new Net[levels][3];
+        for (Net[] s : select) for (int k = 0; k < 3; k++) s[k] = g.addSwitch();
+        Net[] data = new Net[Math.max(1, inputs)];
+        for (int i = 0; i < data.length; i++) data[i] = g.addSwitch();
+        ChipSpec mux = ChipSpec.forName("8x1 MUX");
+        // build bottom-up: each level's outputs are the next level's data
+        List<Net> layer = new ArrayList<>();
+        int leaves = 1;
+        for (int l = 1; l < levels; l++) leaves *= 8;
+        for (int i = 0; i < leaves * 8; i++) layer.add(data[i % data.length]);
+        for (int l = levels - 1; l >= 0; l--) {
+            List<Net> up = new ArrayList<>();
+            for (int m = 0; m < layer.size(); m += 8) {
+                String key = g.addChip(mux);
+                for (int k = 0; k < 8; k++) if (MUX_DATA[k] > 0) g.wire(layer.get(m + k), new Net(key, MUX_DATA[k]));
+                for (int k = 0; k < 3; k++) g.wire(select[l][k], new Net(key, MUX_SELECT[k]));
+                up.add(new Net(key, MUX_OUT));
+            }
+            layer = up;
+        }
+        g.addLed(layer.get(0));
+        return g.board();
+    }
+
+    /** SW0 through {@code depth} inverters (rounded up to whole 7404s) to LED0. */
+    public static CircuitFile chain(int depth, int columns) {
+        BoardGenerator g = new BoardGenerator(columns);
+        Net n = g.addSwitch();
+        int gates = (depth + 5) / 6 * 6;
+        for (int i = 0; i < gates; i++) n = g.gate("7404", n);
+        g.addLed(n);
+        return g.board();
+    }
+
+    private static final String[] GATES2 = { "7400", "7408", "7432", "7486" };
+    private static final String[] GATES3 = { "NAND3", "AND3", "OR3", "XOR3" };
+
+    /**
+     * Random acyclic board. {@code ics} chips' worth of gates are split evenly across
+     * {@code depth} layers; every gate input reads a net from the layer below (switches are
+     * layer 0), or from any lower layer one time in eight. A net feeds at most {@code fanout}
+     * gate inputs while the layer below still has a free one (0 means no limit). Fan-in 2 uses
+     * quad 2-input chips, fan-in 3 the single 3-input chips. The last {@code outputs} gates drive
+     * the LEDs. The same seed gives the same board.
+     */
+    public static CircuitFile dag(int ics, int inputs, int outputs, int fanin, int fanout, int depth, long seed,
+                                  int columns) {
+        if (fanin != 2 && fanin != 3) throw new IllegalArgumentException("fan-in must be 2 or 3");
+        BoardGenerator g = new BoardGenerator(columns);
+        g.randomLayers(ics, inputs, outputs, fanin, fanout, depth, new Random(seed));
+        return g.board();
+    }
+
+    /**
+     * {@code count} unrelated exercises on one board, as in a lab session: each is a random
+     * {@link #dag} of {@code ics} 2-input chips' worth of gates, 20 layers deep, with its own
+     * {@code inputs} switches and {@code outputs} LEDs. Nothing but VCC/GND is shared between
+     * them.
+     */
+    public static CircuitFile exercises(int count, int ics, int inputs, int outputs, long seed, int columns) {
+        BoardGenerator g = new BoardGenerator(columns);
+        Random rnd = new Random(seed);
+        for (int e = 0; e < count; e++) {
+            // gates are pooled per type; a fresh pool keeps each exercise on chips of its own
+            g.pools = new Pool[0];
+            g.randomLayers(ics, inputs, outputs, 2, 0, 20, rnd);
+        }
+        return g.board();
+    }
+
+    private void randomLayers(int ics, int inputs, int outputs, int fanin, int fanout, int depth, Random rnd) {
+        String[] types = fanin == 2 ? GATES2 : GATES3;
+        int total = fanin == 2 ? 4 * ics : ics;
+        depth = Math.max(1, Math.min(depth, total));
+
+        List<List<Net>> layers = new ArrayList<>();
+        List<int[]> used = new ArrayList<>();
+        List<Net> sw = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, inputs); i++) sw.add(addSwitch());
+        layers.add(sw);
+        used.add(new int[sw.size()]);
+        List<Net> all = new ArrayList<>(sw);
+        // one gate type per chip, so whole chips fill before the next type opens
+        int made = 0;
+        String type = null;
+        for (int l = 1; l <= depth; l++) {
+            int count = total * l / depth - total * (l - 1) / depth;
+            List<Net> below = layers.get(l - 1);
+            int[] belowUsed = used.get(l - 1);
+            List<Net> layer = new ArrayList<>(count);
+            for (int k = 0; k < count; k++) {
+                if (made++ % (fanin == 2 ? 4 : 1) == 0) type = types[rnd.nextInt(types.length)];
+                Net[] in = new Net[fanin];
+                for (int i = 0; i < fanin; i++) {
+                    if (rnd.nextInt(8) == 0) { in[i] = all.get(rnd.nextInt(all.size())); continue; }
+                    int pick = rnd.nextInt(below.size());
+                    // look for a net with fan-out left; give up after a lap of the layer
+                    for (int tries = 0; fanout > 0 && belowUsed[pick] >= fanout && tries < below.size(); tries++) {
+                        pick = (pick + 1) % below.size();
+                    }
+                    belowUsed[pick]++;
+                    in[i] = below.get(pick);
+                }
+                layer.add(gate(type, in));
+            }
+            if (layer.isEmpty()) break;
+            layers.add(layer);
+            used.add(new int[layer.size()]);
+            all.addAll(layer);
+        }
+        for (int i = 0; i < outputs && i < all.size() - sw.size(); i++) addLed(all.get(all.size() - 1 - i));
+    }
+
+    // ---------- COMMAND LINE ----------
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) usage();
+        String kind = args[0], out = null;
+        boolean text = false;
+        int bits = 8, levels = 2, depth = 100, ics = 1000, inputs = 16, outputs = 8, fanin = 2, fanout = 0, count = 8;
+        int columns = 10;
+        boolean depthGiven = false;
+        long seed = 1;
+        for (int i = 1; i < args.length; i++) {
+            String a = args[i];
+            if (a.equals("--text")) { text = true; continue; }
+            if (i + 1 == args.length) usage();
+            String v = args[++i];
+            switch (a) {
+                case "-o", "--out" -> out = v;
+                case "--bits" -> bits = Integer.parseInt(v);
+                case "--levels" -> levels = Integer.parseInt(v);
+                case "--depth" -> { depth = Integer.parseInt(v); depthGiven = true; }
+                case "--ics" -> ics = Integer.parseInt(v);
+                case "--inputs" -> inputs = Integer.parseInt(v);
+                case "--outputs" -> outputs = Integer.parseInt(v);
+                case "--fanin" -> fanin = Integer.parseInt(v);
+                case "--fanout" -> fanout = Integer.parseInt(v);
+                case "--seed" -> seed = Long.parseLong(v);
+                case "--columns" -> columns = Integer.parseInt(v);
+                case "--count" -> count = Integer.parseInt(v);
+                default -> usage();
+            }
+        }
+        if (out == null) usage();
+        CircuitFile cf = switch (kind) {
+            case "adder" -> adder(bits, columns);
+            case "mux" -> muxTree(levels, inputs, columns);
+            case "chain" -> chain(depth, columns);
+            case "dag" -> dag(ics, inputs, outputs, fanin, fanout, depthGiven ? depth : 20, seed, columns);
+            case "exercises" -> exercises(count, ics, inputs, outputs, seed, columns);
+            default -> { usage(); yield null; }
+        };
+        Path file = Path.of(out);
+        if (text) {
+            try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                cf.writeText(w);
+            }
+        } else {
+            cf.writeBinary(file);
+        }
+        System.err.printf("%s: %d ICs, %d wires, %d switches, %d LEDs%n", out, cf.chips.size(), cf.wires.size(),
+            cf.switches.size(), cf.leds.size());
+    }
+
+    private static void usage() {
+        System.err.println("usage: java sim.BoardGenerator adder|mux|chain|dag|exercises [options] -o board.vic [--text]");
+        System.err.println("  adder  --bits N                       N-bit ripple-carry adder");
+        System.err.println("  mux    --levels L --inputs K          8x1 MUX tree, L levels, K data switches");
+        System.err.println("  chain  --depth D                      7404 inverter chain");
+        System.err.println("  dag    --ics N --inputs K --outputs M --fanin 2|3 --fanout F --depth D --seed S");
+        System.err.println("  exercises --count E --ics N --inputs K --outputs M --seed S   E unrelated dags");
+        System.err.println("  --columns C                           IC grid width (default 10)");
+        System.exit(2);
+    }
+}
@@ -0,0 +1,512 @@
+package sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Registry of IC types parsed from {@code .ic} descriptor files (format documented at the top of
+ * {@code chips/74xx.ic}). The built-in library ships next to this class; any {@code *.ic} file in
+ * the directory named by the {@code vic.chips} system property (default {@code ./chips}) is read
+ * after it, and a later chip with the same title replaces the earlier one. Parsing happens once,
+ * on the first lookup.
+ */
+final class ChipLibrary {
+
+    private static final String BUILTIN = "chips/74xx.ic";
+    private static final int MAX_INPUTS = 16;
+
+    private final Map<String, ChipSpec> byTitle = new LinkedHashMap<>();
+    private final Map<String, ChipSpec> byName = new HashMap<>();
+
+    private static final class Holder {
+        static final ChipLibrary INSTANCE = load();
+    }
+
+    static ChipLibrary get() {
+        return Holder.INSTANCE;
+    }
+
+    ChipSpec lookup(String name) {
+        return name == null ? null : byName.get(name.trim().toUpperCase());
+    }
+
+    List<ChipSpec> all() {
+        return List.copyOf(byTitle.values());
+    }
+
+    private static ChipLibrary load() {
+        ChipLibrary lib = new ChipLibrary();
+        try (InputStream in = ChipLibrary.class.getResourceAsStream(BUILTIN)) {
+            if (in == null) throw new IllegalStateException("IC library " + BUILTIN + " is missing from the classpath");
+            lib.parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), BUILTIN);
+            Path dir = Path.of(System.getProperty("vic.chips", "chips"));
+            if (Files.isDirectory(dir)) {
+                List<Path> files = new ArrayList<>();
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*.ic")) {
+                    ds.forEach(files::add);
+                }
+                files.sort(null);
+                for (Path f : files) {
+                    try (BufferedReader r = Files.newBufferedReader(f, StandardCharsets.UTF_8)) {
+                        lib.parse(r, f.toString());
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        lib.index();
+        return lib;
+    }
+
+    private void index() {
+        byName.clear();
+        for (ChipSpec c : byTitle.values()) {
+            byName.put(c.name.toUpperCase(), c);
+            if (c.menuItem != null) byName.putIfAbsent(c.menuItem.toUpperCase(), c);
+            for (String a : c.aliases) byName.putIfAbsent(a.toUpperCase(), c);
+        }
+    }
+
+    // ---------- DESCRIPTOR PARSER ----------
+    /** A clocked output as parsed; {@code set}/{@code clear} are null when absent. */
+    static final class RegDef {
+        final int pin, clk;
+        final boolean rising;
+        final Expr next, set, clear;
+
+        RegDef(int pin, int clk, boolean rising, Expr next, Expr set, Expr clear) {
+            this.pin = pin;
+            this.clk = clk;
+            this.rising = rising;
+            this.next = next;
+            this.set = set;
+            this.clear = clear;
+        }
+    }
+
+    /** An output pin as parsed: an expression over pins, or an explicit table over listed pins. */
+    static final class Output {
+        final int pin;
+        final Expr expr;       // null for lut outputs
+        final int[] lutPins;
+        final long[] lut;
+
+        Output(int pin, Expr expr, int[] lutPins, long[] lut) {
+            this.pin = pin;
+            this.expr = expr;
+            this.lutPins = lutPins;
+            this.lut = lut;
+        }
+    }
+
+    private void parse(BufferedReader r, String source) throws IOException {
+        List<String> lines = new ArrayList<>();
+        List<Integer> numbers = new ArrayList<>();
+        String line;
+        int no = 0;
+        while ((line = r.readLine()) != null) {
+            no++;
+            int hash = line.indexOf('#');
+            if (hash >= 0) line = line.substring(0, hash);
+            if (line.isBlank()) continue;
+            // indented lines continue the previous directive
+            if (Character.isWhitespace(line.charAt(0)) && !lines.isEmpty()) {
+                lines.set(lines.size() - 1, lines.get(lines.size() - 1) + " " + line.trim());
+                continue;
+            }
+            lines.add(line.trim());
+            numbers.add(no);
+        }
+        Block b = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String l = lines.get(i);
+            int sp = l.indexOf(' ');
+            String key = sp < 0 ? l : l.substring(0, sp);
+            String arg = sp < 0 ? "" : l.substring(sp + 1).trim();
+            try {
+                if (key.equals("chip")) {
+                    if (b != null) throw new IllegalArgumentException("missing 'end' before chip " + arg);
+                    if (arg.isEmpty()) throw new IllegalArgumentException("chip needs a title");
+                    b = new Block(arg);
+                    continue;
+                }
+                if (b == null) throw new IllegalArgumentException("'" + key + "' outside a chip block");
+                switch (key) {
+                    case "alias" -> {
+                        for (String a : arg.split(",")) if (!a.isBlank()) b.aliases.add(a.trim());
+                    }
+                    case "menu" -> {
+                        int bar = arg.indexOf('|');
+                        b.menu = (bar < 0 ? arg : arg.substring(0, bar)).trim();
+                        if (bar >= 0) b.menuItem = arg.substring(bar + 1).trim();
+                    }
+                    case "at" -> {
+                        String[] t = arg.split("\\s+");
+                        b.x = Double.parseDouble(t[0]);
+                        b.y = Double.parseDouble(t[1]);
+                    }
+                    case "pins" -> {
+                        b.pins = Integer.parseInt(arg);
+                        if (b.pins != 14 && b.pins != 16) throw new IllegalArgumentException("pins must be 14 or 16");
+                    }
+                    case "delay" -> {
+                        b.delay = Integer.parseInt(arg);
+                        if (b.delay < 0) throw new IllegalArgumentException("negative delay");
+                    }
+                    case "gnd" -> b.gnd = pin(arg);
+                    case "vcc" -> b.vcc = pin(arg);
+                    case "in" -> {
+                        for (String t : arg.split("\\s+")) b.declare(t, ChipSpec.Role.IN);
+                    }
+                    case "out" -> b.output(arg);
+                    case "reg" -> b.reg(arg);
+                    case "table" -> b.showTable = true;
+                    case "end" -> {
+                        ChipSpec spec = b.build();
+                        byTitle.remove(spec.name);
+                        byTitle.put(spec.name, spec);
+                        b = null;
+                    }
+                    default -> throw new IllegalArgumentException("unknown directive '" + key + "'");
+                }
+            } catch (RuntimeException ex) {
+                throw new IOException(source + ":" + numbers.get(i) + ": " + ex.getMessage(), ex);
+            }
+        }
+        if (b != null) throw new IOException(source + ": chip " + b.name + " has no 'end'");
+    }
+
+    private static int pin(String s) {
+        int p = Integer.parseInt(s.trim());
+        if (p < 1 || p > ChipSpec.MAX_PINS) throw new IllegalArgumentException("no pin " + p);
+        return p;
+    }
+
+    private static final class Block {
+        final String name;
+        final List<String> aliases = new ArrayList<>();
+        String menu, menuItem;
+        double x = 200, y = 200;
+        int pins = 14;
+        int gnd, vcc;            // 0 until given; default to pins / 2 and pins
+        int delay = ChipSpec.DEFAULT_DELAY;
+        boolean showTable;
+        final ChipSpec.Role[] roles = new ChipSpec.Role[ChipSpec.MAX_PINS + 1];
+        final String[] labels = new String[ChipSpec.MAX_PINS + 1];
+        final boolean[] registered = new boolean[ChipSpec.MAX_PINS + 1];
+        final List<Output> outputs = new ArrayList<>();
+        // expression bodies are parsed at 'end', once every label in the block is known
+        final List<String[]> pendingOutputs = new ArrayList<>();
+        final List<String[]> pendingRegs = new ArrayList<>();
+
+        Block(String name) {
+            this.name = name;
+            Arrays.fill(roles, ChipSpec.Role.NC);
+        }
+
+        // "5" or "5:S0"
+        int declare(String token, ChipSpec.Role role) {
+            int colon = token.indexOf(':');
+            int p = pin(colon < 0 ? token : token.substring(0, colon));
+            if (roles[p] != ChipSpec.Role.NC) throw new IllegalArgumentException("pin " + p + " declared twice");
+            roles[p] = role;
+            if (colon >= 0) {
+                String label = token.substring(colon + 1);
+                if (label.isEmpty() || Character.isDigit(label.charAt(0)))
+                    throw new IllegalArgumentException("bad pin label '" + label + "'");
+                labels[p] = label;
+            }
+            return p;
+        }
+
+        void output(String arg) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("out needs '= <expr>' or 'lut <pins> = <hex>'");
+            String[] head = arg.substring(0, eq).trim().split("\\s+");
+            String body = arg.substring(eq + 1).trim();
+            int p = declare(head[0], ChipSpec.Role.OUT);
+            if (head.length == 1) {
+                pendingOutputs.add(new String[] {String.valueOf(p), body});
+                return;
+            }
+            if (!head[1].equals("lut") || head.length < 3) throw new IllegalArgumentException("expected 'lut <pins>'");
+            int[] in = new int[head.length - 2];
+            for (int i = 0; i < in.length; i++) in[i] = pin(head[i + 2]);
+            if (in.length > MAX_INPUTS) throw new IllegalArgumentException("more than " + MAX_INPUTS + " inputs");
+            long[] lut = new long[Math.max(1, (1 << in.length) >>> 6)];
+            String hex = body.startsWith("0x") || body.startsWith("0X") ? body.substring(2) : body;
+            hex = hex.replace("_", "");
+            for (int d = 0; d < hex.length(); d++) {
+                int nibble = Character.digit(hex.charAt(hex.length() - 1 - d), 16);
+                if (nibble < 0) throw new IllegalArgumentException("bad hex table '" + body + "'");
+                for (int bit = 0; bit < 4; bit++) {
+                    int row = d * 4 + bit;
+                    if ((nibble >> bit & 1) == 0) continue;
+                    if (row >= 1 << in.length) throw new IllegalArgumentException("table longer than 2^" + in.length + " rows");
+                    lut[row >>> 6] |= 1L << row;
+                }
+            }
+            outputs.add(new Output(p, null, in, lut));
+        }
+
+        // "5:Q rise 3 = D set !PRE clear !CLR"
+        void reg(String arg) {
+            int eq = arg.indexOf('=');
+            String[] head = eq < 0 ? new String[0] : arg.substring(0, eq).trim().split("\\s+");
+            if (head.length != 3 || !(head[1].equals("rise") || head[1].equals("fall")))
+                throw new IllegalArgumentException("reg needs '<pin> rise|fall <clock> = <expr>'");
+            int p = declare(head[0], ChipSpec.Role.OUT);
+            registered[p] = true;
+            pendingRegs.add(new String[] {String.valueOf(p), head[1], head[2], arg.substring(eq + 1).trim()});
+        }
+
+        int resolve(String operand) {
+            if (Character.isDigit(operand.charAt(0))) return pin(operand);
+            for (int p = 1; p <= ChipSpec.MAX_PINS; p++) if (operand.equals(labels[p])) return p;
+            throw new IllegalArgumentException("unknown pin label '" + operand + "'");
+        }
+
+        ChipSpec build() {
+            if (gnd == 0) gnd = pins / 2;
+            if (vcc == 0) vcc = pins;
+            for (int p = pins + 1; p <= ChipSpec.MAX_PINS; p++)
+                if (roles[p] != ChipSpec.Role.NC || p == gnd || p == vcc) throw new IllegalArgumentException("pin " + p + " on a " + pins + "-pin chip");
+            if (roles[gnd] != ChipSpec.Role.NC || roles[vcc] != ChipSpec.Role.NC)
+                throw new IllegalArgumentException("supply pin is also declared as a signal");
+            if (outputs.isEmpty() && pendingOutputs.isEmpty() && pendingRegs.isEmpty())
+                throw new IllegalArgumentException("chip " + name + " has no outputs");
+            roles[gnd] = ChipSpec.Role.GND;
+            roles[vcc] = ChipSpec.Role.VCC;
+            for (String[] o : pendingOutputs)
+                outputs.add(new Output(Integer.parseInt(o[0]), new ExprParser(o[1], this).parse(), null, null));
+            // combinational outputs read inputs and register outputs, never each other
+            for (Output o : outputs) {
+                for (int p : o.expr != null ? o.expr.pins(new boolean[ChipSpec.MAX_PINS + 1]) : o.lutPins) {
+                    if (roles[p] == ChipSpec.Role.NC || roles[p] == ChipSpec.Role.OUT && !registered[p])
+                        throw new IllegalArgumentException("output " + o.pin + " reads pin " + p + ", which is not an input");
+                }
+            }
+            List<RegDef> regs = new ArrayList<>();
+            for (String[] r : pendingRegs) {
+                int p = Integer.parseInt(r[0]);
+                int clk = resolve(r[2]);
+                if (roles[clk] != ChipSpec.Role.IN && !registered[clk])
+                    throw new IllegalArgumentException("register " + p + " is clocked by pin " + clk + ", which is not an input");
+                // split "<next> set <expr> clear <expr>" on the keywords
+                String[] parts = r[3].split("\\s+(?=(set|clear)\\s)");
+                Expr next = new ExprParser(parts[0], this).parse(), set = null, clear = null;
+                for (int i = 1; i < parts.length; i++) {
+                    boolean isSet = parts[i].startsWith("set");
+                    Expr e = new ExprParser(parts[i].substring(isSet ? 3 : 5), this).parse();
+                    if (isSet) set = e; else clear = e;
+                }
+                for (Expr e : new Expr[] {next, set, clear}) {
+                    if (e == null) continue;
+                    for (int q : e.pins(new boolean[ChipSpec.MAX_PINS + 1]))
+                        if (roles[q] == ChipSpec.Role.NC)
+                            throw new IllegalArgumentException("register " + p + " reads unconnected pin " + q);
+                }
+                regs.add(new RegDef(p, clk, r[1].equals("rise"), next, set, clear));
+            }
+            return new ChipSpec(name, aliases, menu, menu == null ? null : menuItem != null ? menuItem : name, x, y,
+                                pins, gnd, vcc, delay, showTable, roles, labels, outputs.toArray(new Output[0]),
+                                regs.toArray(new RegDef[0]));
+        }
+    }
+
+    // ---------- EXPRESSIONS ----------
+    // Precedence, tightest first: ! & ^ |
+    static final class Expr {
+        static final int PIN = 0, NOT = 1, AND = 2, XOR = 3, OR = 4;
+        final int op, value;
+        final Expr a, b;
+
+        Expr(int op, int value, Expr a, Expr b) {
+            this.op = op;
+            this.value = value;
+            this.a = a;
+            this.b = b;
+        }
+
+        /** Marks the pins read by this expression; returns them in ascending order. */
+        int[] pins(boolean[] seen) {
+            mark(seen);
+            int n = 0;
+            for (boolean s : seen) if (s) n++;
+            int[] out = new int[n];
+            for (int p = 0, k = 0; p < seen.length; p++) if (seen[p]) out[k++] = p;
+            return out;
+        }
+
+        private void mark(boolean[] seen) {
+            if (op == PIN) seen[value] = true;
+            if (a != null) a.mark(seen);
+            if (b != null) b.mark(seen);
+        }
+
+        // level[pin] is the pin's value for this row
+        boolean eval(boolean[] level) {
+            return switch (op) {
+                case PIN -> level[value];
+                case NOT -> !a.eval(level);
+                case AND -> a.eval(level) && b.eval(level);
+                case XOR -> a.eval(level) ^ b.eval(level);
+                default -> a.eval(level) || b.eval(level);
+            };
+        }
+    }
+
+    private static final class ExprParser {
+        private final String s;
+        private final Block chip;
+        private int pos;
+
+        ExprParser(String s, Block chip) {
+            this.s = s;
+            this.chip = chip;
+        }
+
+        Expr parse() {
+            Expr e = binary(Expr.OR);
+            skip();
+            if (pos < s.length()) throw new IllegalArgumentException("unexpected '" + s.charAt(pos) + "' in " + s);
+            return e;
+        }
+
+        private Expr binary(int op) {
+            if (op == Expr.NOT) return unary();
+            char sym = op == Expr.OR ? '|' : op == Expr.XOR ? '^' : '&';
+            Expr e = binary(op - 1);
+            while (true) {
+                skip();
+                if (pos >= s.length() || s.charAt(pos) != sym) return e;
+                pos++;
+                e = new Expr(op, 0, e, binary(op - 1));
+            }
+        }
+
+        private Expr unary() {
+            skip();
+            if (pos >= s.length()) throw new IllegalArgumentException("expression ends early: " + s);
+            char c = s.charAt(pos);
+            if (c == '!') {
+                pos++;
+                return new Expr(Expr.NOT, 0, unary(), null);
+            }
+            if (c == '(') {
+                pos++;
+                Expr e = binary(Expr.OR);
+                skip();
+                if (pos >= s.length() || s.charAt(pos) != ')') throw new IllegalArgumentException("missing ')' in " + s);
+                pos++;
+                return e;
+            }
+            int start = pos;
+            while (pos < s.length() && (Character.isLetterOrDigit(s.charAt(pos)) || s.charAt(pos) == '_')) pos++;
+            if (start == pos) throw new IllegalArgumentException("unexpected '" + c + "' in " + s);
+            return new Expr(Expr.PIN, chip.resolve(s.substring(start, pos)), null, null);
+        }
+
+        private void skip() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) pos++;
+        }
+    }
+
+    // ---------- LUT COMPILATION ----------
+    // identical tables are interned so every gate with the same function shares one long[]; the
+    // input count is part of the function, so a NOT's {1} and a NOR's {1} stay separate arrays
+    // (the engines cache their compiled programs per array)
+    private static final Map<TableKey, long[]> TABLES = new HashMap<>();
+
+    private static final class TableKey {
+        final long[] t;
+        final int inputs;
+
+        TableKey(long[] t, int inputs) {
+            this.t = t;
+            this.inputs = inputs;
+        }
+
+        @Override public boolean equals(Object o) {
+            return o instanceof TableKey && inputs == ((TableKey) o).inputs && Arrays.equals(t, ((TableKey) o).t);
+        }
+        @Override public int hashCode() { return 31 * Arrays.hashCode(t) + inputs; }
+    }
+
+    static ChipSpec.Gate[] compile(ChipSpec spec, Output[] outputs) {
+        ChipSpec.Gate[] gates = new ChipSpec.Gate[outputs.length];
+        for (int g = 0; g < outputs.length; g++) {
+            Output o = outputs[g];
+            if (o.expr == null) {
+                gates[g] = new ChipSpec.Gate(o.pin, o.lutPins, intern(o.lut, o.lutPins.length));
+                continue;
+            }
+            int[] in = inputs(spec, o.pin, o.expr);
+            gates[g] = new ChipSpec.Gate(o.pin, in, table(spec, in, o.expr));
+        }
+        return gates;
+    }
+
+    static ChipSpec.Reg[] compile(ChipSpec spec, RegDef[] defs) {
+        ChipSpec.Reg[] regs = new ChipSpec.Reg[defs.length];
+        for (int r = 0; r < defs.length; r++) {
+            RegDef d = defs[r];
+            // one index over everything the register reads, so the three tables line up
+            Expr all = d.next;
+            if (d.set != null) all = new Expr(Expr.OR, 0, all, d.set);
+            if (d.clear != null) all = new Expr(Expr.OR, 0, all, d.clear);
+            int[] in = inputs(spec, d.pin, all);
+            long[] force = null, forceValue = null;
+            if (d.set != null || d.clear != null) {
+                // set wins when both are active, which is what a 7474 shows on Q
+                Expr never = new Expr(Expr.PIN, spec.gnd, null, null);
+                Expr set = d.set != null ? d.set : never, clear = d.clear != null ? d.clear : never;
+                force = table(spec, in, new Expr(Expr.OR, 0, set, clear));
+                forceValue = table(spec, in, set);
+            }
+            regs[r] = new ChipSpec.Reg(d.pin, d.clk, d.rising, in, table(spec, in, d.next), force, forceValue);
+        }
+        return regs;
+    }
+
+    // supply pins read as constants and do not become LUT inputs
+    private static int[] inputs(ChipSpec spec, int out, Expr e) {
+        int[] read = e.pins(new boolean[ChipSpec.MAX_PINS + 1]);
+        int k = 0;
+        for (int p : read) if (p != spec.gnd && p != spec.vcc) k++;
+        if (k > MAX_INPUTS) throw new IllegalArgumentException(spec.name + " pin " + out + " reads more than " + MAX_INPUTS + " inputs");
+        int[] in = new int[k];
+        for (int p : read) if (p != spec.gnd && p != spec.vcc) in[--k] = p;
+        Arrays.sort(in);
+        return in;
+    }
+
+    private static long[] table(ChipSpec spec, int[] in, Expr e) {
+        boolean[] level = new boolean[ChipSpec.MAX_PINS + 1];
+        level[spec.vcc] = true;
+        long[] lut = new long[Math.max(1, (1 << in.length) >>> 6)];
+        for (int row = 0; row < 1 << in.length; row++) {
+            for (int i = 0; i < in.length; i++) level[in[i]] = (row >> i & 1) != 0;
+            if (e.eval(level)) lut[row >>> 6] |= 1L << row;
+        }
+        return intern(lut, in.length);
+    }
+
+    private static synchronized long[] intern(long[] lut, int inputs) {
+        return TABLES.computeIfAbsent(new TableKey(lut, inputs), key -> key.t);
+    }
+}
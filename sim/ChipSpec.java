@@ -0,0 +1,236 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Pin-level logic of one IC type: the role of every pin, a truth table per combinational output
+ * over the pins it reads, and a register per clocked output. Types come from the descriptor
+ * library ({@link ChipLibrary}); tables are compiled on first use and shared with every other
+ * output, on any type, that has the same table.
+ */
+public final class ChipSpec {
+
+    /** Default supply pins of the board's 14-pin DIP layout. */
+    public static final int GND_PIN = 7;
+    public static final int VCC_PIN = 14;
+    /** Largest package the board draws (16-pin DIP). */
+    public static final int MAX_PINS = 16;
+    /** Propagation delay, ns, of a type whose descriptor gives none. */
+    public static final int DEFAULT_DELAY = 10;
+
+    public enum Role { NC, IN, OUT, GND, VCC }
+
+    /** One output pin; {@code in[0]} is bit 0 of the LUT index. */
+    public static final class Gate {
+        public final int out;
+        public final int[] in;
+        public final long[] lut;
+
+        Gate(int out, int[] in, long[] lut) {
+            this.out = out;
+            this.in = in;
+            this.lut = lut;
+        }
+    }
+
+    /**
+     * One clocked output. On the active edge of {@code clk} the output takes {@code next}; while
+     * {@code force} is set for the current inputs (asynchronous set/clear) it holds
+     * {@code forceValue} regardless of the clock. {@code force} is null when there is no
+     * asynchronous control. All three tables share the index over {@code in}.
+     */
+    public static final class Reg {
+        public final int out, clk;
+        public final boolean rising;
+        public final int[] in;
+        public final long[] next, force, forceValue;
+
+        Reg(int out, int clk, boolean rising, int[] in, long[] next, long[] force, long[] forceValue) {
+            this.out = out;
+            this.clk = clk;
+            this.rising = rising;
+            this.in = in;
+            this.next = next;
+            this.force = force;
+            this.forceValue = forceValue;
+        }
+    }
+
+    public final String name;
+    public final List<String> aliases;
+    public final String menu;       // toolbar menu, null if the type is only loadable
+    public final String menuItem;
+    public final double x, y;       // default placement
+    public final int pins;          // package size, 14 or 16
+    public final int gnd, vcc;
+    public final int delay;         // tPD (clock-to-output for registers), ns, used in timing mode
+    public final boolean showTable; // Truth Table lists the chip's own table
+    private final Role[] roles;
+    private final String[] labels;
+    private final ChipLibrary.Output[] outputs;
+    private final ChipLibrary.RegDef[] regDefs;
+    private volatile Gate[] gates;
+    private volatile Reg[] regs;
+
+    ChipSpec(String name, List<String> aliases, String menu, String menuItem, double x, double y, int pins, int gnd,
+             int vcc, int delay, boolean showTable, Role[] roles, String[] labels, ChipLibrary.Output[] outputs,
+             ChipLibrary.RegDef[] regDefs) {
+        this.name = name;
+        this.aliases = Collections.unmodifiableList(aliases);
+        this.menu = menu;
+        this.menuItem = menuItem;
+        this.x = x;
+        this.y = y;
+        this.pins = pins;
+        this.gnd = gnd;
+        this.vcc = vcc;
+        this.delay = delay;
+        this.showTable = showTable;
+        this.roles = roles;
+        this.labels = labels;
+        this.outputs = outputs;
+        this.regDefs = regDefs;
+    }
+
+    /** Looks up a chip by board title, menu name, alias or part number; null if unknown. */
+    public static ChipSpec forName(String name) {
+        return ChipLibrary.get().lookup(name);
+    }
+
+    /** Every type in library order. */
+    public static List<ChipSpec> all() {
+        return ChipLibrary.get().all();
+    }
+
+    public Role role(int pin) {
+        return pin >= 1 && pin <= pins ? roles[pin] : Role.NC;
+    }
+
+    /** Descriptor label of a pin ("I0", "EN"), or null. */
+    public String label(int pin) {
+        return pin >= 1 && pin <= pins ? labels[pin] : null;
+    }
+
+    /** Combinational output gates, compiled on first call. */
+    public Gate[] gates() {
+        Gate[] g = gates;
+        if (g == null) {
+            synchronized (this) {
+                if ((g = gates) == null) gates = g = ChipLibrary.compile(this, outputs);
+            }
+        }
+        return g;
+    }
+
+    /** Clocked outputs, compiled on first call; empty for combinational chips. */
+    public Reg[] regs() {
+        Reg[] r = regs;
+        if (r == null) {
+            synchronized (this) {
+                if ((r = regs) == null) regs = r = ChipLibrary.compile(this, regDefs);
+            }
+        }
+        return r;
+    }
+
+    public boolean isSequential() {
+        return regDefs.length > 0;
+    }
+
+    /**
+     * The chip's own outputs as diagrams over its input pins, in pin order (a supply pin read
+     * as an input reads its level). Null when the type is not marked {@code table}.
+     */
+    public SymbolicTable symbolic() {
+        if (!showTable) return null;
+        List<Integer> inPins = pins(Role.IN), outPins = pins(Role.OUT);
+        Gate[] byOut = new Gate[MAX_PINS + 1];
+        for (Gate g : gates()) byOut[g.out] = g;
+        int k = inPins.size();
+        int[] order = new int[k];
+        for (int i = 0; i < k; i++) order[i] = i;
+        SymbolicTable.Circuit chip = (bdd, in) -> {
+            int[] pin = new int[MAX_PINS + 1];
+            for (int n = 1; n <= pins; n++) pin[n] = role(n) == Role.VCC ? Bdd.TRUE : Bdd.FALSE;
+            for (int i = 0; i < k; i++) pin[inPins.get(i)] = in[i];
+            int[] roots = new int[outPins.size()];
+            for (int j = 0; j < roots.length; j++) {
+                Gate g = byOut[outPins.get(j)];
+                int[] x = new int[g.in.length];
+                for (int b = 0; b < x.length; b++) x[b] = pin[g.in[b]];
+                roots[j] = bdd.lut(g.lut, x);
+            }
+            return roots;
+        };
+        return new SymbolicTable(k, order, chip, Bdd.DEFAULT_NODE_LIMIT).byInfluence();
+    }
+
+    private List<Integer> pins(Role r) {
+        List<Integer> list = new ArrayList<>();
+        for (int n = 1; n <= pins; n++) if (role(n) == r) list.add(n);
+        return list;
+    }
+
+    /**
+     * The chip's own truth table as display rows: input columns in pin order, then one column
+     * per output. Rows are exact with don't-cares: an X stands for both levels, so an 8x1 MUX
+     * takes 16 rows instead of 2048. They come in order of the inputs that decide the outputs
+     * most often, select lines and enables first. {@code headers} receives the pin labels (or
+     * numbers). Null when the type is not marked {@code table}.
+     */
+    public List<String[]> tableRows(List<String> headers) {
+        headers.clear();
+        if (!showTable) return null;
+        SimEvents.TruthTable e = new SimEvents.TruthTable();
+        e.begin();
+
+        for (int n : pins(Role.IN)) headers.add(label(n) != null ? label(n) : String.valueOf(n));
+        for (int n : pins(Role.OUT)) headers.add(label(n) != null ? label(n) : String.valueOf(n));
+
+        SymbolicTable t = symbolic();
+        List<String[]> rows = new ArrayList<>();
+        for (byte[] r : t.rows(Integer.MAX_VALUE)) {
+            String[] row = new String[r.length];
+            for (int i = 0; i < r.length; i++) row[i] = r[i] == Bdd.X ? "X" : r[i] == 1 ? "1" : "0";
+            rows.add(row);
+        }
+        if (e.shouldCommit()) {
+            e.source = name;
+            e.inputs = t.inputs;
+            e.outputs = t.outputs();
+            e.commit();
+        }
+        return rows;
+    }
+
+    /**
+     * Each output as a minimised sum of products over the input labels, as
+     * {@link SymbolicTable#expression} writes it, or its row count when that would take more
+     * than 32 products. Empty when the type is not marked {@code table}.
+     */
+    public List<String> tableExpressions() {
+        SymbolicTable t = symbolic();
+        if (t == null) return Collections.emptyList();
+        List<Integer> inPins = pins(Role.IN), outPins = pins(Role.OUT);
+        String[] names = new String[inPins.size()];
+        for (int i = 0; i < names.length; i++) names[i] = label(inPins.get(i)) != null ? label(inPins.get(i)) : String.valueOf(inPins.get(i));
+        List<String> out = new ArrayList<>();
+        for (int j = 0; j < t.outputs(); j++) {
+            int p = outPins.get(j);
+            String name = label(p) != null ? label(p) : String.valueOf(p);
+            String expr = t.expression(j, names, 32);
+            out.add(expr != null ? name + " = " + expr : name + " is 1 on " + t.onRows(j) + " of " + (1L << t.inputs) + " rows");
+        }
+        return out;
+    }
+
+    /** Truth table of {@code inputs} variables, bit i set when {@code f} accepts index i. */
+    public static long[] table(int inputs, IntPredicate f) {
+        long[] t = new long[Math.max(1, (1 << inputs) >>> 6)];
+        for (int i = 0; i < 1 << inputs; i++) if (f.test(i)) t[i >>> 6] |= 1L << i;
+        return t;
+    }
+}
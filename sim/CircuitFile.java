@@ -0,0 +1,349 @@
+package sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A {@code .vic} board as plain records: switches, LEDs, ICs and wires, with no JavaFX nodes.
+ * Wire ends name their component the way the text format does ({@code SW0}, {@code LED3},
+ * {@code IC12}) plus a pin number for IC ends. Boards are stored either in the original CSV
+ * text format or in the binary v2 format; {@link #read(Path)} accepts both.
+ */
+public final class CircuitFile {
+
+    public static final class Switch {
+        public final int index;
+        public final double x, y;
+        public final boolean on;
+
+        public Switch(int index, double x, double y, boolean on) {
+            this.index = index;
+            this.x = x;
+            this.y = y;
+            this.on = on;
+        }
+    }
+
+    public static final class Led {
+        public final int index;
+        public final double x, y;
+
+        public Led(int index, double x, double y) {
+            this.index = index;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static final class Chip {
+        public final int index;
+        public final String name;
+        public final double x, y;
+
+        public Chip(int index, String name, double x, double y) {
+            this.index = index;
+            this.name = name;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static final class Wire {
+        public final String a, b;
+        public final int pinA, pinB;
+
+        public Wire(String a, String b, int pinA, int pinB) {
+            this.a = a;
+            this.b = b;
+            this.pinA = pinA;
+            this.pinB = pinB;
+        }
+    }
+
+    public boolean power;
+    public final List<Switch> switches = new ArrayList<>();
+    public final List<Led> leds = new ArrayList<>();
+    public final List<Chip> chips = new ArrayList<>();
+    public final List<Wire> wires = new ArrayList<>();
+
+    // ---------- TEXT FORMAT ----------
+    /** Parses the CSV-style text format written by the board's Save button. */
+    public static CircuitFile readText(Reader in) throws IOException {
+        CircuitFile f = new CircuitFile();
+        BufferedReader br = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+        String line;
+        int lineNo = 0;
+        while ((line = br.readLine()) != null) {
+            lineNo++;
+            if (line.trim().isEmpty()) continue;
+            if (line.startsWith("POWER=")) {
+                f.power = Boolean.parseBoolean(line.substring(6).trim());
+                continue;
+            }
+            String[] t = line.split(",");
+            try {
+                switch (t[0]) {
+                    case "SW" -> f.switches.add(new Switch(Integer.parseInt(t[1]), num(t[2]), num(t[3]), Boolean.parseBoolean(t[4])));
+                    case "LED" -> f.leds.add(new Led(Integer.parseInt(t[1]), num(t[2]), num(t[3])));
+                    case "IC" -> f.chips.add(new Chip(Integer.parseInt(t[1]), t[2], num(t[3]), num(t[4])));
+                    case "WIRE" -> {
+                        if (t.length >= 5) f.wires.add(new Wire(t[1], t[2], Integer.parseInt(t[3]), Integer.parseInt(t[4])));
+                    }
+                    default -> { }
+                }
+            } catch (RuntimeException ex) {
+                throw new IOException("Malformed line " + lineNo + ": " + line, ex);
+            }
+        }
+        return f;
+    }
+
+    private static double num(String s) {
+        return Double.parseDouble(s.trim());
+    }
+
+    public void writeText(Writer out) {
+        PrintWriter pw = new PrintWriter(out);
+        pw.println("POWER=" + power);
+        for (Switch s : switches) pw.println(String.format(Locale.ROOT, "SW,%d,%.2f,%.2f,%b", s.index, s.x, s.y, s.on));
+        for (Led l : leds) pw.println(String.format(Locale.ROOT, "LED,%d,%.2f,%.2f", l.index, l.x, l.y));
+        for (Chip c : chips) pw.println(String.format(Locale.ROOT, "IC,%d,%s,%.2f,%.2f", c.index, c.name, c.x, c.y));
+        for (Wire w : wires) pw.println(String.format(Locale.ROOT, "WIRE,%s,%s,%d,%d", w.a, w.b, w.pinA, w.pinB));
+        pw.flush();
+    }
+
+    // ---------- BINARY FORMAT (v2) ----------
+    // Little-endian. Header (32 bytes):
+    //   int magic "VIC2", short version, short flags (bit 0 = power),
+    //   int strings, int switches, int leds, int chips, int wires
+    // String table: per string a ushort byte length and its UTF-8 bytes, padded to 4 bytes.
+    // Then fixed 16-byte records, in order:
+    //   switch: int index, float x, float y, int flags (bit 0 = on)
+    //   led:    int index, float x, float y, int 0
+    //   chip:   int index, int name (string table slot), float x, float y
+    //   wire:   byte kindA, byte kindB, byte pinA, byte pinB, int indexA, int indexB, int 0
+    public static final int MAGIC = 0x56494332;
+    public static final short VERSION = 2;
+    private static final int HEADER = 32, RECORD = 16;
+    private static final String[] KINDS = {"SW", "LED", "IC", "VCC", "GND", "EXT"};
+
+    /** Reads either format, chosen by the magic number. */
+    public static CircuitFile read(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (head.hasRemaining() && ch.read(head) >= 0) { }
+            if (head.position() == 4 && head.flip().getInt() == MAGIC) return readBinary(ch);
+        }
+        try (BufferedReader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return readText(r);
+        }
+    }
+
+    private static CircuitFile readBinary(FileChannel ch) throws IOException {
+        MappedByteBuffer map = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        map.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            map.getInt();
+            int version = map.getShort();
+            if (version > VERSION) throw new IOException("Unsupported .vic version " + version);
+            int flags = map.getShort();
+            int strings = map.getInt(), switches = map.getInt(), leds = map.getInt(), chips = map.getInt(), wires = map.getInt();
+            map.getInt();
+            if ((strings | switches | leds | chips | wires) < 0) throw new IOException("Corrupt .vic header");
+
+            String[] table = new String[strings];
+            byte[] buf = new byte[256];
+            for (int i = 0; i < strings; i++) {
+                int len = map.getShort() & 0xFFFF;
+                if (len > buf.length) buf = new byte[len];
+                map.get(buf, 0, len);
+                table[i] = new String(buf, 0, len, StandardCharsets.UTF_8);
+            }
+            map.position((map.position() + 3) & ~3);
+            long need = (long) map.position() + (long) RECORD * ((long) switches + leds + chips + wires);
+            if (need > map.limit()) throw new IOException("Truncated .vic file");
+
+            CircuitFile f = new CircuitFile();
+            f.power = (flags & 1) != 0;
+            for (int i = 0; i < switches; i++) {
+                int idx = map.getInt();
+                float x = map.getFloat(), y = map.getFloat();
+                f.switches.add(new Switch(idx, x, y, (map.getInt() & 1) != 0));
+            }
+            for (int i = 0; i < leds; i++) {
+                int idx = map.getInt();
+                float x = map.getFloat(), y = map.getFloat();
+                map.getInt();
+                f.leds.add(new Led(idx, x, y));
+            }
+            for (int i = 0; i < chips; i++) {
+                int idx = map.getInt(), name = map.getInt();
+                if (name < 0 || name >= strings) throw new IOException("Corrupt IC record " + i);
+                f.chips.add(new Chip(idx, table[name], map.getFloat(), map.getFloat()));
+            }
+            for (int i = 0; i < wires; i++) {
+                int ka = map.get(), kb = map.get(), pa = map.get(), pb = map.get();
+                int ia = map.getInt(), ib = map.getInt();
+                map.getInt();
+                f.wires.add(new Wire(key(ka, ia), key(kb, ib), pa, pb));
+            }
+            return f;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Corrupt .vic file", ex);
+        }
+    }
+
+    private static String key(int kind, int index) throws IOException {
+        if (kind < 0 || kind >= KINDS.length) throw new IOException("Corrupt wire end kind " + kind);
+        return kind < 3 ? KINDS[kind] + index : KINDS[kind];
+    }
+
+    public void writeBinary(Path file) throws IOException {
+        Map<String, Integer> slots = new HashMap<>();
+        List<byte[]> table = new ArrayList<>();
+        int[] chipName = new int[chips.size()];
+        int tableBytes = 0;
+        for (int i = 0; i < chipName.length; i++) {
+            String name = chips.get(i).name;
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                byte[] b = name.getBytes(StandardCharsets.UTF_8);
+                if (b.length > 0xFFFF) throw new IOException("IC name too long: " + name);
+                slots.put(name, slot = table.size());
+                table.add(b);
+                tableBytes += 2 + b.length;
+            }
+            chipName[i] = slot;
+        }
+        tableBytes = (tableBytes + 3) & ~3;
+        long size = HEADER + tableBytes + (long) RECORD * (switches.size() + leds.size() + chips.size() + wires.size());
+        if (size > Integer.MAX_VALUE) throw new IOException("Board too large for one .vic file");
+
+        ByteBuffer out = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        out.putInt(MAGIC).putShort(VERSION).putShort((short) (power ? 1 : 0));
+        out.putInt(table.size()).putInt(switches.size()).putInt(leds.size()).putInt(chips.size()).putInt(wires.size()).putInt(0);
+        for (byte[] b : table) out.putShort((short) b.length).put(b);
+        out.position(HEADER + tableBytes);
+        for (Switch s : switches) out.putInt(s.index).putFloat((float) s.x).putFloat((float) s.y).putInt(s.on ? 1 : 0);
+        for (Led l : leds) out.putInt(l.index).putFloat((float) l.x).putFloat((float) l.y).putInt(0);
+        for (int i = 0; i < chipName.length; i++) {
+            Chip c = chips.get(i);
+            out.putInt(c.index).putInt(chipName[i]).putFloat((float) c.x).putFloat((float) c.y);
+        }
+        for (Wire w : wires) {
+            int ka = kind(w.a), kb = kind(w.b);
+            out.put((byte) ka).put((byte) kb).put((byte) w.pinA).put((byte) w.pinB);
+            out.putInt(index(w.a, ka)).putInt(index(w.b, kb)).putInt(0);
+        }
+        out.flip();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) ch.write(out);
+        }
+    }
+
+    private static int kind(String key) {
+        for (int k = 0; k < 3; k++) if (key.startsWith(KINDS[k]) && key.length() > KINDS[k].length()
+                                         && Character.isDigit(key.charAt(KINDS[k].length()))) return k;
+        for (int k = 3; k < KINDS.length; k++) if (key.equals(KINDS[k])) return k;
+        return KINDS.length - 1;
+    }
+
+    private static int index(String key, int kind) {
+        return kind < 3 ? Integer.parseInt(key.substring(KINDS[kind].length())) : 0;
+    }
+
+    // ---------- COMPILATION ----------
+    /** A compiled board: the netlist plus the nets of each switch and LED, in record order. */
+    public static final class Compiled {
+        public final Netlist netlist;
+        public final int[] switchNets;
+        public final int[] ledNets;
+
+        Compiled(Netlist netlist, int[] switchNets, int[] ledNets) {
+            this.netlist = netlist;
+            this.switchNets = switchNets;
+            this.ledNets = ledNets;
+        }
+    }
+
+    /**
+     * Builds the netlist the board would simulate. Every IC gets pins 1..14 (or 16) with GND/VCC tied;
+     * wire ends that name no known component (clock, VCC/GND placeholders) are ignored.
+     *
+     * @throws IllegalArgumentException if an IC type is unknown
+     */
+    public Compiled compile() {
+        Netlist.Builder nb = new Netlist.Builder();
+        Map<String, Integer> firstPin = new HashMap<>();
+        Map<String, Integer> icPins = new HashMap<>();
+        int[] sw = new int[switches.size()];
+        for (int i = 0; i < sw.length; i++) {
+            sw[i] = nb.addPin();
+            firstPin.put("SW" + switches.get(i).index, sw[i]);
+        }
+        int[] led = new int[leds.size()];
+        for (int i = 0; i < led.length; i++) {
+            led[i] = nb.addPin();
+            firstPin.put("LED" + leds.get(i).index, led[i]);
+        }
+        ChipSpec[] specs = new ChipSpec[chips.size()];
+        int[] base = new int[chips.size()];
+        for (int i = 0; i < specs.length; i++) {
+            Chip c = chips.get(i);
+            specs[i] = ChipSpec.forName(c.name);
+            if (specs[i] == null) throw new IllegalArgumentException("Unknown IC type: " + c.name);
+            base[i] = nb.pinCount();
+            for (int p = 1; p <= specs[i].pins; p++) nb.addPin();
+            nb.tie(base[i] + specs[i].gnd - 1, false);
+            nb.tie(base[i] + specs[i].vcc - 1, true);
+            firstPin.put("IC" + c.index, base[i]);
+            icPins.put("IC" + c.index, specs[i].pins);
+        }
+        for (Wire w : wires) {
+            int a = resolve(firstPin, icPins, w.a, w.pinA), b = resolve(firstPin, icPins, w.b, w.pinB);
+            if (a >= 0 && b >= 0) nb.connect(a, b);
+        }
+        for (int i = 0; i < specs.length; i++) {
+            for (ChipSpec.Gate g : specs[i].gates()) {
+                int[] in = new int[g.in.length];
+                for (int k = 0; k < in.length; k++) in[k] = base[i] + g.in[k] - 1;
+                nb.setCellDelay(nb.addCell(g.lut, in, base[i] + g.out - 1), specs[i].delay);
+            }
+            for (ChipSpec.Reg r : specs[i].regs()) {
+                int[] in = new int[r.in.length];
+                for (int k = 0; k < in.length; k++) in[k] = base[i] + r.in[k] - 1;
+                nb.setRegDelay(nb.addReg(base[i] + r.clk - 1, r.rising, in, r.next, r.force, r.forceValue, base[i] + r.out - 1),
+                               specs[i].delay);
+            }
+        }
+        Netlist n = nb.build();
+        for (int i = 0; i < sw.length; i++) sw[i] = n.netOf(sw[i]);
+        for (int i = 0; i < led.length; i++) led[i] = n.netOf(led[i]);
+        return new Compiled(n, sw, led);
+    }
+
+    private static int resolve(Map<String, Integer> firstPin, Map<String, Integer> icPins, String key, int pin) {
+        Integer p = firstPin.get(key);
+        if (p == null) return -1;
+        if (!key.startsWith("IC")) return p;
+        return pin >= 1 && pin <= icPins.get(key) ? p + pin - 1 : -1;
+    }
+}
@@ -0,0 +1,145 @@
+package sim;
+
+/**
+ * Virtual-time driver for clocked boards. The clock is an event source on one net: every half
+ * period it toggles, the {@link EventSimulator} settles the fan-out, and virtual time advances by
+ * half a period. Nothing waits on the wall clock, so a run goes as fast as the netlist evaluates.
+ * One cycle is two edges, starting from whatever level the clock net holds.
+ *
+ * <p>Built on a {@link TimingSimulator} instead, each half period runs the gate delays up to the
+ * next edge, so logic slower than the clock shows up as wrong values rather than settling.
+ *
+ * <p>A kernel is driven from one thread at a time; only {@link #cancel()} may be called from
+ * another.
+ */
+public final class ClockKernel {
+
+    public enum Stop { DONE, CONDITION, UNSTABLE, CANCELLED }
+
+    /** Stop condition, tested after every settled edge. */
+    public interface Condition {
+        boolean test(Netlist n);
+    }
+
+    /** Called on the simulating thread after every {@code everyCycles}-th completed cycle. */
+    public interface Sampler {
+        void sample(ClockKernel k);
+    }
+
+    private final EventSimulator sim;
+    private final TimingSimulator timing;
+    private final Netlist n;
+    private final int clockNet;
+    private long halfPeriod;
+    private long now;        // virtual ns
+    private long edges;
+
+    private Sampler sampler;
+    private long sampleEvery;
+    private WaveRecorder recorder;
+    private long recordBase;
+    private volatile boolean cancelled;
+
+    public ClockKernel(EventSimulator sim, int clockNet, long periodNanos) {
+        this.sim = sim;
+        this.timing = null;
+        this.n = sim.netlist();
+        this.clockNet = clockNet;
+        setPeriod(periodNanos);
+    }
+
+    public ClockKernel(TimingSimulator timing, int clockNet, long periodNanos) {
+        this.sim = null;
+        this.timing = timing;
+        this.n = timing.netlist();
+        this.clockNet = clockNet;
+        setPeriod(periodNanos);
+    }
+
+    public void setPeriod(long periodNanos) {
+        if (periodNanos < 2) throw new IllegalArgumentException("clock period must be at least 2 ns");
+        halfPeriod = periodNanos / 2;
+    }
+
+    public long period() { return 2 * halfPeriod; }
+
+    /** Virtual time in ns since the kernel was created. */
+    public long now() { return now; }
+
+    public long cycles() { return edges >>> 1; }
+
+    public boolean clockLevel() { return n.get(clockNet); }
+
+    public Netlist netlist() { return n; }
+
+    /** Installs a sampler, or removes it when {@code s} is null or {@code everyCycles} is 0. */
+    public void setSampling(long everyCycles, Sampler s) {
+        sampler = everyCycles > 0 ? s : null;
+        sampleEvery = everyCycles;
+    }
+
+    /**
+     * Records the recorder's probes after every edge, with kernel time continuing from the
+     * recorder's latest time. On a timing engine the engine records instead, per event; give it
+     * the recorder with {@link TimingSimulator#setRecorder}.
+     */
+    public void setRecorder(WaveRecorder r) {
+        recorder = r;
+        if (r != null) recordBase = r.end() - now;
+    }
+
+    /** Asks a running {@code run*} call to return {@link Stop#CANCELLED} at the next edge. */
+    public void cancel() { cancelled = true; }
+
+    public Stop runCycles(long cycles) {
+        return run(2 * cycles, Long.MAX_VALUE, null);
+    }
+
+    /** Runs until {@code until} holds after an edge, giving up after {@code maxCycles}. */
+    public Stop runUntil(Condition until, long maxCycles) {
+        return run(2 * maxCycles, Long.MAX_VALUE, until);
+    }
+
+    /** Runs every edge that falls within the next {@code nanos} of virtual time. */
+    public Stop runFor(long nanos) {
+        return run(Long.MAX_VALUE, nanos, null);
+    }
+
+    private Stop run(long edgeBudget, long timeBudget, Condition until) {
+        SimEvents.ClockRun e = new SimEvents.ClockRun();
+        e.begin();
+        long edges0 = edges, now0 = now;
+        Stop stop = edges(edgeBudget, timeBudget, until);
+        if (e.shouldCommit()) {
+            e.cycles = (edges - edges0) >>> 1;
+            e.virtualTime = now - now0;
+            e.stop = stop.name();
+            e.commit();
+        }
+        return stop;
+    }
+
+    private Stop edges(long edgeBudget, long timeBudget, Condition until) {
+        cancelled = false;
+        long edgeEnd = edgeBudget == Long.MAX_VALUE ? Long.MAX_VALUE : edges + edgeBudget;
+        long timeEnd = timeBudget == Long.MAX_VALUE ? Long.MAX_VALUE : now + timeBudget;
+        while (edges < edgeEnd && now + halfPeriod <= timeEnd) {
+            if (cancelled) return Stop.CANCELLED;
+            boolean settled = true;
+            if (timing != null) {
+                timing.drive(clockNet, !n.get(clockNet));
+                timing.runUntil(timing.now() + halfPeriod);
+            } else {
+                sim.drive(clockNet, !n.get(clockNet));
+                settled = sim.run();
+                if (recorder != null) recorder.sample(recordBase + now);
+            }
+            now += halfPeriod;
+            edges++;
+            if (sampler != null && (edges & 1) == 0 && (edges >>> 1) % sampleEvery == 0) sampler.sample(this);
+            if (!settled) return Stop.UNSTABLE;
+            if (until != null && until.test(n)) return Stop.CONDITION;
+        }
+        return Stop.DONE;
+    }
+}
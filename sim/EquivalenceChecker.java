@@ -0,0 +1,260 @@
+package sim;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides whether a student board computes the same LED outputs as a reference board for every
+ * switch combination, and finds a counterexample when it does not. Ports are paired by position,
+ * switch i with switch i and LED j with LED j, the way boards are saved. A port one board lacks
+ * is absent there: the switch drives nothing and the LED reads 0. Switches that are not wired
+ * on either board are left out.
+ *
+ * <p>Both boards are seen as the {@link TruthTableEngine} sees them. They are powered on,
+ * registers read 0, and a feedback loop settles from all-zero. Up to {@link #SIMULATE_INPUTS}
+ * switches, both tables are simulated bit-parallel and compared row by row. Wider boards are
+ * encoded as CNF together with a miter (one XOR per LED pair, at least one of which must be
+ * set), and handed to {@link SatSolver}: unsatisfiable means equivalent, and a model is a
+ * counterexample. Gates are encoded from the same mux programs the table engine runs, and equal
+ * muxes are shared across the two boards, so identical sub-circuits cost nothing to prove.
+ */
+public final class EquivalenceChecker {
+
+    /** 2^16 rows simulate in well under a millisecond on lab-sized boards. */
+    public static final int SIMULATE_INPUTS = 16;
+
+    public enum Method { SIMULATION, SAT }
+
+    /** The verdict, and the first differing vector when there is one. */
+    public static final class Result {
+        public final boolean equivalent;
+        public final Method method;
+        /** Switch positions that were varied, in row order: row r sets inputs[i] to bit i of r. */
+        public final int[] inputs;
+        /** Switch levels by position (unvaried switches read 0); null when equivalent. */
+        public final boolean[] counterexample;
+        /** First LED position that differs under the counterexample, or -1. */
+        public final int output;
+        public final boolean studentValue, referenceValue;
+        /** Simulation only: bit r is set when row r differs on any LED. */
+        public final long[] differing;
+        /** SAT only: conflicts the solver needed. */
+        public final long conflicts;
+        public final long nanos;
+
+        Result(Method method, int[] inputs, boolean[] counterexample, int output, boolean studentValue,
+               boolean referenceValue, long[] differing, long conflicts, long nanos) {
+            this.equivalent = counterexample == null;
+            this.method = method;
+            this.inputs = inputs;
+            this.counterexample = counterexample;
+            this.output = output;
+            this.studentValue = studentValue;
+            this.referenceValue = referenceValue;
+            this.differing = differing;
+            this.conflicts = conflicts;
+            this.nanos = nanos;
+        }
+
+        public boolean differs(long row) {
+            return (differing[(int) (row >>> 6)] & (1L << row)) != 0;
+        }
+    }
+
+    private final Netlist student, reference;
+    private final int[] studentIn, studentOut, referenceIn, referenceOut;
+    private final int[] inputs;
+    private final int outputs;
+
+    /**
+     * @param studentInputs nets of the student board's switches, by position (-1 for none)
+     * @param studentOutputs nets of its LEDs, by position (-1 for none)
+     */
+    public EquivalenceChecker(Netlist student, int[] studentInputs, int[] studentOutputs,
+                              Netlist reference, int[] referenceInputs, int[] referenceOutputs) {
+        this.student = student;
+        this.reference = reference;
+        int ports = Math.max(studentInputs.length, referenceInputs.length);
+        studentIn = Arrays.copyOf(studentInputs, ports);
+        referenceIn = Arrays.copyOf(referenceInputs, ports);
+        outputs = Math.max(studentOutputs.length, referenceOutputs.length);
+        studentOut = pad(studentOutputs, outputs);
+        referenceOut = pad(referenceOutputs, outputs);
+        for (int p = studentInputs.length; p < ports; p++) studentIn[p] = -1;
+        for (int p = referenceInputs.length; p < ports; p++) referenceIn[p] = -1;
+        int[] used = new int[ports];
+        int k = 0;
+        for (int p = 0; p < ports; p++) {
+            if (wired(student, studentIn[p]) || wired(reference, referenceIn[p])) used[k++] = p;
+        }
+        inputs = Arrays.copyOf(used, k);
+    }
+
+    private static int[] pad(int[] nets, int length) {
+        int[] out = Arrays.copyOf(nets, length);
+        Arrays.fill(out, nets.length, length, -1);
+        return out;
+    }
+
+    // a switch whose net holds only its own pin and feeds no gate is read by nothing
+    private static boolean wired(Netlist n, int net) {
+        return net >= 0 && (n.pinEnd(net) - n.pinBegin(net) > 1 || n.fanoutStart[net + 1] > n.fanoutStart[net]);
+    }
+
+    /** Switch positions that take part in the check. */
+    public int[] inputs() { return inputs.clone(); }
+
+    public Result check() { return check(SIMULATE_INPUTS); }
+
+    /**
+     * Simulates when at most {@code simulateUpTo} switches vary, else runs the SAT solver.
+     * Both netlists are switched on for the check and restored afterwards, so call this from
+     * the thread that owns their values.
+     */
+    public Result check(int simulateUpTo) {
+        SimEvents.Equivalence e = new SimEvents.Equivalence();
+        e.begin();
+        boolean studentPower = student.isPowered(), referencePower = reference.isPowered();
+        student.setPowered(true);
+        reference.setPowered(true);
+        Result r;
+        try {
+            r = inputs.length <= Math.min(simulateUpTo, TruthTableEngine.MAX_INPUTS) ? simulate() : solve();
+        } finally {
+            student.setPowered(studentPower);
+            reference.setPowered(referencePower);
+        }
+        if (e.shouldCommit()) {
+            e.method = r.method.name();
+            e.inputs = inputs.length;
+            e.outputs = outputs;
+            e.equivalent = r.equivalent;
+            e.conflicts = r.conflicts;
+            e.commit();
+        }
+        return r;
+    }
+
+    // ---------- BIT-PARALLEL ----------
+    private Result simulate() {
+        long start = System.nanoTime();
+        int[] sIn = new int[inputs.length], rIn = new int[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            sIn[i] = studentIn[inputs[i]];
+            rIn[i] = referenceIn[inputs[i]];
+        }
+        TruthTableEngine.Result s = new TruthTableEngine(student, new LevelizedSchedule(student)).compute(sIn, studentOut);
+        TruthTableEngine.Result t = new TruthTableEngine(reference, new LevelizedSchedule(reference)).compute(rIn, referenceOut);
+        int words = (int) Math.max(1, s.rows() >>> 6);
+        long[] differing = new long[words];
+        for (int j = 0; j < outputs; j++) {
+            for (int w = 0; w < words; w++) differing[w] |= s.columns[j][w] ^ t.columns[j][w];
+        }
+        for (int w = 0; w < words; w++) {
+            if (differing[w] == 0) continue;
+            long row = ((long) w << 6) + Long.numberOfTrailingZeros(differing[w]);
+            boolean[] vector = new boolean[studentIn.length];
+            for (int i = 0; i < inputs.length; i++) vector[inputs[i]] = (row >>> i & 1) != 0;
+            int j = 0;
+            while (s.get(row, j) == t.get(row, j)) j++;
+            return new Result(Method.SIMULATION, inputs, vector, j, s.get(row, j), t.get(row, j), differing, 0,
+                              System.nanoTime() - start);
+        }
+        return new Result(Method.SIMULATION, inputs, null, -1, false, false, differing, 0, System.nanoTime() - start);
+    }
+
+    // ---------- SAT ----------
+    private Result solve() {
+        long start = System.nanoTime();
+        Encoder enc = new Encoder();
+        int[] vars = new int[studentIn.length];
+        for (int i = 0; i < inputs.length; i++) vars[inputs[i]] = enc.sat.newVar();
+        int[] s = enc.netlist(student, studentIn, vars);
+        int[] t = enc.netlist(reference, referenceIn, vars);
+        int[] a = new int[outputs], b = new int[outputs], miter = new int[outputs];
+        int k = 0;
+        for (int j = 0; j < outputs; j++) {
+            a[j] = studentOut[j] < 0 ? enc.f : s[studentOut[j]];
+            b[j] = referenceOut[j] < 0 ? enc.f : t[referenceOut[j]];
+            int d = enc.mux(a[j], b[j], -b[j]);
+            if (d != enc.f) miter[k++] = d;
+        }
+        // every XOR folded to constant 0: the boards are structurally the same
+        if (k == 0) return new Result(Method.SAT, inputs, null, -1, false, false, null, 0, System.nanoTime() - start);
+        enc.sat.addClause(Arrays.copyOf(miter, k));
+        if (!enc.sat.solve()) {
+            return new Result(Method.SAT, inputs, null, -1, false, false, null, enc.sat.conflicts(), System.nanoTime() - start);
+        }
+        boolean[] vector = new boolean[studentIn.length];
+        for (int i = 0; i < inputs.length; i++) vector[inputs[i]] = enc.sat.value(vars[inputs[i]]);
+        int j = 0;
+        while (enc.sat.value(a[j]) == enc.sat.value(b[j])) j++;
+        return new Result(Method.SAT, inputs, vector, j, enc.sat.value(a[j]), enc.sat.value(b[j]), null,
+                          enc.sat.conflicts(), System.nanoTime() - start);
+    }
+
+    // Tseitin encoding over 2-input muxes with constant folding and structural hashing; t and f
+    // are the literals of constant 1 and 0.
+    private static final class Encoder implements SymbolicNetlist.Logic {
+        final SatSolver sat = new SatSolver();
+        final int t = sat.newVar(), f = -t;
+        private final Map<Long, Integer> muxes = new HashMap<>();
+
+        Encoder() {
+            sat.addClause(t);
+        }
+
+        @Override
+        public int mux(int x, int lo, int hi) {
+            if (x == t) return hi;
+            if (x == f) return lo;
+            if (x < 0) {
+                x = -x;
+                int swap = lo;
+                lo = hi;
+                hi = swap;
+            }
+            // a branch that reads x again already knows its value
+            if (lo == x) lo = f;
+            else if (lo == -x) lo = t;
+            if (hi == x) hi = t;
+            else if (hi == -x) hi = f;
+            if (lo == hi) return lo;
+            if (lo == f && hi == t) return x;
+            if (lo == t && hi == f) return -x;
+            boolean negate = lo < 0;   // mux(x, ~a, ~b) = ~mux(x, a, b) keeps one entry per pair
+            if (negate) {
+                lo = -lo;
+                hi = -hi;
+            }
+            long key = ((long) x << 42) | ((long) lo << 21) | (hi + (1L << 20));
+            Integer known = muxes.get(key);
+            int r;
+            if (known != null) {
+                r = known;
+            } else {
+                if (sat.varCount() >= 1 << 20) throw new IllegalStateException("Circuit too large to encode");
+                r = sat.newVar();
+                sat.addClause(-x, -hi, r);
+                sat.addClause(-x, hi, -r);
+                sat.addClause(x, -lo, r);
+                sat.addClause(x, lo, -r);
+                sat.addClause(-lo, -hi, r);   // redundant, but lets propagation skip x
+                sat.addClause(lo, hi, -r);
+                muxes.put(key, r);
+            }
+            return negate ? -r : r;
+        }
+
+        // literal of every net; ports nobody varies stay floating, as in the simulated table
+        int[] netlist(Netlist n, int[] inNets, int[] vars) {
+            int[] nets = inNets.clone();
+            for (int p = 0; p < nets.length; p++) if (vars[p] == 0) nets[p] = -1;
+            return SymbolicNetlist.evaluate(n, nets, vars, this);
+        }
+
+        @Override public int zero() { return f; }
+        @Override public int one() { return t; }
+    }
+}
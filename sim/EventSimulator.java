@@ -0,0 +1,163 @@
+package sim;
+
+/**
+ * Selective-trace evaluation over a {@link Netlist}: a net change schedules only the cells that
+ * read it, and cells are evaluated from a FIFO until the queue drains. Fully iterative, so deep
+ * gate chains cost queue slots rather than stack frames.
+ *
+ * <p>Registers do no work until their clock net makes an active edge. Edges are collected while
+ * the combinational logic settles; then every register waiting on an edge samples its next
+ * state before any of them commits, so a shift-register chain moves exactly one stage per edge.
+ * A commit that is itself a clock edge (ripple counters) is picked up in the next round.
+ * Registers with asynchronous set/clear also sit in the FIFO, behind the cells, under ids
+ * {@code cellCount + r}.
+ */
+public final class EventSimulator {
+
+    private final Netlist n;
+    private final int[] queue;     // ring buffer, each cell queued at most once
+    private final long[] queued;
+    private int head, size;
+
+    private int[] edgeRegs, spareRegs;  // registers whose clock made an active edge
+    private final long[] edgeMark;
+    private final boolean[] staged;
+    private int edgeCount;
+
+    /** Upper bound on evaluations per {@link #run()} before a loop is treated as oscillating. */
+    private final long budget;
+    private long evaluations;
+    private int lastDepth;
+
+    public EventSimulator(Netlist n) {
+        this.n = n;
+        int ids = n.cellCount + n.regCount;
+        queue = new int[Math.max(1, ids)];
+        queued = new long[(ids + 63) >>> 6];
+        edgeRegs = new int[n.regCount];
+        spareRegs = new int[n.regCount];
+        edgeMark = new long[(n.regCount + 63) >>> 6];
+        staged = new boolean[n.regCount];
+        budget = Math.max(1024L, 64L * ids);
+    }
+
+    public Netlist netlist() { return n; }
+
+    /** Sets a net from outside the netlist (switch, clock) and schedules its fan-out. */
+    public void drive(int net, boolean v) {
+        if (n.set(net, v)) scheduleFanout(net);
+    }
+
+    public void schedule(int cell) {
+        long bit = 1L << cell;
+        if ((queued[cell >>> 6] & bit) != 0) return;
+        queued[cell >>> 6] |= bit;
+        queue[(head + size++) % queue.length] = cell;
+    }
+
+    /** Schedules the readers of a net that just changed, and any registers it clocks. */
+    public void scheduleFanout(int net) {
+        for (int k = n.fanoutStart[net]; k < n.fanoutStart[net + 1]; k++) schedule(n.fanout[k]);
+        for (int k = n.asyncStart[net]; k < n.asyncStart[net + 1]; k++) schedule(n.cellCount + n.asyncRegs[k]);
+        if (n.clkStart[net] == n.clkStart[net + 1]) return;
+        boolean high = n.get(net);
+        for (int k = n.clkStart[net]; k < n.clkStart[net + 1]; k++) {
+            int r = n.clkRegs[k];
+            if (n.regRising[r] != high) continue;
+            long bit = 1L << r;
+            if ((edgeMark[r >>> 6] & bit) != 0) continue;
+            edgeMark[r >>> 6] |= bit;
+            edgeRegs[edgeCount++] = r;
+        }
+    }
+
+    public void scheduleAll() {
+        for (int c = 0; c < n.cellCount; c++) schedule(c);
+        scheduleRegisters();
+    }
+
+    /** Queues every register's set/clear check, e.g. after the nets were written without events. */
+    public void scheduleRegisters() {
+        for (int r = 0; r < n.regCount; r++) if (n.hasAsync(r)) schedule(n.cellCount + r);
+    }
+
+    /**
+     * Drains the event queue. Returns false if the evaluation budget ran out, which only
+     * happens when a feedback loop keeps toggling; the remaining events are dropped.
+     */
+    public boolean run() {
+        long spent = 0;
+        int cells = n.cellCount;
+        // the queue drains in waves: everything a wave schedules is the next wave
+        int wave = size, depth = size > 0 ? 1 : 0;
+        while (true) {
+            while (size > 0) {
+                if (spent++ >= budget) {
+                    clear();
+                    lastDepth = depth;
+                    return false;
+                }
+                int c = queue[head];
+                head = (head + 1) % queue.length;
+                size--;
+                queued[c >>> 6] &= ~(1L << c);
+                evaluations++;
+                if (c < cells) {
+                    if (n.updateCell(c)) scheduleFanout(n.outNet[c]);
+                } else if (n.updateAsync(c - cells)) {
+                    scheduleFanout(n.regOut[c - cells]);
+                }
+                if (--wave == 0 && size > 0) {
+                    wave = size;
+                    depth++;
+                }
+            }
+            if (edgeCount == 0) {
+                lastDepth = depth;
+                return true;
+            }
+            spent += edgeCount;
+            clockEdges();
+            wave = size;
+            depth++;
+        }
+    }
+
+    // sample every pending register, then commit; commits may queue cells and further edges
+    private void clockEdges() {
+        int[] batch = edgeRegs;
+        int count = edgeCount;
+        edgeRegs = spareRegs;
+        spareRegs = batch;
+        edgeCount = 0;
+        for (int i = 0; i < count; i++) {
+            int r = batch[i];
+            edgeMark[r >>> 6] &= ~(1L << r);
+            staged[i] = n.nextState(r);
+        }
+        evaluations += count;
+        for (int i = 0; i < count; i++) {
+            int out = n.regOut[batch[i]];
+            if (n.set(out, staged[i])) scheduleFanout(out);
+        }
+    }
+
+    public void clear() {
+        while (size > 0) {
+            int c = queue[head];
+            queued[c >>> 6] &= ~(1L << c);
+            head = (head + 1) % queue.length;
+            size--;
+        }
+        for (int i = 0; i < edgeCount; i++) edgeMark[edgeRegs[i] >>> 6] &= ~(1L << edgeRegs[i]);
+        edgeCount = 0;
+    }
+
+    public boolean isIdle() { return size == 0 && edgeCount == 0; }
+
+    /** Total cell evaluations since construction. */
+    public long evaluations() { return evaluations; }
+
+    /** Evaluation waves (gate levels, plus one per round of clock edges) of the last {@link #run()}. */
+    public int lastDepth() { return lastDepth; }
+}
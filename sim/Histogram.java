@@ -0,0 +1,62 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * Log-scale histogram of non-negative longs: bucket b counts values in {@code [2^(b-1), 2^b)},
+ * bucket 0 the zeros. Recording is a leading-zero count and an increment, with no allocation,
+ * so it can sit on a hot path; percentiles are accurate to within a factor of two.
+ */
+public final class Histogram {
+
+    private final long[] buckets = new long[65];
+    private long count, sum, max;
+
+    public void record(long v) {
+        if (v < 0) v = 0;
+        buckets[64 - Long.numberOfLeadingZeros(v)]++;
+        count++;
+        sum += v;
+        if (v > max) max = v;
+    }
+
+    public long count() { return count; }
+    public long max() { return max; }
+    public double mean() { return count == 0 ? 0 : (double) sum / count; }
+
+    /** Upper bound of the bucket holding the {@code p}-th percentile (0..100); 0 if empty. */
+    public long percentile(double p) {
+        if (count == 0) return 0;
+        long rank = (long) Math.ceil(count * p / 100.0);
+        long seen = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            seen += buckets[b];
+            if (seen >= Math.max(1, rank)) return b == 0 ? 0 : Math.min(max, b == 64 ? Long.MAX_VALUE : (1L << b) - 1);
+        }
+        return max;
+    }
+
+    /** Values in bucket {@code b}; see the class comment for the bucket bounds. */
+    public long bucket(int b) { return buckets[b]; }
+
+    public int bucketCount() { return buckets.length; }
+
+    public Histogram copy() {
+        Histogram h = new Histogram();
+        System.arraycopy(buckets, 0, h.buckets, 0, buckets.length);
+        h.count = count;
+        h.sum = sum;
+        h.max = max;
+        return h;
+    }
+
+    public void clear() {
+        Arrays.fill(buckets, 0);
+        count = sum = max = 0;
+    }
+
+    @Override public String toString() {
+        return String.format("n=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+            count, mean(), percentile(50), percentile(90), percentile(99), max);
+    }
+}
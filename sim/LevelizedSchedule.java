@@ -0,0 +1,154 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * Topological evaluation order for a {@link Netlist}. Cells are grouped into strongly connected
+ * components (Tarjan), components are levelized by their wire dependencies, and a full
+ * evaluation visits each level once. Only components that contain feedback are iterated to a
+ * fixpoint; everything else is evaluated exactly once per pass.
+ */
+public final class LevelizedSchedule {
+
+    private final Netlist n;
+    final int[] order;       // cells, grouped by component, components sorted by level
+    final int[] compStart;   // component k owns order[compStart[k] .. compStart[k + 1])
+    final boolean[] cyclic;
+    private final int[] levelStart;  // level l owns components levelStart[l] .. levelStart[l + 1]
+    private final int feedbackCells;
+    private long evaluations;
+
+    public LevelizedSchedule(Netlist n) {
+        this.n = n;
+        int cells = n.cellCount;
+
+        // ---------- SCCs (iterative Tarjan) ----------
+        int[] comp = new int[cells];
+        int[] index = new int[cells];
+        int[] low = new int[cells];
+        Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[cells];
+        int[] stack = new int[cells];
+        int sp = 0;
+        int[] frame = new int[cells];
+        int[] framePos = new int[cells];
+        int next = 0, comps = 0;
+        for (int s = 0; s < cells; s++) {
+            if (index[s] >= 0) continue;
+            int top = 0;
+            frame[0] = s;
+            framePos[0] = n.fanoutStart[n.outNet[s]];
+            index[s] = low[s] = next++;
+            stack[sp++] = s;
+            onStack[s] = true;
+            while (top >= 0) {
+                int v = frame[top];
+                int end = n.fanoutStart[n.outNet[v] + 1];
+                if (framePos[top] < end) {
+                    int w = n.fanout[framePos[top]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = next++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        frame[++top] = w;
+                        framePos[top] = n.fanoutStart[n.outNet[w]];
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                } else {
+                    if (low[v] == index[v]) {
+                        int w;
+                        do {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            comp[w] = comps;
+                        } while (w != v);
+                        comps++;
+                    }
+                    if (--top >= 0) low[frame[top]] = Math.min(low[frame[top]], low[v]);
+                }
+            }
+        }
+
+        // Tarjan emits components sinks-first, so walk them in reverse to get topological order
+        int[] compSize = new int[comps];
+        for (int c = 0; c < cells; c++) compSize[comp[c]]++;
+        int[] byComp = new int[cells];
+        int[] firstOfComp = new int[comps + 1];
+        for (int k = 0; k < comps; k++) firstOfComp[k + 1] = firstOfComp[k] + compSize[k];
+        int[] fill = Arrays.copyOf(firstOfComp, comps);
+        for (int c = 0; c < cells; c++) byComp[fill[comp[c]]++] = c;
+
+        int[] level = new int[comps];
+        boolean[] loop = new boolean[comps];
+        int levels = comps == 0 ? 0 : 1;
+        for (int k = comps - 1; k >= 0; k--) {
+            for (int i = firstOfComp[k]; i < firstOfComp[k + 1]; i++) {
+                int c = byComp[i];
+                int out = n.outNet[c];
+                for (int e = n.fanoutStart[out]; e < n.fanoutStart[out + 1]; e++) {
+                    int w = comp[n.fanout[e]];
+                    if (w == k) loop[k] = true;
+                    else if (level[w] < level[k] + 1) {
+                        level[w] = level[k] + 1;
+                        levels = Math.max(levels, level[w] + 1);
+                    }
+                }
+            }
+        }
+
+        // ---------- LAYOUT BY LEVEL ----------
+        levelStart = new int[levels + 1];
+        for (int k = 0; k < comps; k++) levelStart[level[k] + 1]++;
+        for (int l = 0; l < levels; l++) levelStart[l + 1] += levelStart[l];
+        int[] slot = Arrays.copyOf(levelStart, levels);
+        int[] sorted = new int[comps];
+        for (int k = comps - 1; k >= 0; k--) sorted[slot[level[k]]++] = k;
+
+        order = new int[cells];
+        compStart = new int[comps + 1];
+        cyclic = new boolean[comps];
+        int pos = 0, fb = 0;
+        for (int i = 0; i < comps; i++) {
+            int k = sorted[i];
+            compStart[i] = pos;
+            cyclic[i] = loop[k];
+            if (loop[k]) fb += compSize[k];
+            for (int j = firstOfComp[k]; j < firstOfComp[k + 1]; j++) order[pos++] = byComp[j];
+        }
+        compStart[comps] = pos;
+        feedbackCells = fb;
+    }
+
+    public int levelCount() { return levelStart.length - 1; }
+
+    /** Total cell evaluations since construction, feedback sweeps included. */
+    public long evaluations() { return evaluations; }
+
+    /** Cells that sit on a feedback loop and need fixpoint iteration. */
+    public int feedbackCells() { return feedbackCells; }
+
+    /**
+     * Evaluates every cell in level order. Returns false if some feedback component did not
+     * settle within {@code size + 1} sweeps (an oscillator); its last values are kept.
+     */
+    public boolean evaluate() {
+        boolean stable = true;
+        for (int k = 0; k + 1 < compStart.length; k++) {
+            int from = compStart[k], to = compStart[k + 1];
+            if (!cyclic[k]) {
+                n.updateCell(order[from]);
+                evaluations++;
+                continue;
+            }
+            boolean settled = false;
+            for (int pass = 0; pass <= to - from && !settled; pass++) {
+                settled = true;
+                evaluations += to - from;
+                for (int i = from; i < to; i++) if (n.updateCell(order[i])) settled = false;
+            }
+            stable &= settled;
+        }
+        return stable;
+    }
+}
@@ -0,0 +1,402 @@
+package sim;
+
+import java.util.Arrays;
+
+/**
+ * Flat, int-indexed form of a board. Every group of wire-connected pins becomes one net,
+ * every gate output becomes one cell, every clocked output one register, and all net values
+ * are packed into a {@code long[]}. A register's state is the value of its output net.
+ * Instances are produced by {@link Builder}; nothing here depends on JavaFX.
+ */
+public final class Netlist {
+
+    // ---------- NETS ----------
+    final int netCount;
+    final long[] values;
+    final int[] netOfPin;
+    final int[] netDriver;     // driving cell per net, -1 for switches / constants / floating nets
+    final int[] fanoutStart;   // CSR: cells reading each net
+    final int[] fanout;
+    final int[] pinStart;      // CSR: pins belonging to each net
+    final int[] netPins;
+    final int[] constNets;
+    final boolean[] constHigh;
+
+    // ---------- CELLS ----------
+    final int cellCount;
+    final int[] inStart;       // CSR: input nets of each cell, bit 0 of the LUT index first
+    final int[] inNets;
+    final int[] outNet;
+    final long[][] lut;        // bit i = output value for input index i
+    final int[] cellDelay;     // propagation delay in ns, used only by TimingSimulator
+
+    // ---------- REGISTERS ----------
+    final int regCount;
+    final int[] regInStart;    // CSR: nets each register reads, bit 0 of the index first
+    final int[] regInNets;
+    final int[] regOut;
+    final int[] regClk;
+    final boolean[] regRising;
+    final long[][] regNext;    // state taken on the active edge
+    final long[][] regForce;   // asynchronous set/clear active, null if the register has none
+    final long[][] regForceValue;
+    final int[] regDelay;      // clock-to-output delay in ns
+    final int[] clkStart;      // CSR: registers clocked by each net
+    final int[] clkRegs;
+    final int[] asyncStart;    // CSR: registers whose set/clear read each net
+    final int[] asyncRegs;
+
+    boolean powered = true;
+
+    // ---------- CHANGE JOURNAL ----------
+    private final int[] changed;
+    private final long[] changedMark;
+    private int changedCount;
+    private long transitions;
+
+    private Netlist(Builder b) {
+        int[] root = new int[b.pinCount];
+        int[] netOfRoot = new int[b.pinCount];
+        Arrays.fill(netOfRoot, -1);
+        netOfPin = new int[b.pinCount];
+        int nets = 0;
+        for (int p = 0; p < b.pinCount; p++) {
+            root[p] = b.find(p);
+            if (netOfRoot[root[p]] < 0) netOfRoot[root[p]] = nets++;
+            netOfPin[p] = netOfRoot[root[p]];
+        }
+        netCount = nets;
+        values = new long[(nets + 63) >>> 6];
+
+        // pins per net
+        pinStart = new int[nets + 1];
+        for (int p = 0; p < b.pinCount; p++) pinStart[netOfPin[p] + 1]++;
+        for (int n = 0; n < nets; n++) pinStart[n + 1] += pinStart[n];
+        netPins = new int[b.pinCount];
+        int[] fill = Arrays.copyOf(pinStart, nets);
+        for (int p = 0; p < b.pinCount; p++) netPins[fill[netOfPin[p]]++] = p;
+
+        // cells
+        cellCount = b.cellCount;
+        inStart = Arrays.copyOf(b.cellInStart, cellCount + 1);
+        inNets = new int[inStart[cellCount]];
+        for (int k = 0; k < inNets.length; k++) inNets[k] = netOfPin[b.cellInPins[k]];
+        outNet = new int[cellCount];
+        lut = Arrays.copyOf(b.cellLut, cellCount);
+        cellDelay = Arrays.copyOf(b.cellDelay, cellCount);
+        netDriver = new int[nets];
+        Arrays.fill(netDriver, -1);
+        for (int c = 0; c < cellCount; c++) {
+            outNet[c] = netOfPin[b.cellOutPin[c]];
+            netDriver[outNet[c]] = c;
+        }
+
+        // fan-out per net, each cell listed once even if it reads a net twice
+        fanoutStart = new int[nets + 1];
+        for (int c = 0; c < cellCount; c++)
+            for (int k = inStart[c]; k < inStart[c + 1]; k++)
+                if (firstUse(c, k)) fanoutStart[inNets[k] + 1]++;
+        for (int n = 0; n < nets; n++) fanoutStart[n + 1] += fanoutStart[n];
+        fanout = new int[fanoutStart[nets]];
+        fill = Arrays.copyOf(fanoutStart, nets);
+        for (int c = 0; c < cellCount; c++)
+            for (int k = inStart[c]; k < inStart[c + 1]; k++)
+                if (firstUse(c, k)) fanout[fill[inNets[k]]++] = c;
+
+        // registers, indexed by clock net and by the nets their set/clear read
+        regCount = b.regCount;
+        regInStart = Arrays.copyOf(b.regInStart, regCount + 1);
+        regInNets = new int[regInStart[regCount]];
+        for (int k = 0; k < regInNets.length; k++) regInNets[k] = netOfPin[b.regInPins[k]];
+        regOut = new int[regCount];
+        regClk = new int[regCount];
+        for (int r = 0; r < regCount; r++) {
+            regOut[r] = netOfPin[b.regOutPin[r]];
+            regClk[r] = netOfPin[b.regClkPin[r]];
+        }
+        regRising = Arrays.copyOf(b.regRising, regCount);
+        regNext = Arrays.copyOf(b.regNext, regCount);
+        regForce = Arrays.copyOf(b.regForce, regCount);
+        regForceValue = Arrays.copyOf(b.regForceValue, regCount);
+        regDelay = Arrays.copyOf(b.regDelay, regCount);
+        clkStart = new int[nets + 1];
+        for (int r = 0; r < regCount; r++) clkStart[regClk[r] + 1]++;
+        for (int n = 0; n < nets; n++) clkStart[n + 1] += clkStart[n];
+        clkRegs = new int[regCount];
+        fill = Arrays.copyOf(clkStart, nets);
+        for (int r = 0; r < regCount; r++) clkRegs[fill[regClk[r]]++] = r;
+        asyncStart = new int[nets + 1];
+        for (int r = 0; r < regCount; r++)
+            if (regForce[r] != null)
+                for (int k = regInStart[r]; k < regInStart[r + 1]; k++) asyncStart[regInNets[k] + 1]++;
+        for (int n = 0; n < nets; n++) asyncStart[n + 1] += asyncStart[n];
+        asyncRegs = new int[asyncStart[nets]];
+        fill = Arrays.copyOf(asyncStart, nets);
+        for (int r = 0; r < regCount; r++)
+            if (regForce[r] != null)
+                for (int k = regInStart[r]; k < regInStart[r + 1]; k++) asyncRegs[fill[regInNets[k]]++] = r;
+
+        // constants (VCC / GND pins)
+        constNets = new int[b.tieCount];
+        constHigh = new boolean[b.tieCount];
+        for (int i = 0; i < b.tieCount; i++) {
+            constNets[i] = netOfPin[b.tiePins[i]];
+            constHigh[i] = b.tieHigh[i];
+        }
+
+        changed = new int[nets];
+        changedMark = new long[values.length];
+        reset();
+    }
+
+    private boolean firstUse(int cell, int k) {
+        for (int j = inStart[cell]; j < k; j++) if (inNets[j] == inNets[k]) return false;
+        return true;
+    }
+
+    // ---------- QUERIES ----------
+    public int netCount() { return netCount; }
+    public int cellCount() { return cellCount; }
+    public int regCount() { return regCount; }
+    public int regOutputOf(int reg) { return regOut[reg]; }
+    public int regClockOf(int reg) { return regClk[reg]; }
+    public int cellDelay(int cell) { return cellDelay[cell]; }
+    public int regDelay(int reg) { return regDelay[reg]; }
+    public int pinCount() { return netOfPin.length; }
+    public int netOf(int pin) { return netOfPin[pin]; }
+    public int driverOf(int net) { return netDriver[net]; }
+    public int outputOf(int cell) { return outNet[cell]; }
+    public int inputCount(int cell) { return inStart[cell + 1] - inStart[cell]; }
+    public int inputOf(int cell, int i) { return inNets[inStart[cell] + i]; }
+
+    /** Pins of {@code net} are {@code pinAt(pinBegin(net)) .. pinAt(pinEnd(net) - 1)}. */
+    public int pinBegin(int net) { return pinStart[net]; }
+    public int pinEnd(int net) { return pinStart[net + 1]; }
+    public int pinAt(int k) { return netPins[k]; }
+
+    public boolean get(int net) {
+        return (values[net >>> 6] & (1L << net)) != 0;
+    }
+
+    public boolean isPowered() { return powered; }
+
+    /** A copy of every net value, packed as {@link #get} reads them: net i is bit i of word i / 64. */
+    public long[] copyValues() { return values.clone(); }
+
+    // ---------- STATE ----------
+    /** Sets a net value; returns true (and journals the net) if it changed. */
+    public boolean set(int net, boolean v) {
+        long bit = 1L << net;
+        int w = net >>> 6;
+        if (((values[w] & bit) != 0) == v) return false;
+        values[w] ^= bit;
+        transitions++;
+        if ((changedMark[w] & bit) == 0) {
+            changedMark[w] |= bit;
+            changed[changedCount++] = net;
+        }
+        return true;
+    }
+
+    public void setPowered(boolean on) { powered = on; }
+
+    /** Net value changes since construction. */
+    public long transitions() { return transitions; }
+
+    /** Clears every net to 0 and re-applies VCC/GND ties. */
+    public void reset() {
+        Arrays.fill(values, 0);
+        for (int i = 0; i < constNets.length; i++) if (constHigh[i]) set(constNets[i], true);
+        clearChanges();
+    }
+
+    /** Output value the cell would produce for the current net values. */
+    public boolean evalCell(int c) {
+        if (!powered) return false;
+        int idx = 0;
+        for (int k = inStart[c], bit = 1; k < inStart[c + 1]; k++, bit <<= 1)
+            if (get(inNets[k])) idx |= bit;
+        return (lut[c][idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    /** Evaluates one cell and writes its output net; returns true if the net changed. */
+    public boolean updateCell(int c) {
+        return set(outNet[c], evalCell(c));
+    }
+
+    private int regIndex(int r) {
+        int idx = 0;
+        for (int k = regInStart[r], bit = 1; k < regInStart[r + 1]; k++, bit <<= 1)
+            if (get(regInNets[k])) idx |= bit;
+        return idx;
+    }
+
+    /** State the register takes on its active edge for the current net values. */
+    public boolean nextState(int r) {
+        if (!powered) return false;
+        int idx = regIndex(r);
+        long[] t = regForce[r] != null && (regForce[r][idx >>> 6] & (1L << idx)) != 0 ? regForceValue[r] : regNext[r];
+        return (t[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    /** Level the register's set/clear currently forces: 0 or 1, or -1 when neither is active. */
+    public int forcedState(int r) {
+        if (regForce[r] == null) return -1;
+        if (!powered) return 0;
+        int idx = regIndex(r);
+        if ((regForce[r][idx >>> 6] & (1L << idx)) == 0) return -1;
+        return (regForceValue[r][idx >>> 6] & (1L << idx)) != 0 ? 1 : 0;
+    }
+
+    /** Applies the register's asynchronous set/clear; returns true if its output net changed. */
+    public boolean updateAsync(int r) {
+        int f = forcedState(r);
+        return f >= 0 && set(regOut[r], f == 1);
+    }
+
+    /** True if the register has asynchronous set/clear inputs. */
+    public boolean hasAsync(int r) { return regForce[r] != null; }
+
+    // ---------- JOURNAL ----------
+    /** Nets changed since the last {@link #clearChanges()}, in order of first change. */
+    public int changedCount() { return changedCount; }
+    public int changedNet(int i) { return changed[i]; }
+
+    public void clearChanges() {
+        for (int i = 0; i < changedCount; i++) changedMark[changed[i] >>> 6] = 0;
+        changedCount = 0;
+    }
+
+    // ---------- BUILDER ----------
+    /** Collects pins, wires and gate cells, then resolves nets with a union-find. */
+    public static final class Builder {
+        private int pinCount;
+        private int[] parent = new int[64];
+
+        private int cellCount;
+        private int[] cellInStart = new int[17];
+        private int[] cellInPins = new int[64];
+        private int[] cellOutPin = new int[16];
+        private long[][] cellLut = new long[16][];
+        private int[] cellDelay = new int[16];
+
+        private int regCount;
+        private int[] regInStart = new int[5];
+        private int[] regInPins = new int[16];
+        private int[] regOutPin = new int[4];
+        private int[] regClkPin = new int[4];
+        private boolean[] regRising = new boolean[4];
+        private long[][] regNext = new long[4][];
+        private long[][] regForce = new long[4][];
+        private long[][] regForceValue = new long[4][];
+        private int[] regDelay = new int[4];
+
+        private int tieCount;
+        private int[] tiePins = new int[4];
+        private boolean[] tieHigh = new boolean[4];
+
+        public int addPin() {
+            if (pinCount == parent.length) parent = Arrays.copyOf(parent, pinCount * 2);
+            parent[pinCount] = pinCount;
+            return pinCount++;
+        }
+
+        /** A wire between two pins: both end up on the same net. */
+        public void connect(int a, int b) {
+            int ra = find(a), rb = find(b);
+            if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+        }
+
+        /** Holds the pin's net at a constant level (VCC / GND). */
+        public void tie(int pin, boolean high) {
+            if (tieCount == tiePins.length) {
+                tiePins = Arrays.copyOf(tiePins, tieCount * 2);
+                tieHigh = Arrays.copyOf(tieHigh, tieCount * 2);
+            }
+            tiePins[tieCount] = pin;
+            tieHigh[tieCount++] = high;
+        }
+
+        /** One gate output: {@code lut} bit i is the output for input index i (inPins[0] = bit 0). */
+        public int addCell(long[] lut, int[] inPins, int outPin) {
+            if (cellCount == cellOutPin.length) {
+                cellOutPin = Arrays.copyOf(cellOutPin, cellCount * 2);
+                cellLut = Arrays.copyOf(cellLut, cellCount * 2);
+                cellDelay = Arrays.copyOf(cellDelay, cellCount * 2);
+                cellInStart = Arrays.copyOf(cellInStart, cellCount * 2 + 1);
+            }
+            int start = cellInStart[cellCount];
+            if (start + inPins.length > cellInPins.length)
+                cellInPins = Arrays.copyOf(cellInPins, Math.max(cellInPins.length * 2, start + inPins.length));
+            System.arraycopy(inPins, 0, cellInPins, start, inPins.length);
+            cellInStart[cellCount + 1] = start + inPins.length;
+            cellOutPin[cellCount] = outPin;
+            cellLut[cellCount] = lut;
+            return cellCount++;
+        }
+
+        /**
+         * One clocked output on {@code clkPin}. {@code next}, {@code force} and {@code forceValue}
+         * are indexed like a cell LUT over {@code inPins}; {@code force} may be null.
+         */
+        public int addReg(int clkPin, boolean rising, int[] inPins, long[] next, long[] force, long[] forceValue, int outPin) {
+            if (regCount == regOutPin.length) {
+                int cap = regCount * 2;
+                regOutPin = Arrays.copyOf(regOutPin, cap);
+                regClkPin = Arrays.copyOf(regClkPin, cap);
+                regRising = Arrays.copyOf(regRising, cap);
+                regNext = Arrays.copyOf(regNext, cap);
+                regForce = Arrays.copyOf(regForce, cap);
+                regForceValue = Arrays.copyOf(regForceValue, cap);
+                regDelay = Arrays.copyOf(regDelay, cap);
+                regInStart = Arrays.copyOf(regInStart, cap + 1);
+            }
+            int start = regInStart[regCount];
+            if (start + inPins.length > regInPins.length)
+                regInPins = Arrays.copyOf(regInPins, Math.max(regInPins.length * 2, start + inPins.length));
+            System.arraycopy(inPins, 0, regInPins, start, inPins.length);
+            regInStart[regCount + 1] = start + inPins.length;
+            regOutPin[regCount] = outPin;
+            regClkPin[regCount] = clkPin;
+            regRising[regCount] = rising;
+            regNext[regCount] = next;
+            regForce[regCount] = force;
+            regForceValue[regCount] = forceValue;
+            return regCount++;
+        }
+
+        /** Propagation delay of a cell in ns; zero unless set. */
+        public void setCellDelay(int cell, int ns) {
+            cellDelay[cell] = ns;
+        }
+
+        /** Clock-to-output delay of a register in ns; zero unless set. */
+        public void setRegDelay(int reg, int ns) {
+            regDelay[reg] = ns;
+        }
+
+        public int pinCount() { return pinCount; }
+
+        private int find(int p) {
+            while (parent[p] != p) {
+                parent[p] = parent[parent[p]];
+                p = parent[p];
+            }
+            return p;
+        }
+
+        public Netlist build() {
+            SimEvents.NetlistCompile e = new SimEvents.NetlistCompile();
+            e.begin();
+            Netlist n = new Netlist(this);
+            if (e.shouldCommit()) {
+                e.pins = n.pinCount();
+                e.nets = n.netCount;
+                e.cells = n.cellCount;
+                e.registers = n.regCount;
+                e.commit();
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Zero-delay simulation of a netlist split into parts that share no driven net, each part a
+ * netlist of its own, evaluated in parallel on a {@link ForkJoinPool}. Separate exercises on one
+ * board only meet at nets nothing on the board drives: switches, the clock, VCC/GND and floating
+ * inputs. Those nets are the cut. Every part that reads one gets its own copy, and
+ * {@link #drive} writes all of them. Every driven net belongs to exactly one part, so no value
+ * crosses between parts while they run, and the parts never wait on each other.
+ *
+ * <p>The whole netlist stays the board's state. A pass loads each part from it and copies the
+ * part's changes back when every part is done, so it reads the same afterwards as if the pass had
+ * run on it directly. Connected components are packed into at most {@code maxParts} parts,
+ * largest first onto the lightest part, so a board of many small exercises still makes a few
+ * evenly sized tasks. A board packed into one part is simulated in place.
+ *
+ * <p>Passes over several parts run on the pool once the board has {@link #PARALLEL_CELLS} cells;
+ * smaller ones run the parts one after another on the calling thread. Tables are split into parts
+ * even then, since a part's table only enumerates the inputs the part reads.
+ */
+public final class PartitionedSimulator {
+
+    /** Below this many cells a pass costs less than handing it to the pool. */
+    public static final int PARALLEL_CELLS = 4096;
+
+    private static final class Part {
+        final Netlist n;
+        final int[] global;   // local net -> net of the whole netlist; null when n is the whole
+        final LevelizedSchedule schedule;
+        final EventSimulator sim;
+        boolean active, stable;
+        int depth;
+
+        Part(Netlist n, int[] global) {
+            this.n = n;
+            this.global = global;
+            schedule = new LevelizedSchedule(n);
+            sim = new EventSimulator(n);
+        }
+    }
+
+    private final Netlist n;
+    private final ForkJoinPool pool;
+    private final Part[] parts;
+    private final int components;
+    private final boolean parallel;
+    private final int[] partOf;        // per net: owning part, -1 for cut nets
+    private final int[] localOf;       // per driven net: its net in the owning part
+    private final int[] copyStart;     // CSR per cut net: the parts holding a copy of it
+    private final int[] copyPart;
+    private final int[] copyLocal;
+    private int lastDepth;
+
+    /** Up to one part per thread of the common pool; boards under {@link #PARALLEL_CELLS} cells stay whole. */
+    public PartitionedSimulator(Netlist n) {
+        this(n, n.cellCount < PARALLEL_CELLS ? 1 : ForkJoinPool.getCommonPoolParallelism(), ForkJoinPool.commonPool());
+    }
+
+    public PartitionedSimulator(Netlist n, int maxParts, ForkJoinPool pool) {
+        this.n = n;
+        this.pool = pool;
+        int nets = n.netCount;
+        boolean[] driven = new boolean[nets];
+        for (int c = 0; c < n.cellCount; c++) driven[n.outNet[c]] = true;
+        for (int r = 0; r < n.regCount; r++) driven[n.regOut[r]] = true;
+
+        // ---------- COMPONENTS ----------
+        // driven nets joined through the cells and registers that read and drive them
+        int[] parent = new int[nets];
+        for (int i = 0; i < nets; i++) parent[i] = i;
+        for (int c = 0; c < n.cellCount; c++)
+            for (int k = n.inStart[c]; k < n.inStart[c + 1]; k++)
+                if (driven[n.inNets[k]]) union(parent, n.outNet[c], n.inNets[k]);
+        for (int r = 0; r < n.regCount; r++) {
+            for (int k = n.regInStart[r]; k < n.regInStart[r + 1]; k++)
+                if (driven[n.regInNets[k]]) union(parent, n.regOut[r], n.regInNets[k]);
+            if (driven[n.regClk[r]]) union(parent, n.regOut[r], n.regClk[r]);
+        }
+        int[] weight = new int[nets];
+        for (int c = 0; c < n.cellCount; c++) weight[find(parent, n.outNet[c])]++;
+        for (int r = 0; r < n.regCount; r++) weight[find(parent, n.regOut[r])]++;
+        List<Integer> roots = new ArrayList<>();
+        for (int i = 0; i < nets; i++) if (driven[i] && parent[i] == i) roots.add(i);
+        components = roots.size();
+
+        // ---------- PACKING ----------
+        int k = Math.max(1, Math.min(maxParts, components));
+        roots.sort((a, b) -> Integer.compare(weight[b], weight[a]));
+        int[] binOfRoot = new int[nets];
+        long[] load = new long[k];
+        for (int root : roots) {
+            int best = 0;
+            for (int b = 1; b < k; b++) if (load[b] < load[best]) best = b;
+            binOfRoot[root] = best;
+            load[best] += weight[root];
+        }
+        partOf = new int[nets];
+        localOf = new int[nets];
+        for (int i = 0; i < nets; i++) partOf[i] = driven[i] ? binOfRoot[find(parent, i)] : -1;
+
+        // ---------- PARTS ----------
+        parts = new Part[k];
+        List<List<Integer>> copies = new ArrayList<>();
+        for (int i = 0; i < nets; i++) copies.add(null);
+        if (k == 1) {
+            parts[0] = new Part(n, null);
+            for (int i = 0; i < nets; i++) {
+                localOf[i] = i;
+                if (!driven[i]) copies.set(i, List.of(0, i));
+            }
+        } else {
+            byte[] tie = new byte[nets];   // 1 = GND, 2 = VCC
+            for (int i = 0; i < n.constNets.length; i++) tie[n.constNets[i]] = (byte) (n.constHigh[i] ? 2 : 1);
+            List<List<Integer>> cells = new ArrayList<>(), regs = new ArrayList<>();
+            for (int b = 0; b < k; b++) { cells.add(new ArrayList<>()); regs.add(new ArrayList<>()); }
+            for (int c = 0; c < n.cellCount; c++) cells.get(partOf[n.outNet[c]]).add(c);
+            for (int r = 0; r < n.regCount; r++) regs.get(partOf[n.regOut[r]]).add(r);
+            int[] pinOf = new int[nets];
+            Arrays.fill(pinOf, -1);
+            for (int b = 0; b < k; b++) {
+                Netlist.Builder nb = new Netlist.Builder();
+                List<Integer> globals = new ArrayList<>();
+                for (int c : cells.get(b)) {
+                    int[] in = new int[n.inStart[c + 1] - n.inStart[c]];
+                    for (int i = 0; i < in.length; i++) in[i] = pin(nb, n.inNets[n.inStart[c] + i], pinOf, globals, tie);
+                    int out = pin(nb, n.outNet[c], pinOf, globals, tie);
+                    nb.setCellDelay(nb.addCell(n.lut[c], in, out), n.cellDelay[c]);
+                }
+                for (int r : regs.get(b)) {
+                    int[] in = new int[n.regInStart[r + 1] - n.regInStart[r]];
+                    for (int i = 0; i < in.length; i++) in[i] = pin(nb, n.regInNets[n.regInStart[r] + i], pinOf, globals, tie);
+                    int clk = pin(nb, n.regClk[r], pinOf, globals, tie);
+                    int out = pin(nb, n.regOut[r], pinOf, globals, tie);
+                    nb.setRegDelay(nb.addReg(clk, n.regRising[r], in, n.regNext[r], n.regForce[r], n.regForceValue[r], out),
+                        n.regDelay[r]);
+                }
+                Netlist pn = nb.build();
+                int[] global = new int[pn.netCount];
+                for (int p = 0; p < globals.size(); p++) {
+                    int g = globals.get(p), local = pn.netOf(p);
+                    global[local] = g;
+                    pinOf[g] = -1;
+                    if (driven[g]) localOf[g] = local;
+                    else {
+                        if (copies.get(g) == null) copies.set(g, new ArrayList<>());
+                        copies.get(g).add(b);
+                        copies.get(g).add(local);
+                    }
+                }
+                parts[b] = new Part(pn, global);
+            }
+        }
+        copyStart = new int[nets + 1];
+        for (int i = 0; i < nets; i++) copyStart[i + 1] = copyStart[i] + (copies.get(i) == null ? 0 : copies.get(i).size() / 2);
+        copyPart = new int[copyStart[nets]];
+        copyLocal = new int[copyStart[nets]];
+        for (int i = 0; i < nets; i++) {
+            List<Integer> l = copies.get(i);
+            if (l == null) continue;
+            for (int j = 0; j < l.size(); j += 2) {
+                copyPart[copyStart[i] + j / 2] = l.get(j);
+                copyLocal[copyStart[i] + j / 2] = l.get(j + 1);
+            }
+        }
+        parallel = k > 1 && n.cellCount >= PARALLEL_CELLS;
+    }
+
+    // one pin per net of the whole netlist, ties carried over
+    private static int pin(Netlist.Builder nb, int net, int[] pinOf, List<Integer> globals, byte[] tie) {
+        if (pinOf[net] < 0) {
+            pinOf[net] = nb.addPin();
+            globals.add(net);
+            if (tie[net] != 0) nb.tie(pinOf[net], tie[net] == 2);
+        }
+        return pinOf[net];
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        a = find(parent, a);
+        b = find(parent, b);
+        if (a != b) parent[Math.max(a, b)] = Math.min(a, b);
+    }
+
+    public Netlist netlist() { return n; }
+
+    /** Connected components of driven nets, before packing. */
+    public int components() { return components; }
+
+    public int parts() { return parts.length; }
+
+    public Netlist part(int i) { return parts[i].n; }
+
+    /** True if passes are spread over the pool rather than run on the calling thread. */
+    public boolean isParallel() { return parallel; }
+
+    /** Cell and register evaluations in every part so far. */
+    public long evaluations() {
+        long e = 0;
+        for (Part p : parts) e += p.schedule.evaluations() + p.sim.evaluations();
+        return e;
+    }
+
+    /** Deepest part of the last pass: levels plus event waves, as for the whole netlist. */
+    public int lastDepth() { return lastDepth; }
+
+    // ---------- PASSES ----------
+    /**
+     * A full pass: every part is levelized-evaluated, then its registers' set/clear inputs are
+     * rechecked, as {@link LevelizedSchedule#evaluate()} followed by
+     * {@link EventSimulator#scheduleRegisters()} would do on the whole netlist. Returns false if a
+     * feedback loop did not settle.
+     */
+    public boolean evaluate() {
+        for (Part p : parts) p.active = true;
+        forEachActive(p -> {
+            load(p);
+            boolean stable = p.schedule.evaluate();
+            p.sim.scheduleRegisters();
+            p.stable = p.sim.run() & stable;
+            p.depth = p.schedule.levelCount() + p.sim.lastDepth();
+        });
+        return merge();
+    }
+
+    /**
+     * Drives cut nets (switches, the clock) to new values and lets the parts that read them
+     * settle. The parts must be in step with the whole netlist, as a pass or an earlier drive
+     * leaves them; after anything else has written it, call {@link #evaluate()} first.
+     */
+    public boolean drive(int[] nets, boolean[] values) {
+        for (Part p : parts) p.active = false;
+        for (int i = 0; i < nets.length; i++) {
+            int net = nets[i];
+            if (partOf[net] >= 0) throw new IllegalArgumentException("net " + net + " is driven on the board");
+            // in place, the part's own drive writes the net
+            if (parts[0].n != n) n.set(net, values[i]);
+            for (int k = copyStart[net]; k < copyStart[net + 1]; k++) {
+                Part p = parts[copyPart[k]];
+                p.sim.drive(copyLocal[k], values[i]);
+                p.active = true;
+            }
+        }
+        forEachActive(p -> {
+            p.stable = p.sim.run();
+            p.depth = p.sim.lastDepth();
+        });
+        return merge();
+    }
+
+    private void load(Part p) {
+        if (p.n == n) return;
+        p.n.setPowered(n.powered);
+        for (int l = 0; l < p.global.length; l++) p.n.set(l, n.get(p.global[l]));
+        p.n.clearChanges();
+    }
+
+    // parts only change nets they own, so their journals go straight back to the whole netlist
+    private boolean merge() {
+        boolean stable = true;
+        int depth = 0;
+        for (Part p : parts) {
+            if (!p.active) continue;
+            stable &= p.stable;
+            depth = Math.max(depth, p.depth);
+            if (p.n == n) continue;
+            for (int i = 0; i < p.n.changedCount(); i++) {
+                int l = p.n.changedNet(i);
+                n.set(p.global[l], p.n.get(l));
+            }
+            p.n.clearChanges();
+        }
+        lastDepth = depth;
+        return stable;
+    }
+
+    private void forEachActive(Consumer<Part> body) {
+        if (parallel) pool.invoke(new PartTask(body, 0, parts.length));
+        else for (Part p : parts) if (p.active) body.accept(p);
+    }
+
+    private final class PartTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Consumer<Part> body;
+        private final int from, to;
+
+        PartTask(Consumer<Part> body, int from, int to) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            if (to - from == 1) {
+                if (parts[from].active) body.accept(parts[from]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new PartTask(body, from, mid), new PartTask(body, mid, to));
+        }
+    }
+
+    // ---------- TRUTH TABLES ----------
+    /**
+     * The table {@link TruthTableEngine#compute} would give on the whole netlist. Each part
+     * only enumerates the table inputs it reads, so a board of independent exercises costs the
+     * sum of their own small tables rather than one over every input, and the parts run in
+     * parallel. Outputs no part drives are an input's own column, a constant or 0.
+     */
+    public TruthTableEngine.Result truthTable(int[] inputNets, int[] outputNets) {
+        int k = inputNets.length;
+        if (k > TruthTableEngine.MAX_INPUTS) throw new IllegalArgumentException("Too many inputs for a full table: " + k);
+        if (parts.length == 1) return new TruthTableEngine(n, parts[0].schedule).compute(inputNets, outputNets);
+        long start = System.nanoTime();
+        long rows = 1L << k;
+        long[][] cols = new long[outputNets.length][(int) Math.max(1, rows >>> 6)];
+        for (int j = 0; j < outputNets.length; j++) {
+            int out = outputNets[j];
+            if (partOf[out] >= 0) continue;
+            int in = -1;
+            for (int i = 0; i < k; i++) if (inputNets[i] == out) in = i;
+            boolean high = false;
+            for (int i = 0; i < n.constNets.length; i++) if (n.constNets[i] == out) high = n.constHigh[i];
+            for (long row = 0; row < rows; row++) {
+                if (in >= 0 ? (row >>> in & 1) != 0 : high) cols[j][(int) (row >>> 6)] |= 1L << row;
+            }
+        }
+        for (Part p : parts) p.active = true;
+        Consumer<Part> body = p -> {
+            int[] pos = new int[k], localIn = new int[k];
+            int s = 0;
+            for (int i = 0; i < k; i++) {
+                int l = localNet(p, inputNets[i]);
+                if (l >= 0) { pos[s] = i; localIn[s++] = l; }
+            }
+            int[] js = new int[outputNets.length], localOut = new int[outputNets.length];
+            int m = 0;
+            for (int j = 0; j < outputNets.length; j++) {
+                int out = outputNets[j];
+                if (partOf[out] >= 0 && parts[partOf[out]] == p) { js[m] = j; localOut[m++] = localOf[out]; }
+            }
+            if (m == 0) return;
+            p.n.setPowered(n.powered);
+            TruthTableEngine.Result t = new TruthTableEngine(p.n, p.schedule)
+                .compute(Arrays.copyOf(localIn, s), Arrays.copyOf(localOut, m));
+            for (long row = 0; row < rows; row++) {
+                long sub = 0;
+                for (int i = 0; i < s; i++) sub |= (row >>> pos[i] & 1) << i;
+                for (int o = 0; o < m; o++) if (t.get(sub, o)) cols[js[o]][(int) (row >>> 6)] |= 1L << row;
+            }
+        };
+        if (parts.length > 1 && (rows >>> 6) * n.cellCount >= PARALLEL_CELLS) pool.invoke(new PartTask(body, 0, parts.length));
+        else for (Part p : parts) body.accept(p);
+        return new TruthTableEngine.Result(k, cols, System.nanoTime() - start);
+    }
+
+    // the part's net for a net of the whole netlist, -1 if the part does not hold it
+    private int localNet(Part p, int net) {
+        if (partOf[net] >= 0) return parts[partOf[net]] == p ? localOf[net] : -1;
+        for (int k = copyStart[net]; k < copyStart[net + 1]; k++) if (parts[copyPart[k]] == p) return copyLocal[k];
+        return -1;
+    }
+}
@@ -0,0 +1,416 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A small CDCL SAT solver, enough for {@link EquivalenceChecker}'s miters: two-watched-literal
+ * unit propagation, first-UIP clause learning with local minimization, VSIDS branching with
+ * phase saving, Luby restarts, and periodic deletion of learnt clauses with a high LBD (the
+ * number of decision levels they span). Variables are numbered from 1 and clauses are given as
+ * DIMACS literals: {@code v} or {@code -v}.
+ */
+public final class SatSolver {
+
+    private static final int RESTART_BASE = 100;   // conflicts per Luby unit
+    private static final double VAR_DECAY = 0.95;
+
+    private static final class Clause {
+        final int[] lits;       // lits[0], lits[1] are watched; a reason clause implies lits[0]
+        final boolean learnt;
+        int lbd;
+        boolean deleted;
+
+        Clause(int[] lits, boolean learnt) {
+            this.lits = lits;
+            this.learnt = learnt;
+        }
+    }
+
+    // internal literal of variable v: 2v (positive) or 2v + 1 (negated)
+    private int vars;
+    private byte[] value = new byte[4];          // per literal: 1 true, -1 false, 0 unassigned
+    private int[] level = new int[2];
+    private Clause[] reason = new Clause[2];
+    private boolean[] phase = new boolean[2];    // last value, reused when branching
+    private boolean[] seen = new boolean[2];
+    private double[] activity = new double[2];
+    private Clause[][] watches = new Clause[4][];
+    private int[] watchCount = new int[4];
+    private int[] heap = new int[2];              // VSIDS order: binary max-heap of variables
+    private int[] heapPos = new int[2];           // -1 when not in the heap
+    private int heapSize;
+    private double varInc = 1;
+
+    private int[] trail = new int[2];
+    private int trailSize, qhead;
+    private int[] trailLim = new int[2];          // trail size at the start of each decision level
+    private int decisionLevel;
+
+    private final List<Clause> learnts = new ArrayList<>();
+    private boolean unsat;
+    private boolean[] model;
+    private long conflicts, decisions, propagations;
+
+    /** Adds a variable and returns its number. */
+    public int newVar() {
+        int v = ++vars;
+        if (v + 1 > level.length) grow(2 * (v + 1));
+        heapPos[v] = -1;
+        watches[2 * v] = new Clause[4];
+        watches[2 * v + 1] = new Clause[4];
+        heapInsert(v);
+        return v;
+    }
+
+    public int varCount() { return vars; }
+
+    private void grow(int n) {
+        value = Arrays.copyOf(value, 2 * n);
+        watches = Arrays.copyOf(watches, 2 * n);
+        watchCount = Arrays.copyOf(watchCount, 2 * n);
+        level = Arrays.copyOf(level, n);
+        reason = Arrays.copyOf(reason, n);
+        phase = Arrays.copyOf(phase, n);
+        seen = Arrays.copyOf(seen, n);
+        activity = Arrays.copyOf(activity, n);
+        heap = Arrays.copyOf(heap, n);
+        heapPos = Arrays.copyOf(heapPos, n);
+        trail = Arrays.copyOf(trail, n);
+        trailLim = Arrays.copyOf(trailLim, n);
+    }
+
+    private static int internal(int dimacs) {
+        return dimacs > 0 ? 2 * dimacs : -2 * dimacs + 1;
+    }
+
+    /**
+     * Adds a clause between calls to {@link #solve()}. Literals already fixed by earlier clauses
+     * are simplified away; an empty clause makes the problem unsatisfiable.
+     *
+     * @throws IllegalArgumentException if a literal names an unknown variable
+     */
+    public void addClause(int... dimacs) {
+        if (unsat) return;
+        int[] c = new int[dimacs.length];
+        int k = 0;
+        for (int d : dimacs) {
+            if (d == 0 || Math.abs(d) > vars) throw new IllegalArgumentException("No such variable: " + d);
+            c[k++] = internal(d);
+        }
+        Arrays.sort(c, 0, k);
+        int m = 0;
+        for (int i = 0; i < k; i++) {
+            int l = c[i];
+            if (value[l] > 0 || (m > 0 && c[m - 1] == (l ^ 1))) return;   // satisfied, or a tautology
+            if (value[l] < 0 || (m > 0 && c[m - 1] == l)) continue;
+            c[m++] = l;
+        }
+        if (m == 0) {
+            unsat = true;
+        } else if (m == 1) {
+            assign(c[0], null);
+        } else {
+            attach(new Clause(Arrays.copyOf(c, m), false));
+        }
+    }
+
+    /** Solves the clauses added so far; when satisfiable, {@link #value(int)} reads the model. */
+    public boolean solve() {
+        model = null;
+        if (unsat) return false;
+        int lubyIndex = 0;
+        long restartAt = conflicts + RESTART_BASE * luby(lubyIndex);
+        int maxLearnts = Math.max(2000, vars / 3);
+        List<Integer> learnt = new ArrayList<>();
+        while (true) {
+            Clause confl = propagate();
+            if (confl != null) {
+                conflicts++;
+                if (decisionLevel == 0) {
+                    unsat = true;
+                    return false;
+                }
+                int back = analyze(confl, learnt);
+                cancelUntil(back);
+                if (learnt.size() == 1) {
+                    assign(learnt.get(0), null);
+                } else {
+                    int[] lits = new int[learnt.size()];
+                    for (int i = 0; i < lits.length; i++) lits[i] = learnt.get(i);
+                    Clause c = new Clause(lits, true);
+                    c.lbd = lbd(lits);
+                    attach(c);
+                    learnts.add(c);
+                    assign(lits[0], c);
+                }
+                varInc /= VAR_DECAY;
+                continue;
+            }
+            if (conflicts >= restartAt) {
+                cancelUntil(0);
+                restartAt = conflicts + RESTART_BASE * luby(++lubyIndex);
+            }
+            if (learnts.size() - trailSize >= maxLearnts) {
+                reduceLearnts();
+                maxLearnts += maxLearnts / 10;
+            }
+            int v = pickBranch();
+            if (v == 0) {
+                model = new boolean[vars + 1];
+                for (int i = 1; i <= vars; i++) model[i] = value[2 * i] > 0;
+                cancelUntil(0);
+                return true;
+            }
+            decisions++;
+            trailLim[decisionLevel++] = trailSize;
+            assign(phase[v] ? 2 * v : 2 * v + 1, null);
+        }
+    }
+
+    /** The model's value of a DIMACS literal after a satisfiable {@link #solve()}. */
+    public boolean value(int dimacs) {
+        if (model == null) throw new IllegalStateException("No model");
+        return model[Math.abs(dimacs)] == dimacs > 0;
+    }
+
+    public long conflicts() { return conflicts; }
+    public long decisions() { return decisions; }
+    public long propagations() { return propagations; }
+
+    // ---------- PROPAGATION ----------
+    private void assign(int lit, Clause from) {
+        int v = lit >> 1;
+        value[lit] = 1;
+        value[lit ^ 1] = -1;
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = lit;
+    }
+
+    private void attach(Clause c) {
+        watch(c.lits[0] ^ 1, c);
+        watch(c.lits[1] ^ 1, c);
+    }
+
+    // watches[p] holds the clauses to visit when p becomes true, i.e. when a watched ~p turns false
+    private void watch(int p, Clause c) {
+        if (watchCount[p] == watches[p].length) watches[p] = Arrays.copyOf(watches[p], 2 * watchCount[p]);
+        watches[p][watchCount[p]++] = c;
+    }
+
+    private Clause propagate() {
+        while (qhead < trailSize) {
+            int p = trail[qhead++];
+            int falseLit = p ^ 1;
+            Clause[] ws = watches[p];
+            int n = watchCount[p], i = 0, j = 0;
+            propagations++;
+            while (i < n) {
+                Clause c = ws[i++];
+                if (c.deleted) continue;
+                int[] l = c.lits;
+                if (l[0] == falseLit) {
+                    l[0] = l[1];
+                    l[1] = falseLit;
+                }
+                if (value[l[0]] > 0) {
+                    ws[j++] = c;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < l.length; k++) {
+                    if (value[l[k]] >= 0) {
+                        l[1] = l[k];
+                        l[k] = falseLit;
+                        watch(l[1] ^ 1, c);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+                ws[j++] = c;
+                if (value[l[0]] < 0) {
+                    while (i < n) ws[j++] = ws[i++];
+                    watchCount[p] = j;
+                    qhead = trailSize;
+                    return c;
+                }
+                assign(l[0], c);
+            }
+            watchCount[p] = j;
+        }
+        return null;
+    }
+
+    // ---------- CONFLICT ANALYSIS ----------
+    // First UIP: resolves the conflict back along the trail until one literal of the current
+    // level remains. Returns the level to jump back to; out[0] is the asserting literal.
+    private int analyze(Clause confl, List<Integer> out) {
+        out.clear();
+        out.add(0);
+        int pathCount = 0, p = -1, index = trailSize - 1;
+        Clause c = confl;
+        do {
+            for (int j = p < 0 ? 0 : 1; j < c.lits.length; j++) {
+                int q = c.lits[j], v = q >> 1;
+                if (seen[v] || level[v] == 0) continue;
+                seen[v] = true;
+                bump(v);
+                if (level[v] >= decisionLevel) pathCount++;
+                else out.add(q);
+            }
+            while (!seen[trail[index] >> 1]) index--;
+            p = trail[index--];
+            c = reason[p >> 1];
+            seen[p >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        out.set(0, p ^ 1);
+
+        // drop literals implied by the rest of the clause through their own reason
+        int[] all = new int[out.size()];
+        for (int i = 0; i < all.length; i++) all[i] = out.get(i);
+        int m = 1;
+        for (int i = 1; i < all.length; i++) {
+            Clause r = reason[all[i] >> 1];
+            boolean redundant = r != null;
+            for (int j = 1; redundant && j < r.lits.length; j++) {
+                int v = r.lits[j] >> 1;
+                if (!seen[v] && level[v] > 0) redundant = false;
+            }
+            if (!redundant) out.set(m++, all[i]);
+        }
+        while (out.size() > m) out.remove(out.size() - 1);
+        for (int i = 1; i < all.length; i++) seen[all[i] >> 1] = false;
+
+        int back = 0;
+        if (out.size() > 1) {
+            int at = 1;
+            for (int i = 2; i < out.size(); i++) if (level[out.get(i) >> 1] > level[out.get(at) >> 1]) at = i;
+            int q = out.get(at);
+            out.set(at, out.get(1));
+            out.set(1, q);
+            back = level[q >> 1];
+        }
+        return back;
+    }
+
+    private int lbd(int[] lits) {
+        int count = 0;
+        int[] levels = new int[lits.length];
+        for (int l : lits) {
+            int lv = level[l >> 1];
+            boolean known = false;
+            for (int i = 0; i < count && !known; i++) known = levels[i] == lv;
+            if (!known) levels[count++] = lv;
+        }
+        return count;
+    }
+
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) return;
+        for (int i = trailSize - 1; i >= trailLim[target]; i--) {
+            int lit = trail[i], v = lit >> 1;
+            value[lit] = 0;
+            value[lit ^ 1] = 0;
+            reason[v] = null;
+            phase[v] = (lit & 1) == 0;
+            if (heapPos[v] < 0) heapInsert(v);
+        }
+        trailSize = qhead = trailLim[target];
+        decisionLevel = target;
+    }
+
+    // Keeps glue clauses (LBD <= 2) and clauses that are the reason of an assignment; drops the
+    // worse half of the rest. Deleted clauses leave their watch lists lazily during propagation.
+    private void reduceLearnts() {
+        learnts.sort((a, b) -> a.lbd != b.lbd ? Integer.compare(b.lbd, a.lbd) : Integer.compare(b.lits.length, a.lits.length));
+        int drop = learnts.size() / 2, kept = 0;
+        for (int i = 0; i < learnts.size(); i++) {
+            Clause c = learnts.get(i);
+            boolean locked = reason[c.lits[0] >> 1] == c && value[c.lits[0]] > 0;
+            if (i < drop && c.lbd > 2 && !locked) c.deleted = true;
+            else learnts.set(kept++, c);
+        }
+        learnts.subList(kept, learnts.size()).clear();
+    }
+
+    // 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+    private static long luby(int i) {
+        int size = 1, seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            seq--;
+            i = i % size;
+        }
+        return 1L << seq;
+    }
+
+    // ---------- VSIDS ----------
+    private void bump(int v) {
+        if ((activity[v] += varInc) > 1e100) {
+            for (int i = 1; i <= vars; i++) activity[i] *= 1e-100;
+            varInc *= 1e-100;
+        }
+        if (heapPos[v] >= 0) siftUp(heapPos[v]);
+    }
+
+    private int pickBranch() {
+        while (heapSize > 0) {
+            int v = heap[0];
+            heapRemoveTop();
+            if (value[2 * v] == 0) return v;
+        }
+        return 0;
+    }
+
+    private void heapInsert(int v) {
+        heap[heapSize] = v;
+        heapPos[v] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void heapRemoveTop() {
+        int v = heap[0];
+        heapPos[v] = -1;
+        if (--heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapPos[heap[0]] = 0;
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[v]) break;
+            heap[i] = heap[parent];
+            heapPos[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        heapPos[v] = i;
+    }
+
+    private void siftDown(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+            if (activity[heap[child]] <= activity[v]) break;
+            heap[i] = heap[child];
+            heapPos[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapPos[v] = i;
+    }
+}
@@ -0,0 +1,93 @@
+package sim;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder events for the simulator and the board's rendering. They cost next to
+ * nothing while no recording runs; {@code jfr/virtualic.jfc} enables them together with the JDK
+ * events worth having next to them. Every event spans the phase it names, so the recording's
+ * timeline shows which phase a stutter fell in.
+ */
+public final class SimEvents {
+
+    private SimEvents() { }
+
+    @Name("virtualic.NetlistCompile")
+    @Label("Netlist Compile")
+    @Category({ "Virtual IC Trainer", "Simulation" })
+    @Description("Flattening ICs and wires into a netlist")
+    public static final class NetlistCompile extends Event {
+        @Label("Pins") public int pins;
+        @Label("Nets") public int nets;
+        @Label("Cells") public int cells;
+        @Label("Registers") public int registers;
+    }
+
+    @Name("virtualic.Evaluation")
+    @Label("Evaluation")
+    @Category({ "Virtual IC Trainer", "Simulation" })
+    @Description("One evaluateAll() or one switch/clock change settling")
+    public static final class Evaluation extends Event {
+        @Label("Kind") public String kind;
+        @Label("Gates Evaluated") public long evaluations;
+        @Label("Nets Changed") public long transitions;
+        @Label("Depth") @Description("Evaluation waves; settle time in ns in timing mode") public long depth;
+    }
+
+    @Name("virtualic.ClockRun")
+    @Label("Clock Run")
+    @Category({ "Virtual IC Trainer", "Simulation" })
+    public static final class ClockRun extends Event {
+        @Label("Cycles") public long cycles;
+        @Label("Virtual Time") @Timespan(Timespan.NANOSECONDS) public long virtualTime;
+        @Label("Stop") public String stop;
+    }
+
+    @Name("virtualic.TruthTable")
+    @Label("Truth Table")
+    @Category({ "Virtual IC Trainer", "Simulation" })
+    public static final class TruthTable extends Event {
+        @Label("Source") @Description("A chip's own table, or the board's switches") public String source;
+        @Label("Inputs") public int inputs;
+        @Label("Outputs") public int outputs;
+    }
+
+    @Name("virtualic.Equivalence")
+    @Label("Equivalence Check")
+    @Category({ "Virtual IC Trainer", "Simulation" })
+    public static final class Equivalence extends Event {
+        @Label("Method") public String method;
+        @Label("Inputs") public int inputs;
+        @Label("Outputs") public int outputs;
+        @Label("Equivalent") public boolean equivalent;
+        @Label("Conflicts") @Description("SAT solver conflicts; 0 when simulated") public long conflicts;
+    }
+
+    @Name("virtualic.CircuitFile")
+    @Label("Circuit Save/Load")
+    @Category({ "Virtual IC Trainer", "Persistence" })
+    public static final class CircuitFileIO extends Event {
+        @Label("Operation") public String operation;
+        @Label("File") public String file;
+        @Label("Size") @DataAmount public long bytes;
+        @Label("ICs") public int ics;
+        @Label("Wires") public int wires;
+    }
+
+    @Name("virtualic.BoardRedraw")
+    @Label("Board Redraw")
+    @Category({ "Virtual IC Trainer", "Rendering" })
+    @Description("Work done in one animation pulse: indicators, canvas view and analyzer")
+    public static final class BoardRedraw extends Event {
+        @Label("LEDs Refreshed") public int leds;
+        @Label("Switches Refreshed") public int switches;
+        @Label("Canvas Rendered") public boolean canvas;
+        @Label("Wires Drawn") @Description("Node paths recomputed and canvas strokes since the last pulse") public long wires;
+    }
+}
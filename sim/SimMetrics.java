@@ -0,0 +1,97 @@
+package sim;
+
+/**
+ * Work counters for the board. A pass is one {@code evaluateAll()} or one switch/clock drive:
+ * its gate evaluations, net transitions, propagation depth and duration are recorded, the last
+ * one kept as is and each also folded into a histogram. Rendering is counted separately (wires
+ * redrawn, FX pulses, frame interval and the time spent inside a pulse).
+ *
+ * <p>Passes may be recorded on one thread (the simulation thread) while the rendering counters
+ * and {@link #snapshot()}s belong to another; passes and snapshots are synchronized for that.
+ * Rendering counters are not, and must stay on the thread that takes the snapshots.
+ */
+public final class SimMetrics {
+
+    /** An immutable copy of the counters. Durations are ns. */
+    public static final class Snapshot {
+        public final long passes, evaluations, transitions;
+        public final long lastEvaluations, lastTransitions, lastDepth, maxDepth, lastPassNanos;
+        public final long wiresRedrawn, pulses, lastFrameNanos, lastPulseWorkNanos;
+        public final Histogram passNanos, passEvaluations, passDepth, frameNanos;
+
+        Snapshot(SimMetrics m) {
+            passes = m.passes;
+            evaluations = m.evaluations;
+            transitions = m.transitions;
+            lastEvaluations = m.lastEvaluations;
+            lastTransitions = m.lastTransitions;
+            lastDepth = m.lastDepth;
+            maxDepth = m.maxDepth;
+            lastPassNanos = m.lastPassNanos;
+            wiresRedrawn = m.wiresRedrawn;
+            pulses = m.pulses;
+            lastFrameNanos = m.lastFrameNanos;
+            lastPulseWorkNanos = m.lastPulseWorkNanos;
+            passNanos = m.passNanos.copy();
+            passEvaluations = m.passEvaluations.copy();
+            passDepth = m.passDepth.copy();
+            frameNanos = m.frameNanos.copy();
+        }
+
+        @Override public String toString() {
+            return String.format("passes=%d evaluations=%d transitions=%d maxDepth=%d wiresRedrawn=%d pulses=%d%n"
+                    + "  pass ns     %s%n  pass evals  %s%n  pass depth  %s%n  frame ns    %s",
+                passes, evaluations, transitions, maxDepth, wiresRedrawn, pulses,
+                passNanos, passEvaluations, passDepth, frameNanos);
+        }
+    }
+
+    private long passes, evaluations, transitions;
+    private long lastEvaluations, lastTransitions, lastDepth, maxDepth, lastPassNanos;
+    private long wiresRedrawn, pulses, lastFrameNanos, lastPulseWorkNanos, lastPulseAt = -1;
+    private final Histogram passNanos = new Histogram(), passEvaluations = new Histogram();
+    private final Histogram passDepth = new Histogram(), frameNanos = new Histogram();
+
+    public synchronized void pass(long nanos, long evals, long trans, long depth) {
+        passes++;
+        evaluations += evals;
+        transitions += trans;
+        lastEvaluations = evals;
+        lastTransitions = trans;
+        lastDepth = depth;
+        maxDepth = Math.max(maxDepth, depth);
+        lastPassNanos = nanos;
+        passNanos.record(nanos);
+        passEvaluations.record(evals);
+        passDepth.record(depth);
+    }
+
+    public void wiresRedrawn(int k) { wiresRedrawn += k; }
+
+    /** Wires redrawn so far, without the cost of a full {@link #snapshot()}. */
+    public long wiresRedrawn() { return wiresRedrawn; }
+
+    /** One animation pulse at {@code now} (the FX timestamp) that did {@code workNanos} of work. */
+    public void pulse(long now, long workNanos) {
+        pulses++;
+        if (lastPulseAt >= 0) {
+            lastFrameNanos = now - lastPulseAt;
+            frameNanos.record(lastFrameNanos);
+        }
+        lastPulseAt = now;
+        lastPulseWorkNanos = workNanos;
+    }
+
+    public synchronized Snapshot snapshot() { return new Snapshot(this); }
+
+    public synchronized void reset() {
+        passes = evaluations = transitions = 0;
+        lastEvaluations = lastTransitions = lastDepth = maxDepth = lastPassNanos = 0;
+        wiresRedrawn = pulses = lastFrameNanos = lastPulseWorkNanos = 0;
+        lastPulseAt = -1;
+        passNanos.clear();
+        passEvaluations.clear();
+        passDepth.clear();
+        frameNanos.clear();
+    }
+}
@@ -0,0 +1,138 @@
+package sim;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * A thread of its own for the simulation engines. Other threads post commands to a lock-free
+ * queue ({@link ConcurrentLinkedQueue}, never blocking the poster); the thread runs them in order
+ * and, after each batch, publishes a {@link Snapshot} of the attached netlist's values that any
+ * thread can read without touching the engines.
+ *
+ * <p>Engine state (net values, event queues, recorders) must only be used from commands, or from
+ * code they call. A netlist's structure (nets, pins, cells) never changes after
+ * {@link Netlist.Builder#build()} and may be read from any thread.
+ */
+public final class SimThread {
+
+    // a command storm still publishes this often, so readers never wait on a full queue
+    private static final int MAX_BATCH = 256;
+
+    /** Net values at the end of one batch; never modified once published. */
+    public static final class Snapshot {
+        public final Netlist netlist;
+        public final boolean powered;
+        public final long seq;
+        private final long[] values;
+
+        Snapshot(Netlist netlist, long seq) {
+            this.netlist = netlist;
+            this.powered = netlist.isPowered();
+            this.seq = seq;
+            this.values = netlist.copyValues();
+        }
+
+        public boolean get(int net) {
+            return (values[net >>> 6] & (1L << net)) != 0;
+        }
+
+        /** Word {@code w} of the packed values: net {@code 64w + i} is bit i. */
+        public long word(int w) { return values[w]; }
+
+        public int words() { return values.length; }
+    }
+
+    private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile Snapshot latest;
+    private volatile boolean stopped;
+    private Consumer<RuntimeException> errors = RuntimeException::printStackTrace;
+    private Netlist netlist;   // simulation thread only
+    private long seq;
+
+    public SimThread(String name) {
+        thread = new Thread(this::loop, name);
+        thread.setDaemon(true);
+    }
+
+    public void start() { thread.start(); }
+
+    /** Stops after the command running now; anything still queued is dropped. */
+    public void shutdown() {
+        stopped = true;
+        LockSupport.unpark(thread);
+    }
+
+    /** Receives exceptions thrown by posted commands (on the simulation thread); they are printed by default. */
+    public void setErrorHandler(Consumer<RuntimeException> handler) { errors = handler; }
+
+    /** Queues {@code command}; safe from any thread, and never waits. */
+    public void post(Runnable command) {
+        commands.offer(command);
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Queues {@code task} and returns its result when it has run. Joining the future from the
+     * simulation thread itself would wait forever.
+     */
+    public <T> CompletableFuture<T> call(Supplier<T> task) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        post(() -> {
+            try {
+                f.complete(task.get());
+            } catch (RuntimeException ex) {
+                f.completeExceptionally(ex);
+            }
+        });
+        return f;
+    }
+
+    public boolean isCurrent() { return Thread.currentThread() == thread; }
+
+    /** Simulation thread: publishes {@code n}'s values from now on (null stops publishing). */
+    public void attach(Netlist n) {
+        checkThread();
+        netlist = n;
+    }
+
+    /**
+     * Simulation thread: publishes a snapshot now instead of at the end of the batch, so a
+     * long-running command (a clock run) can show progress.
+     */
+    public void publish() {
+        checkThread();
+        if (netlist != null) latest = new Snapshot(netlist, ++seq);
+    }
+
+    /** The newest snapshot, or null before the first one. */
+    public Snapshot latest() { return latest; }
+
+    private void checkThread() {
+        if (!isCurrent()) throw new IllegalStateException("not on the simulation thread");
+    }
+
+    private void loop() {
+        int batch = 0;
+        while (!stopped) {
+            Runnable c = batch < MAX_BATCH ? commands.poll() : null;
+            if (c != null) {
+                try {
+                    c.run();
+                } catch (RuntimeException ex) {
+                    errors.accept(ex);
+                }
+                batch++;
+            } else if (batch > 0) {
+                publish();
+                batch = 0;
+            } else {
+                // a post() between the poll and here leaves a permit, so park returns at once
+                LockSupport.park(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package sim;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Self-check of the exact engines on generated boards. Run it after touching
+ * {@link TruthTableEngine}, {@link SatSolver}, {@link EquivalenceChecker}, {@link Bdd} or
+ * {@link SymbolicTable}:
+ *
+ * <pre>
+ *   java sim.SolverCheck [--boards N] [--seed S]
+ * </pre>
+ *
+ * The reference is a table settled cell by cell with {@link Netlist#evalCell}, which shares no
+ * code with the mux programs the bit-parallel, SAT and BDD paths all run. Besides random
+ * {@link BoardGenerator#dag} boards, every section includes boards that mix gates of different
+ * input counts over the same table ({@code {1}} is both a NOT and a NOR, {@code {8}} both an AND
+ * and a 1x4 DEMUX output), in both cell orders.
+ *
+ * <p>{@link TruthTableEngine} is held against the reference row by row. Each board is checked
+ * against itself and against copies with one wire removed, once simulated and once through SAT:
+ * the verdicts must agree with each other and with the reference tables, and every SAT
+ * counterexample must be a row where both the simulated and the reference tables differ.
+ * Parity chains are then checked against parity trees too wide to simulate, with and without a
+ * wrong gate; each counterexample is replayed on a {@link PartitionedSimulator}.
+ *
+ * <p>The same boards are built as {@link SymbolicTable}s and held against the reference: row
+ * counts, witnesses, the exact rows with don't-cares (every input vector covered once, with the
+ * reference's outputs) and the covers behind the expressions, which must rebuild each output's
+ * diagram. Every chip's own table is expanded and held against its gates' LUTs, and the parity
+ * diagrams must count 2^(n-1) rows at any width.
+ *
+ * <p>Prints one line per disagreement and a summary; the exit status is 1 when anything
+ * disagrees.
+ */
+public final class SolverCheck {
+
+    private static final long[] XOR = { 0b0110 }, AND = { 0b1000 };
+
+    private final List<String> failures = new ArrayList<>();
+    private int checks;
+
+    private SolverCheck() { }
+
+    public static void main(String[] args) {
+        int boards = 20;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 == args.length) usage();
+            String v = args[++i];
+            switch (args[i - 1]) {
+                case "--boards" -> boards = Integer.parseInt(v);
+                case "--seed" -> seed = Long.parseLong(v);
+                default -> usage();
+            }
+        }
+        SolverCheck c = new SolverCheck();
+        c.engine();
+        c.equivalence(boards, seed);
+        c.parity();
+        c.symbolic(boards, seed);
+        c.chips();
+        for (String f : c.failures) System.out.println("FAIL\t" + f);
+        System.out.println(c.checks + " checks, " + c.failures.size() + " failed");
+        if (!c.failures.isEmpty()) System.exit(1);
+    }
+
+    private static void usage() {
+        System.err.println("usage: java sim.SolverCheck [--boards N] [--seed S]");
+        System.exit(2);
+    }
+
+    private void check(boolean ok, String what) {
+        checks++;
+        if (!ok) failures.add(what);
+    }
+
+    // the same seed gives the same board, so a copy to mutate is just another call
+    private static CircuitFile board(int b, long seed) {
+        return BoardGenerator.dag(8 + b % 24, 6 + b % 11, 1 + b % 4, 2 + b % 2, 0, 4 + b % 8, seed + b, 10);
+    }
+
+    // ---------- EQUIVALENCE ----------
+    private void equivalence(int boards, long seed) {
+        Random rnd = new Random(seed);
+        for (int b = 0; b < boards; b++) {
+            Circuit reference = circuit(board(b, seed));
+            compare("board " + b + " against itself", circuit(board(b, seed)), reference);
+            for (int m = 0; m < 3; m++) {
+                CircuitFile mutant = board(b, seed);
+                int wire = rnd.nextInt(mutant.wires.size());
+                mutant.wires.remove(wire);
+                compare("board " + b + " without wire " + wire, circuit(mutant), reference);
+            }
+        }
+        compare("shared tables in both cell orders", sharedTables(true), sharedTables(false));
+        Circuit mixed = circuit(mixedChips(true));
+        compare("mixed chips in both cell orders", circuit(mixedChips(false)), mixed);
+        for (int m = 0; m < 3; m++) {
+            CircuitFile mutant = mixedChips(false);
+            int wire = rnd.nextInt(mutant.wires.size());
+            mutant.wires.remove(wire);
+            compare("mixed chips without wire " + wire, circuit(mutant), mixed);
+        }
+    }
+
+    private void compare(String what, Circuit student, Circuit reference) {
+        EquivalenceChecker ch = new EquivalenceChecker(student.netlist, student.inputs, student.outputs,
+                                                       reference.netlist, reference.inputs, reference.outputs);
+        EquivalenceChecker.Result simulated, solved;
+        try {
+            simulated = ch.check(TruthTableEngine.MAX_INPUTS);
+            solved = ch.check(-1);
+        } catch (RuntimeException ex) {
+            check(false, what + ": " + ex);
+            return;
+        }
+        check(simulated.method == EquivalenceChecker.Method.SIMULATION && solved.method == EquivalenceChecker.Method.SAT,
+              what + ": wrong method");
+        check(simulated.equivalent == solved.equivalent,
+              what + ": simulation says " + simulated.equivalent + ", SAT says " + solved.equivalent);
+        if (!solved.equivalent && !simulated.equivalent) {
+            long row = 0;
+            for (int i = 0; i < solved.inputs.length; i++) {
+                if (solved.counterexample[solved.inputs[i]]) row |= 1L << i;
+            }
+            check(simulated.differs(row), what + ": SAT counterexample " + vector(solved.counterexample)
+                                          + " is not a differing row");
+        }
+        // both paths run the same mux programs; the cell-by-cell tables share nothing with them
+        boolean[][] s = cellTable(student), r = cellTable(reference);
+        boolean same = Arrays.deepEquals(s, r);
+        check(solved.equivalent == same, what + ": SAT says " + solved.equivalent + ", cell by cell " + same);
+        if (!solved.equivalent) {
+            int row = (int) row(solved.counterexample);
+            check(!Arrays.equals(s[row], r[row]), what + ": SAT counterexample " + vector(solved.counterexample)
+                                                  + " lights the same LEDs cell by cell");
+        }
+    }
+
+    // ---------- PARITY ----------
+    private void parity() {
+        for (int n : new int[] { 8, 20, 32, 48, 64 }) {
+            Circuit chain = parity(n, false, -1), tree = parity(n, true, -1), wrong = parity(n, true, n / 3);
+            EquivalenceChecker.Result same = new EquivalenceChecker(chain.netlist, chain.inputs, chain.outputs,
+                                                                    tree.netlist, tree.inputs, tree.outputs).check(-1);
+            check(same.equivalent, "parity " + n + ": chain and tree differ on " + vector(same.counterexample));
+            EquivalenceChecker.Result differs = new EquivalenceChecker(chain.netlist, chain.inputs, chain.outputs,
+                                                                       wrong.netlist, wrong.inputs, wrong.outputs).check(-1);
+            check(!differs.equivalent, "parity " + n + ": a tree with an AND gate passed as equivalent");
+            if (!differs.equivalent) {
+                check(chain.replay(differs.counterexample) != wrong.replay(differs.counterexample),
+                      "parity " + n + ": counterexample " + vector(differs.counterexample) + " does not replay");
+            }
+        }
+    }
+
+    // ---------- SYMBOLIC ----------
+    private void symbolic(int boards, long seed) {
+        for (int b = 0; b < boards; b++) symbolic("board " + b, circuit(board(b, seed)));
+        for (boolean narrowFirst : new boolean[] { true, false }) {
+            String order = narrowFirst ? " (narrow cell first)" : " (wide cell first)";
+            symbolic("shared tables" + order, sharedTables(narrowFirst));
+            symbolic("mixed chips" + order, circuit(mixedChips(narrowFirst)));
+        }
+        for (int n : new int[] { 8, 32, 64 }) {
+            Circuit chain = parity(n, false, -1);
+            chain.netlist.setPowered(true);
+            SymbolicTable st = SymbolicTable.of(chain.netlist, chain.inputs, chain.outputs);
+            check(st.onRows(0).equals(BigInteger.ONE.shiftLeft(n - 1)), "parity " + n + ": " + st.onRows(0) + " rows on");
+            check(chain.replay(st.witness(0)), "parity " + n + ": witness does not light the LED");
+        }
+    }
+
+    // held against the cell-by-cell table, not the bit-parallel engine, which shares the mux programs
+    private void symbolic(String what, Circuit c) {
+        boolean[][] t = cellTable(c);
+        SymbolicTable st;
+        try {
+            st = SymbolicTable.of(c.netlist, c.inputs, c.outputs);
+        } catch (RuntimeException ex) {
+            check(false, what + ": " + ex);
+            return;
+        }
+        for (int j = 0; j < st.outputs(); j++) {
+            long ones = 0;
+            for (boolean[] r : t) if (r[j]) ones++;
+            check(st.onRows(j).longValue() == ones, what + " LED" + j + ": " + st.onRows(j) + " rows on, table has " + ones);
+            boolean[] w = st.witness(j);
+            check(w == null ? ones == 0 : t[(int) row(w)][j], what + " LED" + j + ": witness " + vector(w) + " is off");
+            List<int[]> cover = st.bdd.cover(st.function(j), Integer.MAX_VALUE);
+            int f = Bdd.FALSE;
+            for (int[] cube : cover) {
+                int g = Bdd.TRUE;
+                for (int lit : cube) {
+                    int v = st.bdd.var(Math.abs(lit) - 1);
+                    g = st.bdd.and(g, lit > 0 ? v : st.bdd.not(v));
+                }
+                f = st.bdd.or(f, g);
+            }
+            check(f == st.function(j), what + " LED" + j + ": cover does not rebuild the output");
+        }
+        List<byte[]> rows = st.rows(1 << TruthTableEngine.MAX_INPUTS);
+        int[] hits = new int[t.length];
+        boolean same = true;
+        for (byte[] r : rows) {
+            for (long m : expand(r, st.inputs)) {
+                hits[(int) m]++;
+                for (int j = 0; j < st.outputs(); j++) same &= (r[st.inputs + j] == 1) == t[(int) m][j];
+            }
+        }
+        check(same, what + ": a row's outputs differ from the table");
+        boolean once = true;
+        for (int h : hits) once &= h == 1;
+        check(once, what + ": rows do not cover every input vector once");
+    }
+
+    // every input vector a row stands for, as a table row index
+    private static List<Long> expand(byte[] r, int inputs) {
+        List<Long> out = new ArrayList<>();
+        out.add(0L);
+        for (int i = 0; i < inputs; i++) {
+            int size = out.size();
+            for (int k = 0; k < size; k++) {
+                long m = out.get(k);
+                if (r[i] == Bdd.X) out.add(m | 1L << i);
+                else if (r[i] == 1) out.set(k, m | 1L << i);
+            }
+        }
+        return out;
+    }
+
+    private static long row(boolean[] v) {
+        long m = 0;
+        for (int i = 0; i < v.length; i++) if (v[i]) m |= 1L << i;
+        return m;
+    }
+
+    // ---------- TABLE ENGINE ----------
+    private void engine() {
+        for (boolean notFirst : new boolean[] { true, false }) {
+            String order = notFirst ? " (narrow cell first)" : " (wide cell first)";
+            engine("shared tables" + order, sharedTables(notFirst));
+            engine("7404/7402/7408/DEMUX board" + order, circuit(mixedChips(notFirst)));
+        }
+    }
+
+    private void engine(String what, Circuit c) {
+        c.netlist.setPowered(true);
+        TruthTableEngine.Result t;
+        try {
+            t = new TruthTableEngine(c.netlist, new LevelizedSchedule(c.netlist)).compute(c.inputs, c.outputs);
+        } catch (RuntimeException ex) {
+            check(false, what + ": " + ex);
+            return;
+        }
+        boolean[][] ref = cellTable(c);
+        for (int r = 0; r < ref.length; r++) {
+            for (int j = 0; j < c.outputs.length; j++) {
+                check(t.get(r, j) == ref[r][j], what + ": row " + r + " output " + j + " is " + t.get(r, j));
+            }
+        }
+    }
+
+    // the table the slow way: each row settled by re-evaluating every cell on its own
+    private static boolean[][] cellTable(Circuit c) {
+        Netlist n = c.netlist;
+        n.setPowered(true);
+        boolean[][] t = new boolean[1 << c.inputs.length][c.outputs.length];
+        for (int i = 0; i < n.constNets.length; i++) n.set(n.constNets[i], n.constHigh[i]);
+        for (int r = 0; r < t.length; r++) {
+            for (int i = 0; i < c.inputs.length; i++) if (c.inputs[i] >= 0) n.set(c.inputs[i], (r >>> i & 1) != 0);
+            boolean changed = true;
+            for (int sweep = 0; changed && sweep <= n.cellCount; sweep++) {
+                changed = false;
+                for (int cell = 0; cell < n.cellCount; cell++) changed |= n.updateCell(cell);
+            }
+            for (int j = 0; j < c.outputs.length; j++) t[r][j] = c.outputs[j] >= 0 && n.get(c.outputs[j]);
+        }
+        return t;
+    }
+
+    // one {1} array as a NOT and a NOR, one {8} array as a 2- and a 3-input gate
+    private static Circuit sharedTables(boolean narrowFirst) {
+        long[] one = { 1 }, eight = { 8 };
+        Netlist.Builder b = new Netlist.Builder();
+        int a = b.addPin(), x = b.addPin(), y = b.addPin();
+        int[] out = new int[4];
+        for (int k = 0; k < 4; k++) out[k] = b.addPin();
+        if (narrowFirst) b.addCell(one, new int[] { a }, out[0]);
+        b.addCell(one, new int[] { a, x }, out[1]);
+        if (!narrowFirst) b.addCell(one, new int[] { a }, out[0]);
+        if (narrowFirst) b.addCell(eight, new int[] { a, x }, out[2]);
+        b.addCell(eight, new int[] { a, x, y }, out[3]);
+        if (!narrowFirst) b.addCell(eight, new int[] { a, x }, out[2]);
+        Netlist nl = b.build();
+        int[] outs = new int[4];
+        for (int k = 0; k < 4; k++) outs[k] = nl.netOf(out[k]);
+        return new Circuit(nl, new int[] { nl.netOf(a), nl.netOf(x), nl.netOf(y) }, outs);
+    }
+
+    private static CircuitFile mixedChips(boolean narrowFirst) {
+        BoardGenerator g = new BoardGenerator(10);
+        BoardGenerator.Net a = g.addSwitch(), b = g.addSwitch(), c = g.addSwitch();
+        BoardGenerator.Net na = null, nor;
+        if (narrowFirst) na = g.gate("7404", a);
+        nor = g.gate("7402", a, b);
+        if (!narrowFirst) na = g.gate("7404", a);
+        BoardGenerator.Net and = g.gate("7408", na, c);
+        g.addLed(na);
+        g.addLed(nor);
+        g.addLed(and);
+        g.addLed(g.gate("7402", nor, c));
+        g.addLed(g.gate("7404", and));
+        // the four outputs of one DEMUX read the same three pins
+        for (int k = 0; k < 4; k++) g.addLed(g.gate("1x4 DEMUX", and, b, nor));
+        return g.board();
+    }
+
+    // ---------- CHIP TABLES ----------
+    private void chips() {
+        for (ChipSpec spec : ChipSpec.all()) {
+            if (!spec.showTable) continue;
+            List<Integer> in = new ArrayList<>(), out = new ArrayList<>();
+            for (int pin = 1; pin <= spec.pins; pin++) {
+                if (spec.role(pin) == ChipSpec.Role.IN) in.add(pin);
+                else if (spec.role(pin) == ChipSpec.Role.OUT) out.add(pin);
+            }
+            ChipSpec.Gate[] byOut = new ChipSpec.Gate[spec.pins + 1];
+            for (ChipSpec.Gate g : spec.gates()) byOut[g.out] = g;
+            int k = in.size();
+            int[] hits = new int[1 << k];
+            boolean same = true;
+            for (String[] r : spec.tableRows(new ArrayList<>())) {
+                byte[] row = new byte[k];
+                for (int i = 0; i < k; i++) row[i] = r[i].equals("X") ? Bdd.X : (byte) (r[i].equals("1") ? 1 : 0);
+                for (long m : expand(row, k)) {
+                    hits[(int) m]++;
+                    boolean[] level = new boolean[spec.pins + 1];
+                    for (int i = 0; i < k; i++) level[in.get(i)] = (m >>> i & 1) != 0;
+                    for (int pin = 1; pin <= spec.pins; pin++) if (spec.role(pin) == ChipSpec.Role.VCC) level[pin] = true;
+                    for (int j = 0; j < out.size(); j++) {
+                        ChipSpec.Gate g = byOut[out.get(j)];
+                        int idx = 0;
+                        for (int b = 0; b < g.in.length; b++) if (level[g.in[b]]) idx |= 1 << b;
+                        same &= r[k + j].equals("1") == ((g.lut[idx >>> 6] >>> idx & 1) != 0);
+                    }
+                }
+            }
+            check(same, spec.name + ": a table row's outputs differ from the gates");
+            boolean once = true;
+            for (int h : hits) once &= h == 1;
+            check(once, spec.name + ": table rows do not cover every input vector once");
+        }
+    }
+
+    private static Circuit circuit(CircuitFile cf) {
+        CircuitFile.Compiled c = cf.compile();
+        return new Circuit(c.netlist, c.switchNets, c.ledNets);
+    }
+
+    private static final class Circuit {
+        final Netlist netlist;
+        final int[] inputs, outputs;
+
+        Circuit(Netlist netlist, int[] inputs, int[] outputs) {
+            this.netlist = netlist;
+            this.inputs = inputs;
+            this.outputs = outputs;
+        }
+
+        boolean replay(boolean[] vector) {
+            netlist.setPowered(true);
+            PartitionedSimulator p = new PartitionedSimulator(netlist);
+            p.evaluate();
+            p.drive(inputs, vector);
+            return netlist.get(outputs[0]);
+        }
+    }
+
+    // XOR of n switches as a chain or a balanced tree; gate number wrong computes AND instead
+    private static Circuit parity(int n, boolean tree, int wrong) {
+        Netlist.Builder b = new Netlist.Builder();
+        int[] in = new int[n];
+        for (int i = 0; i < n; i++) in[i] = b.addPin();
+        List<Integer> level = new ArrayList<>();
+        for (int p : in) level.add(p);
+        int gate = 0;
+        while (level.size() > 1) {
+            List<Integer> next = new ArrayList<>();
+            if (tree) {
+                for (int i = 0; i + 1 < level.size(); i += 2) {
+                    int o = b.addPin();
+                    b.addCell(gate++ == wrong ? AND : XOR, new int[] { level.get(i), level.get(i + 1) }, o);
+                    next.add(o);
+                }
+                if (level.size() % 2 == 1) next.add(level.get(level.size() - 1));
+            } else {
+                int o = b.addPin();
+                b.addCell(gate++ == wrong ? AND : XOR, new int[] { level.get(0), level.get(1) }, o);
+                next.add(o);
+                next.addAll(level.subList(2, level.size()));
+            }
+            level = next;
+        }
+        int led = b.addPin();
+        b.connect(level.get(0), led);
+        Netlist nl = b.build();
+        int[] nets = new int[n];
+        for (int i = 0; i < n; i++) nets[i] = nl.netOf(in[i]);
+        return new Circuit(nl, nets, new int[] { nl.netOf(led) });
+    }
+
+    private static String vector(boolean[] v) {
+        if (v == null) return "-";
+        StringBuilder sb = new StringBuilder(v.length);
+        for (boolean x : v) sb.append(x ? '1' : '0');
+        return sb.toString();
+    }
+}
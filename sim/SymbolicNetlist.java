@@ -0,0 +1,93 @@
+package sim;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Evaluates a netlist once over symbolic values (SAT literals, BDD nodes) instead of bits, with
+ * the same semantics as {@link TruthTableEngine#compute}: floating and register nets read 0,
+ * ties their level, switches their symbol, and every cell its LUT's mux program in levelized
+ * order. Feedback components run the engine's in-place sweeps unrolled; once a sweep changes
+ * nothing the rest change nothing either, so running all of them ends where the engine stops.
+ */
+final class SymbolicNetlist {
+
+    private SymbolicNetlist() { }
+
+    /** A symbolic domain: its two constants and a 2:1 mux. */
+    interface Logic {
+        int zero();
+        int one();
+        /** {@code x ? hi : lo} */
+        int mux(int x, int lo, int hi);
+    }
+
+    /**
+     * Symbolic value of every net. {@code inputs[i]} drives {@code inputNets[i]}; a negative net
+     * is an absent port. When two inputs share a net, the later one wins, as in the engine.
+     */
+    static int[] evaluate(Netlist n, int[] inputNets, int[] inputs, Logic logic) {
+        int[] v = new int[n.netCount];
+        Arrays.fill(v, logic.zero());
+        for (int i = 0; i < n.constNets.length; i++) v[n.constNets[i]] = n.constHigh[i] ? logic.one() : logic.zero();
+        for (int i = 0; i < inputNets.length; i++) {
+            if (inputNets[i] >= 0) v[inputNets[i]] = inputs[i];
+        }
+        if (!n.powered) {
+            for (int c = 0; c < n.cellCount; c++) v[n.outNet[c]] = logic.zero();
+            return v;
+        }
+        // per table and input count, as in the engine: one array can be a NOT and a NOR
+        Map<long[], Map<Integer, int[]>> programs = new IdentityHashMap<>();
+        int[][] program = new int[n.cellCount][];
+        for (int c = 0; c < n.cellCount; c++) {
+            long[] lut = n.lut[c];
+            program[c] = programs.computeIfAbsent(lut, t -> new HashMap<>())
+                                 .computeIfAbsent(n.inputCount(c), k -> TruthTableEngine.compile(lut, k));
+        }
+        LevelizedSchedule s = new LevelizedSchedule(n);
+        int[] rows = new int[2];
+        for (int comp = 0; comp + 1 < s.compStart.length; comp++) {
+            int from = s.compStart[comp], to = s.compStart[comp + 1];
+            if (!s.cyclic[comp]) {
+                int c = s.order[from];
+                rows = cell(n, c, program[c], v, logic, rows);
+                v[n.outNet[c]] = rows[program[c][0]];
+                continue;
+            }
+            for (int i = from; i < to; i++) v[n.outNet[s.order[i]]] = logic.zero();
+            for (int pass = 0; pass <= to - from; pass++) {
+                for (int i = from; i < to; i++) {
+                    int c = s.order[i];
+                    rows = cell(n, c, program[c], v, logic, rows);
+                    v[n.outNet[c]] = rows[program[c][0]];
+                }
+            }
+        }
+        return v;
+    }
+
+    /** Output of a LUT over symbolic inputs; {@code in[b]} is bit b of the LUT index. */
+    static int lut(long[] lut, int[] in, Logic logic) {
+        int[] p = TruthTableEngine.compile(lut, in.length);
+        int[] rows = new int[p[1] + 2];
+        rows[0] = logic.zero();
+        rows[1] = logic.one();
+        for (int i = 0, o = 2; i < p[1]; i++, o += 3) rows[i + 2] = logic.mux(in[p[o]], rows[p[o + 1]], rows[p[o + 2]]);
+        return rows[p[0]];
+    }
+
+    // runs the cell's mux program; row r of the result is program row r (the output is row p[0])
+    private static int[] cell(Netlist n, int c, int[] p, int[] v, Logic logic, int[] rows) {
+        if (rows.length < p[1] + 2) rows = Arrays.copyOf(rows, p[1] + 2);
+        rows[0] = logic.zero();
+        rows[1] = logic.one();
+        int base = n.inStart[c];
+        for (int i = 0, o = 2; i < p[1]; i++, o += 3) {
+            rows[i + 2] = logic.mux(v[n.inNets[base + p[o]]], rows[p[o + 1]], rows[p[o + 2]]);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,214 @@
+package sim;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A truth table kept as one {@link Bdd} per output, so tables of 16 and more inputs stay
+ * analysable. Row counts, witnesses, exact rows with don't-cares and minimised sum-of-products
+ * all come from the diagrams without enumerating 2^n rows. A board's table has the semantics
+ * of {@link TruthTableEngine#compute}, row for row.
+ *
+ * <p>The variable order decides both the diagram size and how compact {@link #rows} gets. A
+ * board is first ordered by a depth-first walk from its outputs, which keeps the inputs of one
+ * gate together, and then by {@link #byInfluence()}.
+ */
+public final class SymbolicTable {
+
+    /** Builds the outputs from the nodes of the inputs. */
+    interface Circuit {
+        int[] build(Bdd bdd, int[] inputs);
+    }
+
+    public final Bdd bdd;
+    public final int inputs;
+    private final int[] levelOf;    // BDD level of each input
+    private final int[] inputAt;    // input at each level
+    private final int[] roots;
+    private final Circuit circuit;
+    private final int nodeLimit;
+
+    /** {@code order[k]} is the input placed at level k. */
+    SymbolicTable(int inputs, int[] order, Circuit circuit, int nodeLimit) {
+        this.inputs = inputs;
+        this.circuit = circuit;
+        this.nodeLimit = nodeLimit;
+        bdd = new Bdd(inputs, nodeLimit);
+        inputAt = order.clone();
+        levelOf = new int[inputs];
+        for (int k = 0; k < inputs; k++) levelOf[order[k]] = k;
+        int[] in = new int[inputs];
+        for (int i = 0; i < inputs; i++) in[i] = bdd.var(levelOf[i]);
+        roots = circuit.build(bdd, in);
+    }
+
+    /**
+     * The table of {@code outputNets} over {@code inputNets}, like {@link TruthTableEngine#compute};
+     * call it from the thread that owns the netlist's values, since it reads the power state.
+     *
+     * @throws IllegalStateException if a diagram outgrows {@link Bdd#DEFAULT_NODE_LIMIT}
+     */
+    public static SymbolicTable of(Netlist n, int[] inputNets, int[] outputNets) {
+        int[] nets = inputNets.clone(), outs = outputNets.clone();
+        Circuit c = (bdd, in) -> {
+            int[] v = SymbolicNetlist.evaluate(n, nets, in, bdd);
+            int[] r = new int[outs.length];
+            for (int j = 0; j < outs.length; j++) r[j] = outs[j] < 0 ? Bdd.FALSE : v[outs[j]];
+            return r;
+        };
+        return new SymbolicTable(nets.length, fanInOrder(n, nets, outs), c, Bdd.DEFAULT_NODE_LIMIT).byInfluence();
+    }
+
+    // inputs by first visit in a depth-first walk from each output through the cells' inputs
+    private static int[] fanInOrder(Netlist n, int[] inputNets, int[] outputNets) {
+        int[] inputOfNet = new int[n.netCount];
+        Arrays.fill(inputOfNet, -1);
+        for (int i = 0; i < inputNets.length; i++) if (inputNets[i] >= 0) inputOfNet[inputNets[i]] = i;
+        int[] order = new int[inputNets.length];
+        boolean[] placed = new boolean[inputNets.length];
+        boolean[] seen = new boolean[n.netCount];
+        int k = 0;
+        int[] stack = new int[n.netCount];
+        for (int out : outputNets) {
+            if (out < 0) continue;
+            int sp = 0;
+            stack[sp++] = out;
+            while (sp > 0) {
+                int net = stack[--sp];
+                if (seen[net]) continue;
+                seen[net] = true;
+                int c = n.netDriver[net];
+                if (c >= 0) {
+                    // pushed last to first, so the cell's first input is walked first
+                    for (int b = n.inputCount(c) - 1; b >= 0; b--) {
+                        int in = n.inputOf(c, b);
+                        if (!seen[in]) stack[sp++] = in;
+                    }
+                } else if (inputOfNet[net] >= 0 && !placed[inputOfNet[net]]) {
+                    placed[inputOfNet[net]] = true;
+                    order[k++] = inputOfNet[net];
+                }
+            }
+        }
+        for (int i = 0; i < inputNets.length; i++) if (!placed[i]) order[k++] = i;
+        return order;
+    }
+
+    /**
+     * The same table with the inputs that most often decide an output on top: select lines
+     * before data, enables before everything. Ties go to the input whose cofactors are smaller.
+     * That ordering keeps mux trees linear and gives {@link #rows} their shortest form. Returns
+     * this table when the reordered diagrams would grow past four times the current node count.
+     */
+    public SymbolicTable byInfluence() {
+        double[] influence = new double[inputs];
+        int[] spread = new int[inputs];
+        int[] cofactors = new int[2 * roots.length];
+        for (int i = 0; i < inputs; i++) {
+            int l = levelOf[i];
+            for (int j = 0; j < roots.length; j++) {
+                int f0 = bdd.restrict(roots[j], l, false), f1 = bdd.restrict(roots[j], l, true);
+                influence[i] += bdd.density(bdd.xor(f0, f1));
+                cofactors[2 * j] = f0;
+                cofactors[2 * j + 1] = f1;
+            }
+            spread[i] = bdd.nodeCount(cofactors);
+        }
+        Integer[] order = new Integer[inputs];
+        for (int k = 0; k < inputs; k++) order[k] = inputAt[k];
+        // stable, so full ties keep the walk's order
+        Arrays.sort(order, (a, b) -> influence[a] != influence[b] ? Double.compare(influence[b], influence[a])
+                                                                  : Integer.compare(spread[a], spread[b]));
+        int[] o = new int[inputs];
+        boolean same = true;
+        for (int k = 0; k < inputs; k++) {
+            o[k] = order[k];
+            same &= o[k] == inputAt[k];
+        }
+        if (same) return this;
+        try {
+            return new SymbolicTable(inputs, o, circuit, Math.min(nodeLimit, Math.max(4 * bdd.size(), 1 << 16)));
+        } catch (IllegalStateException ex) {
+            return this;
+        }
+    }
+
+    public int outputs() { return roots.length; }
+
+    /** The diagram of output {@code j} in {@link #bdd}. */
+    public int function(int j) { return roots[j]; }
+
+    /** Rows on which output {@code j} is 1. */
+    public BigInteger onRows(int j) { return bdd.satCount(roots[j]); }
+
+    /** An input vector lighting output {@code j}, or null if nothing does. */
+    public boolean[] witness(int j) {
+        boolean[] a = bdd.satisfying(roots[j]);
+        if (a == null) return null;
+        boolean[] v = new boolean[inputs];
+        for (int i = 0; i < inputs; i++) v[i] = a[levelOf[i]];
+        return v;
+    }
+
+    /** Whether output {@code j} reads input {@code i} at all. */
+    public boolean dependsOn(int j, int i) {
+        return bdd.support(roots[j])[levelOf[i]];
+    }
+
+    /**
+     * The exact table as {@link Bdd#rows}, but in input order: one value per input (0, 1 or
+     * {@link Bdd#X}) and then one per output. Null when there would be more than {@code limit}
+     * rows.
+     */
+    public List<byte[]> rows(int limit) {
+        List<byte[]> rows = bdd.rows(roots, limit);
+        if (rows == null) return null;
+        for (int r = 0; r < rows.size(); r++) {
+            byte[] byLevel = rows.get(r), row = new byte[byLevel.length];
+            for (int i = 0; i < inputs; i++) row[i] = byLevel[levelOf[i]];
+            System.arraycopy(byLevel, inputs, row, inputs, roots.length);
+            rows.set(r, row);
+        }
+        return rows;
+    }
+
+    /**
+     * Output {@code j} as a minimised sum of products over {@code names}: literals in input
+     * order joined by a middle dot, a quote for a complement, {@code " + "} between products
+     * ({@code S'.I0 + S.I1} with dots raised). Null when the cover needs more than
+     * {@code maxCubes} products.
+     */
+    public String expression(int j, String[] names, int maxCubes) {
+        List<int[]> cover = bdd.cover(roots[j], maxCubes);
+        if (cover == null) return null;
+        if (cover.isEmpty()) return "0";
+        List<String> terms = new ArrayList<>();
+        for (int[] cube : cover) {
+            if (cube.length == 0) return "1";
+            int[] lits = new int[cube.length];
+            for (int k = 0; k < cube.length; k++) {
+                int input = inputAt[Math.abs(cube[k]) - 1];
+                lits[k] = cube[k] > 0 ? input + 1 : -(input + 1);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int lit : sortByInput(lits)) {
+                if (sb.length() > 0) sb.append('\u00b7');
+                sb.append(names[Math.abs(lit) - 1]);
+                if (lit < 0) sb.append('\'');
+            }
+            terms.add(sb.toString());
+        }
+        return String.join(" + ", terms);
+    }
+
+    private static int[] sortByInput(int[] lits) {
+        Integer[] boxed = new Integer[lits.length];
+        for (int k = 0; k < lits.length; k++) boxed[k] = lits[k];
+        Arrays.sort(boxed, (a, b) -> Integer.compare(Math.abs(a), Math.abs(b)));
+        int[] out = new int[lits.length];
+        for (int k = 0; k < lits.length; k++) out[k] = boxed[k];
+        return out;
+    }
+}
@@ -0,0 +1,404 @@
+package sim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Event-driven simulation with propagation delays. A cell whose inputs change is evaluated at
+ * the current time and, if its projected output differs, schedules the new value on its output
+ * net {@link Netlist#cellDelay delay} ns later (transport delay, so pulses shorter than a gate
+ * delay survive and glitches show). Registers sample on their clock edge and drive their output
+ * after their clock-to-output delay.
+ *
+ * <p>Pending events live on a hierarchical timing wheel: six levels of 256 slots at 1 ns
+ * resolution, covering 2^48 ns. Insert is O(1). Advancing skips empty slots through per-level
+ * occupancy bitmaps and cascades a higher-level slot down only when time enters it. Events sit
+ * in a pooled linked list of primitive arrays, so steady-state simulation allocates nothing.
+ *
+ * <p>Nets registered with {@link #watch(int)} are checked for hazards: two transitions closer
+ * together than the glitch width (a pulse the board's LEDs would flash) are recorded.
+ */
+public final class TimingSimulator {
+
+    private static final int LEVELS = 6, BITS = 8, SLOTS = 1 << BITS, MASK = SLOTS - 1;
+
+    /** A pulse on a watched net narrower than the glitch width. */
+    public static final class Hazard {
+        public final int net;
+        public final long start;   // ns, when the net left its level
+        public final long width;   // ns
+        public final boolean high; // level held during the pulse
+
+        Hazard(int net, long start, long width, boolean high) {
+            this.net = net;
+            this.start = start;
+            this.width = width;
+            this.high = high;
+        }
+
+        @Override public String toString() {
+            return (high ? "1" : "0") + "-pulse of " + width + " ns at " + start + " ns";
+        }
+    }
+
+    private final Netlist n;
+    private long now;
+
+    // ---------- TIMING WHEEL ----------
+    private final int[][] head = new int[LEVELS][SLOTS];
+    private final int[][] tail = new int[LEVELS][SLOTS];
+    private final long[][] occupied = new long[LEVELS][SLOTS / 64];
+    private long[] evTime = new long[1024];
+    private int[] evNet = new int[1024];
+    private boolean[] evValue = new boolean[1024];
+    private int[] evNext = new int[1024];
+    private int free = -1, used, pending;
+
+    // ---------- EVALUATION ----------
+    private final long[] cellProjected;  // last value each cell scheduled on its output
+    private final long[] regProjected;
+    private final int[] dirtyCells, dirtyRegs;
+    private final long[] cellMark, regMark, edgeMark;
+    private int dirtyCellCount, dirtyRegCount;
+    private final long budget;
+    private long events, lastEventTime;
+
+    // ---------- HAZARDS ----------
+    private int[] watchIndex;            // net -> watch slot, -1 if unwatched
+    private long[] lastChange = new long[0];
+    private WaveRecorder recorder;
+    private long recordBase;
+    private final List<Hazard> hazards = new ArrayList<>();
+    private long hazardCount;
+    private long glitchWidth;
+    private static final int MAX_HAZARDS = 1024;
+
+    public TimingSimulator(Netlist n) {
+        this.n = n;
+        for (int[] h : head) Arrays.fill(h, -1);
+        for (int[] t : tail) Arrays.fill(t, -1);
+        cellProjected = new long[(n.cellCount + 63) >>> 6];
+        regProjected = new long[(n.regCount + 63) >>> 6];
+        dirtyCells = new int[n.cellCount];
+        dirtyRegs = new int[n.regCount];
+        cellMark = new long[cellProjected.length];
+        regMark = new long[regProjected.length];
+        edgeMark = new long[regProjected.length];
+        budget = Math.max(1L << 20, 256L * (n.cellCount + n.regCount));
+        watchIndex = new int[n.netCount];
+        Arrays.fill(watchIndex, -1);
+        int maxDelay = 1;
+        for (int c = 0; c < n.cellCount; c++) maxDelay = Math.max(maxDelay, n.cellDelay[c]);
+        for (int r = 0; r < n.regCount; r++) maxDelay = Math.max(maxDelay, n.regDelay[r]);
+        glitchWidth = 2L * maxDelay;
+        resync();
+    }
+
+    public Netlist netlist() { return n; }
+
+    /** Current simulated time in ns. */
+    public long now() { return now; }
+
+    /** Events applied since construction. */
+    public long events() { return events; }
+
+    /** Time of the most recent applied event; after {@link #run()}, when the board settled. */
+    public long lastEventTime() { return lastEventTime; }
+
+    public boolean isIdle() { return pending == 0; }
+
+    /**
+     * Drops pending events and takes the current net values as every output's projection. Call
+     * after the nets were written by another engine. A cell whose output disagrees with its
+     * inputs (a loop the zero-delay engines could not settle) is scheduled to switch, so a ring
+     * oscillator starts running.
+     */
+    public void resync() {
+        clearWheel();
+        Arrays.fill(cellProjected, 0);
+        Arrays.fill(regProjected, 0);
+        for (int c = 0; c < n.cellCount; c++) {
+            boolean out = n.get(n.outNet[c]), v = n.evalCell(c);
+            if (v) cellProjected[c >>> 6] |= 1L << c;
+            if (v != out) schedule(now + n.cellDelay[c], n.outNet[c], v);
+        }
+        for (int r = 0; r < n.regCount; r++) if (n.get(n.regOut[r])) regProjected[r >>> 6] |= 1L << r;
+    }
+
+    /** Sets a net from outside the netlist (switch, clock) at the current time. */
+    public void drive(int net, boolean v) {
+        schedule(now, net, v);
+    }
+
+    /**
+     * Processes events until none are pending. Returns false if the event budget ran out, which
+     * means the board oscillates (a ring oscillator, or a loop of gates with delay); the
+     * remaining events are dropped.
+     */
+    public boolean run() {
+        long spent = 0;
+        while (pending > 0) {
+            advance(Long.MAX_VALUE);
+            spent += step();
+            if (spent >= budget) {
+                clearWheel();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Processes every event before {@code time}, then moves the clock to {@code time}. */
+    public void runUntil(long time) {
+        while (pending > 0 && advance(time - 1)) step();
+        if (time > now) jumpTo(time);
+    }
+
+    /**
+     * Lets the board sit idle for one glitch width, so the pulses of the next input change are
+     * not measured against the edges of the last one. Call between stimuli applied by hand.
+     */
+    public void rest() {
+        run();
+        runUntil(now + glitchWidth);
+    }
+
+    /** Records every event on a probed net, engine time continuing from the recorder's latest. */
+    public void setRecorder(WaveRecorder r) {
+        recorder = r;
+        if (r != null) recordBase = r.end() - now;
+    }
+
+    // ---------- HAZARDS ----------
+    public void watch(int net) {
+        if (watchIndex[net] >= 0) return;
+        watchIndex[net] = lastChange.length;
+        lastChange = Arrays.copyOf(lastChange, lastChange.length + 1);
+        lastChange[watchIndex[net]] = Long.MIN_VALUE;
+    }
+
+    /** Pulses narrower than this many ns count as hazards; defaults to twice the largest delay. */
+    public void setGlitchWidth(long ns) { glitchWidth = ns; }
+
+    public long glitchWidth() { return glitchWidth; }
+
+    /** Hazards recorded since the last {@link #clearHazards()}, oldest first (at most 1024 kept). */
+    public List<Hazard> hazards() { return hazards; }
+
+    public long hazardCount() { return hazardCount; }
+
+    public void clearHazards() {
+        hazards.clear();
+        hazardCount = 0;
+    }
+
+    private void watched(int net, boolean v) {
+        int w = watchIndex[net];
+        long last = lastChange[w];
+        if (last != Long.MIN_VALUE && now - last < glitchWidth) {
+            hazardCount++;
+            if (hazards.size() < MAX_HAZARDS) hazards.add(new Hazard(net, last, now - last, !v));
+        }
+        lastChange[w] = now;
+    }
+
+    // ---------- ONE TIME STEP ----------
+    // Applies every event due now, then evaluates what they touched. Zero-delay outputs land
+    // back in the current slot and are handled as a further delta round.
+    private int step() {
+        int applied = 0;
+        int slot = (int) (now & MASK);
+        while (head[0][slot] >= 0) {
+            int e = head[0][slot];
+            head[0][slot] = tail[0][slot] = -1;
+            occupied[0][slot >>> 6] &= ~(1L << slot);
+            while (e >= 0) {
+                int next = evNext[e];
+                apply(evNet[e], evValue[e]);
+                release(e);
+                applied++;
+                e = next;
+            }
+            evaluateDirty();
+            if (applied >= budget) break;   // zero-delay loop; run() gives up on it
+        }
+        events += applied;
+        if (applied > 0) lastEventTime = now;
+        return applied;
+    }
+
+    private void apply(int net, boolean v) {
+        if (!n.set(net, v)) return;
+        if (watchIndex[net] >= 0) watched(net, v);
+        if (recorder != null) recorder.change(net, v, recordBase + now);
+        for (int k = n.fanoutStart[net]; k < n.fanoutStart[net + 1]; k++) {
+            int c = n.fanout[k];
+            if ((cellMark[c >>> 6] & (1L << c)) != 0) continue;
+            cellMark[c >>> 6] |= 1L << c;
+            dirtyCells[dirtyCellCount++] = c;
+        }
+        for (int k = n.asyncStart[net]; k < n.asyncStart[net + 1]; k++) markReg(n.asyncRegs[k]);
+        for (int k = n.clkStart[net]; k < n.clkStart[net + 1]; k++) {
+            int r = n.clkRegs[k];
+            if (n.regRising[r] != v) continue;
+            edgeMark[r >>> 6] |= 1L << r;
+            markReg(r);
+        }
+    }
+
+    private void markReg(int r) {
+        if ((regMark[r >>> 6] & (1L << r)) != 0) return;
+        regMark[r >>> 6] |= 1L << r;
+        dirtyRegs[dirtyRegCount++] = r;
+    }
+
+    private void evaluateDirty() {
+        for (int i = 0; i < dirtyCellCount; i++) {
+            int c = dirtyCells[i];
+            cellMark[c >>> 6] &= ~(1L << c);
+            boolean v = n.evalCell(c);
+            long bit = 1L << c;
+            if (((cellProjected[c >>> 6] & bit) != 0) == v) continue;
+            cellProjected[c >>> 6] ^= bit;
+            schedule(now + n.cellDelay[c], n.outNet[c], v);
+        }
+        dirtyCellCount = 0;
+        for (int i = 0; i < dirtyRegCount; i++) {
+            int r = dirtyRegs[i];
+            long bit = 1L << r;
+            regMark[r >>> 6] &= ~bit;
+            boolean edge = (edgeMark[r >>> 6] & bit) != 0;
+            edgeMark[r >>> 6] &= ~bit;
+            int forced = n.forcedState(r);
+            if (forced < 0 && !edge) continue;
+            boolean v = forced >= 0 ? forced == 1 : n.nextState(r);
+            if (((regProjected[r >>> 6] & bit) != 0) == v) continue;
+            regProjected[r >>> 6] ^= bit;
+            schedule(now + n.regDelay[r], n.regOut[r], v);
+        }
+        dirtyRegCount = 0;
+    }
+
+    // ---------- WHEEL OPERATIONS ----------
+    private void schedule(long time, int net, boolean v) {
+        int e = allocate();
+        evTime[e] = time;
+        evNet[e] = net;
+        evValue[e] = v;
+        insert(e);
+        pending++;
+    }
+
+    // level = highest 8-bit digit where the event time differs from now
+    private void insert(int e) {
+        long diff = evTime[e] ^ now;
+        int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / BITS;
+        if (level >= LEVELS) throw new IllegalStateException("event more than 2^48 ns ahead");
+        int slot = (int) (evTime[e] >>> (level * BITS)) & MASK;
+        evNext[e] = -1;
+        if (tail[level][slot] < 0) head[level][slot] = e;
+        else evNext[tail[level][slot]] = e;
+        tail[level][slot] = e;
+        occupied[level][slot >>> 6] |= 1L << slot;
+    }
+
+    // Moves now to the earliest pending event time, cascading higher slots down as they open.
+    // Returns false, leaving now at or before limit, when that time is later than limit.
+    private boolean advance(long limit) {
+        while (true) {
+            int s0 = (int) (now & MASK);
+            int hit = nextOccupied(0, s0);
+            if (hit >= 0) {
+                long t = (now & ~(long) MASK) | hit;
+                if (t > limit) return false;
+                now = t;
+                return true;
+            }
+            int level = 1;
+            for (; level < LEVELS; level++) {
+                int digit = (int) (now >>> (level * BITS)) & MASK;
+                hit = digit == MASK ? -1 : nextOccupied(level, digit + 1);
+                if (hit >= 0) break;
+            }
+            if (level == LEVELS) throw new IllegalStateException("timing wheel lost " + pending + " events");
+            int shift = level * BITS;
+            long above = shift + BITS >= 64 ? 0 : now >>> (shift + BITS) << (shift + BITS);
+            long start = above | ((long) hit << shift);
+            if (start > limit) return false;
+            now = start;
+            cascade(level, hit);
+        }
+    }
+
+    // Moves now forward to a time no pending event precedes. Slots whose digit now matches are
+    // pushed down, top level first, so every event again sits at the level where it differs.
+    private void jumpTo(long time) {
+        now = time;
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            int slot = (int) (now >>> (level * BITS)) & MASK;
+            if (head[level][slot] >= 0) cascade(level, slot);
+        }
+    }
+
+    private void cascade(int level, int slot) {
+        int e = head[level][slot];
+        head[level][slot] = tail[level][slot] = -1;
+        occupied[level][slot >>> 6] &= ~(1L << slot);
+        while (e >= 0) {
+            int next = evNext[e];
+            insert(e);
+            e = next;
+        }
+    }
+
+    private int nextOccupied(int level, int from) {
+        long[] bits = occupied[level];
+        int w = from >>> 6;
+        long word = bits[w] & (-1L << (from & 63));
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w == bits.length) return -1;
+            word = bits[w];
+        }
+    }
+
+    private int allocate() {
+        if (free >= 0) {
+            int e = free;
+            free = evNext[e];
+            return e;
+        }
+        if (used == evTime.length) {
+            int cap = used * 2;
+            evTime = Arrays.copyOf(evTime, cap);
+            evNet = Arrays.copyOf(evNet, cap);
+            evValue = Arrays.copyOf(evValue, cap);
+            evNext = Arrays.copyOf(evNext, cap);
+        }
+        return used++;
+    }
+
+    private void release(int e) {
+        evNext[e] = free;
+        free = e;
+        pending--;
+    }
+
+    private void clearWheel() {
+        for (int l = 0; l < LEVELS; l++) {
+            Arrays.fill(head[l], -1);
+            Arrays.fill(tail[l], -1);
+            Arrays.fill(occupied[l], 0);
+        }
+        free = -1;
+        used = 0;
+        pending = 0;
+        for (int i = 0; i < dirtyCellCount; i++) cellMark[dirtyCells[i] >>> 6] = 0;
+        for (int i = 0; i < dirtyRegCount; i++) {
+            regMark[dirtyRegs[i] >>> 6] = 0;
+            edgeMark[dirtyRegs[i] >>> 6] = 0;
+        }
+        dirtyCellCount = dirtyRegCount = 0;
+    }
+}
@@ -0,0 +1,212 @@
+package sim;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Bit-parallel truth tables. Every net is held as a {@code long}, so one pass over the
+ * levelized cells evaluates 64 input combinations at once; a table of n inputs needs
+ * {@code 2^n / 64} passes, and each cell's LUT runs as a small precompiled mux program.
+ * Row r drives input i with bit i of r, matching the board's truth-table dialog. The
+ * netlist's own net values are never touched.
+ */
+public final class TruthTableEngine {
+
+    /** 2^24 rows keeps every output column under 2 MB. */
+    public static final int MAX_INPUTS = 24;
+
+    // nets are evaluated BLOCK words (BLOCK * 64 vectors) at a time to amortise program decoding
+    private static final int BLOCK = 16;
+
+    private final Netlist n;
+    private final LevelizedSchedule schedule;
+    private final long[] word;       // word[net * BLOCK + b]: vectors of every net in the block
+    private final int[][] program;   // per cell, shared by cells with the same LUT and input count
+    private final long[] scratch;    // program rows; row 0 is all-0, row 1 all-1
+    private final long[] feedback = new long[BLOCK];
+
+    public TruthTableEngine(Netlist n, LevelizedSchedule schedule) {
+        this.n = n;
+        this.schedule = schedule;
+        word = new long[n.netCount * BLOCK];
+        program = new int[n.cellCount][];
+        // a program depends on the input count too: one table array can be a NOT and a NOR
+        Map<long[], Map<Integer, int[]>> compiled = new IdentityHashMap<>();
+        int widest = 0;
+        for (int c = 0; c < n.cellCount; c++) {
+            long[] lut = n.lut[c];
+            program[c] = compiled.computeIfAbsent(lut, t -> new HashMap<>())
+                                 .computeIfAbsent(n.inputCount(c), k -> compile(lut, k));
+            widest = Math.max(widest, program[c][1]);
+        }
+        scratch = new long[(widest + 2) * BLOCK];
+        Arrays.fill(scratch, BLOCK, 2 * BLOCK, -1L);
+    }
+
+    /** Output columns of a full table; {@link #get} reads one cell of it. */
+    public static final class Result {
+        public final int inputs;
+        public final int outputs;
+        public final long[][] columns;   // columns[j][row >>> 6], bit (row & 63)
+        public final long nanos;
+
+        Result(int inputs, long[][] columns, long nanos) {
+            this.inputs = inputs;
+            this.outputs = columns.length;
+            this.columns = columns;
+            this.nanos = nanos;
+        }
+
+        public long rows() { return 1L << inputs; }
+
+        public boolean get(long row, int output) {
+            return (columns[output][(int) (row >>> 6)] & (1L << row)) != 0;
+        }
+    }
+
+    // input i < 6 toggles inside a word; these are its 64 values
+    private static final long[] LANE = {
+        0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+        0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L
+    };
+
+    /**
+     * A negative net stands for a port the board does not have: its input bit is still
+     * enumerated but drives nothing, and its output column stays 0.
+     */
+    public Result compute(int[] inputNets, int[] outputNets) {
+        int k = inputNets.length;
+        if (k > MAX_INPUTS) throw new IllegalArgumentException("Too many inputs for a full table: " + k);
+        SimEvents.TruthTable e = new SimEvents.TruthTable();
+        e.begin();
+        long start = System.nanoTime();
+        long rows = 1L << k;
+        int words = (int) Math.max(1, rows >>> 6);
+        long[][] cols = new long[outputNets.length][words];
+        long mask = rows >= 64 ? -1L : (1L << rows) - 1;
+        // floating nets stay 0 and cell outputs are rewritten every block, so clear once
+        Arrays.fill(word, 0);
+        for (int i = 0; i < n.constNets.length; i++) {
+            if (n.constHigh[i]) Arrays.fill(word, n.constNets[i] * BLOCK, (n.constNets[i] + 1) * BLOCK, -1L);
+        }
+        for (int w0 = 0; w0 < words; w0 += BLOCK) {
+            int lanes = Math.min(BLOCK, words - w0);
+            for (int i = 0; i < k; i++) {
+                if (inputNets[i] < 0) continue;
+                int o = inputNets[i] * BLOCK;
+                for (int b = 0; b < lanes; b++) {
+                    word[o + b] = i < 6 ? LANE[i] : ((((w0 + b) >>> (i - 6)) & 1) != 0 ? -1L : 0);
+                }
+            }
+            evaluate(lanes);
+            for (int j = 0; j < outputNets.length; j++) {
+                if (outputNets[j] < 0) continue;
+                for (int b = 0; b < lanes; b++) cols[j][w0 + b] = word[outputNets[j] * BLOCK + b] & mask;
+            }
+        }
+        Result r = new Result(k, cols, System.nanoTime() - start);
+        if (e.shouldCommit()) {
+            e.source = "switches";
+            e.inputs = k;
+            e.outputs = outputNets.length;
+            e.commit();
+        }
+        return r;
+    }
+
+    private void evaluate(int lanes) {
+        LevelizedSchedule s = schedule;
+        for (int comp = 0; comp + 1 < s.compStart.length; comp++) {
+            int from = s.compStart[comp], to = s.compStart[comp + 1];
+            if (!s.cyclic[comp]) {
+                int c = s.order[from];
+                run(c, lanes, word, n.outNet[c] * BLOCK);
+                continue;
+            }
+            // feedback: settle every lane from the all-zero start state
+            for (int i = from; i < to; i++) Arrays.fill(word, n.outNet[s.order[i]] * BLOCK, (n.outNet[s.order[i]] + 1) * BLOCK, 0);
+            for (int pass = 0; pass <= to - from; pass++) {
+                boolean changed = false;
+                for (int i = from; i < to; i++) {
+                    int c = s.order[i];
+                    run(c, lanes, feedback, 0);
+                    int o = n.outNet[c] * BLOCK;
+                    for (int b = 0; b < lanes; b++) {
+                        if (word[o + b] != feedback[b]) {
+                            word[o + b] = feedback[b];
+                            changed = true;
+                        }
+                    }
+                }
+                if (!changed) break;
+            }
+        }
+    }
+
+    // Runs the cell's mux program over the block and writes the output lanes to dst[at..].
+    private void run(int c, int lanes, long[] dst, int at) {
+        if (!n.powered) {
+            Arrays.fill(dst, at, at + lanes, 0);
+            return;
+        }
+        int[] p = program[c];
+        int base = n.inStart[c];
+        for (int i = 0, o = 2; i < p[1]; i++, o += 3) {
+            int x = n.inNets[base + p[o]] * BLOCK;
+            int lo = p[o + 1] * BLOCK, hi = p[o + 2] * BLOCK, r = (i + 2) * BLOCK;
+            for (int b = 0; b < lanes; b++) {
+                long v = word[x + b];
+                scratch[r + b] = (scratch[lo + b] & ~v) | (scratch[hi + b] & v);
+            }
+        }
+        System.arraycopy(scratch, p[0] * BLOCK, dst, at, lanes);
+    }
+
+    // ---------- LUT -> MUX PROGRAM ----------
+    // A LUT is Shannon-expanded from its highest input down, sharing equal sub-tables and
+    // skipping inputs a sub-table ignores. An 8x1 MUX becomes 15 word muxes instead of 2047.
+    // Layout: {root, nodeCount, var, lo, hi, ...}; children precede parents. Node i lands in
+    // scratch row i + 2, and lo/hi/root are stored as rows (0 = constant 0, 1 = constant 1).
+    private static final int ZERO = -1, ONE = -2;
+
+    static int[] compile(long[] lut, int k) {
+        int[] nodes = new int[2 + 3 * 16];
+        Map<Long, Integer> unique = new HashMap<>();
+        int[] count = {0};
+        int[][] out = {nodes};
+        int root = expand(lut, 0, k, unique, count, out);
+        nodes = Arrays.copyOf(out[0], 2 + 3 * count[0]);
+        nodes[0] = row(root);
+        nodes[1] = count[0];
+        for (int o = 2; o < nodes.length; o += 3) {
+            nodes[o + 1] = row(nodes[o + 1]);
+            nodes[o + 2] = row(nodes[o + 2]);
+        }
+        return nodes;
+    }
+
+    private static int row(int ref) {
+        return ref == ZERO ? 0 : ref == ONE ? 1 : ref + 2;
+    }
+
+    private static int expand(long[] lut, int offset, int vars, Map<Long, Integer> unique, int[] count, int[][] out) {
+        if (vars == 0) return (lut[offset >>> 6] & (1L << offset)) != 0 ? ONE : ZERO;
+        int half = 1 << (vars - 1);
+        int lo = expand(lut, offset, vars - 1, unique, count, out);
+        int hi = expand(lut, offset + half, vars - 1, unique, count, out);
+        if (lo == hi) return lo;
+        long key = ((long) (vars - 1) << 48) | ((long) (lo + 2) << 24) | (hi + 2);
+        Integer known = unique.get(key);
+        if (known != null) return known;
+        int id = count[0]++;
+        int o = 2 + 3 * id;
+        if (o + 3 > out[0].length) out[0] = Arrays.copyOf(out[0], out[0].length * 2);
+        out[0][o] = vars - 1;
+        out[0][o + 1] = lo;
+        out[0][o + 2] = hi;
+        unique.put(key, id);
+        return id;
+    }
+}
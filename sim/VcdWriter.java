@@ -0,0 +1,79 @@
+package sim;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Streaming Value Change Dump writer (IEEE 1364, section 18) for one-bit signals, timescale 1 ns. Only a
+ * write buffer is held, so a trace of any length goes straight to disk. Changes must come in
+ * non-decreasing time order.
+ *
+ * <p>Write errors from {@link #change} are kept rather than thrown, since it runs inside the
+ * simulation loop; the first one is rethrown by {@link #flush()} or {@link #close()} and
+ * nothing more is written after it.
+ */
+public final class VcdWriter implements Closeable {
+
+    private final Writer out;
+    private long time = -1;
+    private String[] ids = new String[0];
+    private IOException error;
+
+    public VcdWriter(Writer out) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+    }
+
+    /** Declares the signals; index i of {@code names} is signal i in {@link #change}. */
+    public void header(String[] names) throws IOException {
+        ids = new String[names.length];
+        out.write("$timescale 1ns $end\n$scope module board $end\n");
+        for (int i = 0; i < names.length; i++) {
+            ids[i] = id(i);
+            out.write("$var wire 1 " + ids[i] + " " + names[i].replaceAll("\\s+", "_") + " $end\n");
+        }
+        out.write("$upscope $end\n$enddefinitions $end\n");
+        time = -1;
+    }
+
+    public void change(long t, int signal, boolean v) {
+        if (error != null) return;
+        try {
+            if (t != time) {
+                out.write('#');
+                out.write(Long.toString(t));
+                out.write('\n');
+                time = t;
+            }
+            out.write(v ? '1' : '0');
+            out.write(ids[signal]);
+            out.write('\n');
+        } catch (IOException ex) {
+            error = ex;
+        }
+    }
+
+    public void flush() throws IOException {
+        if (error != null) throw error;
+        out.flush();
+    }
+
+    @Override public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    // identifier codes are base-94 over the printable characters '!'..'~'
+    private static String id(int i) {
+        StringBuilder sb = new StringBuilder();
+        do {
+            sb.append((char) ('!' + i % 94));
+            i /= 94;
+        } while (i > 0);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,173 @@
+package sim;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Logic-analyzer capture: value changes on chosen nets ("probes"), each probe in its own ring of
+ * {@code long}s holding {@code time << 1 | value}. A ring keeps the most recent {@code capacity}
+ * changes; older ones are overwritten, so memory stays fixed however long a run goes. Changes can
+ * also be streamed to a {@link VcdWriter} as they are recorded, for traces longer than the rings.
+ *
+ * <p>Two ways in: {@link #sample(long)} compares every probe with its net and records the ones
+ * that moved (zero-delay engines, once per settled edge), and {@link #change(int, boolean, long)}
+ * records one net in O(1) (the timing engine, per event). Times are ns and never go backwards; an
+ * earlier time is recorded as the latest one seen.
+ */
+public final class WaveRecorder {
+
+    private final Netlist n;
+    private final int mask;
+    private final int[] probeOf;     // per net, probe index or -1
+    private int[] nets = new int[0];
+    private String[] names = new String[0];
+    private long[][] ring = new long[0][];
+    private long[] written = new long[0];
+    private boolean[] last = new boolean[0];
+    private long end;
+    private VcdWriter stream;
+
+    /** {@code capacity} changes are kept per probe, rounded up to a power of two. */
+    public WaveRecorder(Netlist n, int capacity) {
+        this.n = n;
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = cap - 1;
+        probeOf = new int[n.netCount];
+        Arrays.fill(probeOf, -1);
+    }
+
+    public Netlist netlist() { return n; }
+
+    /** Adds a probe on {@code net}, starting from its current value; returns the probe index. */
+    public int probe(int net, String name) {
+        if (probeOf[net] >= 0) return probeOf[net];
+        int p = nets.length;
+        nets = Arrays.copyOf(nets, p + 1);
+        names = Arrays.copyOf(names, p + 1);
+        ring = Arrays.copyOf(ring, p + 1);
+        written = Arrays.copyOf(written, p + 1);
+        last = Arrays.copyOf(last, p + 1);
+        nets[p] = net;
+        names[p] = name;
+        ring[p] = new long[mask + 1];
+        probeOf[net] = p;
+        boolean v = n.get(net);
+        last[p] = !v;
+        put(p, v, end);
+        return p;
+    }
+
+    public int probes() { return nets.length; }
+    public String name(int p) { return names[p]; }
+    public int net(int p) { return nets[p]; }
+    public boolean isProbed(int net) { return probeOf[net] >= 0; }
+
+    /** Latest time recorded, ns. */
+    public long end() { return end; }
+
+    /** Records every probe whose net differs from its last recorded value. */
+    public void sample(long time) {
+        if (time > end) end = time;
+        for (int p = 0; p < nets.length; p++) {
+            boolean v = n.get(nets[p]);
+            if (v != last[p]) put(p, v, end);
+        }
+    }
+
+    /** Records a change on {@code net} if it is probed. */
+    public void change(int net, boolean v, long time) {
+        int p = probeOf[net];
+        if (p < 0) return;
+        if (time > end) end = time;
+        if (v != last[p]) put(p, v, end);
+    }
+
+    private void put(int p, boolean v, long time) {
+        last[p] = v;
+        ring[p][(int) written[p]++ & mask] = time << 1 | (v ? 1 : 0);
+        if (stream != null) stream.change(time, p, v);
+    }
+
+    // ---------- READING ----------
+    /** Changes still held for probe {@code p}, oldest first as index 0. */
+    public int count(int p) {
+        return (int) Math.min(written[p], mask + 1);
+    }
+
+    /** True if probe {@code p} lost older changes to the ring. */
+    public boolean wrapped(int p) { return written[p] > mask + 1; }
+
+    public long time(int p, int i) { return entry(p, i) >> 1; }
+
+    public boolean value(int p, int i) { return (entry(p, i) & 1) != 0; }
+
+    private long entry(int p, int i) {
+        return ring[p][(int) (written[p] - count(p) + i) & mask];
+    }
+
+    /** Index of the last change at or before {@code time}, or -1 if all held changes are later. */
+    public int indexAt(int p, long time) {
+        int lo = 0, hi = count(p) - 1, at = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (time(p, mid) <= time) { at = mid; lo = mid + 1; } else hi = mid - 1;
+        }
+        return at;
+    }
+
+    /** Earliest time every probe still has history for. */
+    public long start() {
+        long s = 0;
+        for (int p = 0; p < nets.length; p++) if (count(p) > 0) s = Math.max(s, wrapped(p) ? time(p, 0) : 0);
+        return s;
+    }
+
+    /** Drops the history; each probe restarts from its net's current value. */
+    public void clear() {
+        Arrays.fill(written, 0);
+        for (int p = 0; p < nets.length; p++) {
+            boolean v = n.get(nets[p]);
+            last[p] = !v;
+            put(p, v, end);
+        }
+    }
+
+    // ---------- VCD ----------
+    /**
+     * Streams every change from now on to {@code w} (null stops). The header and the current
+     * value of every probe are written first.
+     */
+    public void setStream(VcdWriter w) throws IOException {
+        stream = w;
+        if (w == null) return;
+        w.header(names);
+        for (int p = 0; p < nets.length; p++) w.change(end, p, last[p]);
+    }
+
+    /**
+     * Writes the held history as a VCD file, merging the probes in time order. The file starts
+     * at {@link #start()}, the first time for which every probe's value is known.
+     */
+    public void writeVcd(Writer out) throws IOException {
+        VcdWriter w = new VcdWriter(out);
+        w.header(names);
+        long from = start();
+        int[] next = new int[nets.length];
+        for (int p = 0; p < nets.length; p++) {
+            int i = indexAt(p, from);
+            if (i >= 0) w.change(from, p, value(p, i));
+            next[p] = i + 1;
+        }
+        while (true) {
+            int best = -1;
+            long bt = Long.MAX_VALUE;
+            for (int p = 0; p < nets.length; p++) {
+                if (next[p] < count(p) && time(p, next[p]) < bt) { bt = time(p, next[p]); best = p; }
+            }
+            if (best < 0) break;
+            w.change(bt, best, value(best, next[best]++));
+        }
+        w.flush();
+    }
+}